@@ -9,3 +9,8 @@ ALL_TESTS_OUT_TGZ = ALL_TESTS_OUT_DIR + ".tgz"
 GRAPH_DIR = 'graphs'
 Z3_DIR = 'z3_python'
 LOG_FILE = 'output.log'
+SERVER_HOST = '127.0.0.1'
+SERVER_END = 'END'
+GEN_SRC_DIR = os.path.join(BASE_DIR, 'generated')
+SCALING_OUT_DIR = 'scaling_out'
+SCALING_CSV = 'scaling.csv'
@@ -0,0 +1,43 @@
+import argparse
+import socket
+
+import Constants
+
+
+def send_request(port, request):
+    with socket.create_connection((Constants.SERVER_HOST, port)) as sock:
+        stream = sock.makefile('rw')
+        stream.write(request + '\n')
+        stream.flush()
+        for line in stream:
+            line = line.rstrip('\n')
+            if line == Constants.SERVER_END:
+                break
+            print(line)
+
+
+def main(args):
+    if args.shutdown:
+        send_request(args.port, 'SHUTDOWN')
+        return
+    request = 'ANALYZE class={} cp={} graphs={}'.format(args.classname, args.classpath, args.graphs)
+    if args.outdir is not None:
+        request += ' out={}'.format(args.outdir)
+    send_request(args.port, request)
+
+
+if __name__ == '__main__':
+    parser = argparse.ArgumentParser()
+    parser.add_argument("-p", "--port", type=int, help="port of the analysis server", required=True)
+    parser.add_argument("-c", "--classname", help="class to analyze", required=False)
+    parser.add_argument("-cp", "--classpath", help="path to the compiled class", default=Constants.OUT_DIR,
+                        required=False)
+    parser.add_argument("-g", "--graphs", help="how graphs are written (OFF, DOT, PNG or SVG)", default="OFF",
+                        required=False)
+    parser.add_argument("-o", "--outdir", help="directory holding the results (one directory per class), inside the output "
+                        "directory of the server", required=False)
+    parser.add_argument("-s", "--shutdown", action="store_true", help="stop the server", required=False)
+    args = parser.parse_args()
+    if not args.shutdown and args.classname is None:
+        parser.error("a class is needed (-c)")
+    main(args)
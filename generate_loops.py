@@ -0,0 +1,117 @@
+import argparse
+import os
+import random
+
+import Constants
+import Utils
+
+SHAPES = ['affine', 'strided', 'conditional', 'indirect', 'mixed']
+OPS = ['+', '-', '*']
+
+
+def class_name(statements, arrays, depth, shape, branches, seed):
+    return 'Gen_s{}_a{}_d{}_{}_b{}_r{}'.format(statements, arrays, depth, shape, int(round(branches * 100)), seed)
+
+
+def make_index(rnd, shape, loop_vars):
+    # every index stays inside [0, 2 * N + 2] for loop variables in [1, N - 1]
+    var = rnd.choice(loop_vars)
+    if shape == 'mixed':
+        shape = rnd.choice(SHAPES[:-1])
+    if shape == 'affine':
+        offset = rnd.randint(-1, 2)
+        if offset == 0:
+            return var
+        return '{} {} {}'.format(var, '+' if offset > 0 else '-', abs(offset))
+    if shape == 'strided':
+        return '2 * {} + {}'.format(var, rnd.randint(0, 2))
+    if shape == 'conditional':
+        return '{0} % 2 == 0 ? {0} : {0} + {1}'.format(var, rnd.randint(1, 2))
+    return 'P[{}]'.format(var)
+
+
+def make_statement(rnd, shape, arrays, loop_vars):
+    dest = rnd.randrange(arrays)
+    left = rnd.randrange(arrays)
+    right = rnd.randrange(arrays)
+    return 'A{}[{}] = A{}[{}] {} A{}[{}];'.format(dest, make_index(rnd, shape, loop_vars),
+                                                 left, make_index(rnd, shape, loop_vars), rnd.choice(OPS),
+                                                 right, make_index(rnd, shape, loop_vars))
+
+
+def generate(name, statements, arrays, depth, shape, branches, seed, size):
+    rnd = random.Random(seed)
+    loop_vars = ['i{}'.format(d) for d in range(depth)]
+    lines = ['// generated by generate_loops.py: {} statements, {} arrays, depth {}, {} indexes, '
+             '{:.2f} branch density, seed {}'.format(statements, arrays, depth, shape, branches, seed),
+             'class {} {{'.format(name),
+             '    public static void main(String[] args) {',
+             '        int N = {};'.format(size)]
+    for a in range(arrays):
+        lines.append('        int[] A{} = new int[2 * N + 3];'.format(a))
+    # the indirection array is a permutation of [0, N)
+    perm = list(range(size))
+    rnd.shuffle(perm)
+    lines.append('        int[] P = {{{}}};'.format(', '.join(str(p) for p in perm)))
+    indent = '        '
+    for var in loop_vars:
+        lines.append('{0}for (int {1} = 1; {1} < N; {1}++) {{'.format(indent, var))
+        indent += '    '
+    for _ in range(statements):
+        stmt = make_statement(rnd, shape, arrays, loop_vars)
+        if rnd.random() < branches:
+            lines.append('{}if ({} % 3 != 0) {{'.format(indent, rnd.choice(loop_vars)))
+            lines.append('{}    {}'.format(indent, stmt))
+            lines.append('{}}}'.format(indent))
+        else:
+            lines.append(indent + stmt)
+    for _ in loop_vars:
+        indent = indent[:-4]
+        lines.append(indent + '}')
+    lines.append('    }')
+    lines.append('}')
+    return '\n'.join(lines) + '\n'
+
+
+def main(args):
+    name = args.name if args.name else class_name(args.statements, args.arrays, args.depth, args.shape,
+                                                  args.branches, args.seed)
+    if not os.path.exists(Constants.GEN_SRC_DIR):
+        os.makedirs(Constants.GEN_SRC_DIR)
+    if not os.path.exists(Constants.OUT_DIR):
+        os.makedirs(Constants.OUT_DIR)
+    src_file = os.path.join(Constants.GEN_SRC_DIR, name + '.java')
+    with open(src_file, 'w') as f:
+        f.write(generate(name, args.statements, args.arrays, args.depth, args.shape, args.branches, args.seed,
+                         args.size))
+    print('Generated {}.'.format(src_file))
+    if not args.nocompile:
+        # the analyzer loads the class from the usual out dir
+        print('Compiling {}...'.format(src_file), end='')
+        Utils.execute_cmd_error_catch(['javac', src_file, '-g', '-d', Constants.OUT_DIR])
+    return name
+
+
+def add_arguments(parser):
+    parser.add_argument("-s", "--statements", type=int, help="number of statements in the loop nest", default=10,
+                        metavar='', required=False)
+    parser.add_argument("-a", "--arrays", type=int, help="number of arrays", default=4, metavar='', required=False)
+    parser.add_argument("-d", "--depth", type=int, help="number of nested loops", default=1, metavar='',
+                        required=False)
+    parser.add_argument("-i", "--shape", choices=SHAPES, help="shape of the array indexes. Allowed values are: " +
+                        ", ".join(SHAPES), default='affine', metavar='', required=False)
+    parser.add_argument("-b", "--branches", type=float, help="fraction of the statements inside an if", default=0.0,
+                        metavar='', required=False)
+    parser.add_argument("-r", "--seed", type=int, help="seed of the generator", default=0, metavar='',
+                        required=False)
+    parser.add_argument("-n", "--size", type=int, help="trip count of every loop", default=16, metavar='',
+                        required=False)
+
+
+if __name__ == '__main__':
+    parser = argparse.ArgumentParser()
+    add_arguments(parser)
+    parser.add_argument("-c", "--name", help="name of the class (made from the parameters by default)",
+                        metavar='', required=False)
+    parser.add_argument("--nocompile", action="store_true", help="only write the source", required=False)
+    main(parser.parse_args())
@@ -0,0 +1,140 @@
+import argparse
+import csv
+import os
+import re
+import subprocess
+import time
+
+import Constants
+import generate_loops
+
+# each parameter is swept on its own, the others keep their default value
+DEFAULTS = {'statements': 10, 'arrays': 4, 'depth': 1, 'shape': 'affine', 'branches': 0.0}
+SWEEPS = {
+    'statements': [10, 25, 50, 100, 200, 400],
+    'arrays': [1, 2, 4, 8, 16, 32],
+    'depth': [1, 2, 3, 4],
+    'shape': ['affine', 'strided', 'conditional', 'indirect', 'mixed'],
+    'branches': [0.0, 0.25, 0.5, 0.75, 1.0],
+}
+FIELDS = ['parameter', 'value', 'class', 'status', 'wall_sec', 'analysis_sec', 'peak_heap_mb']
+TIME_RE = re.compile(r'Total running time: ([0-9.]+) sec')
+HEAP_RE = re.compile(r'Peak HEAP used: ([0-9.]+) MB')
+
+
+def find_value(regex, text):
+    match = regex.search(text)
+    return float(match.group(1)) if match else None
+
+
+def run_analyzer(args, name):
+    cmd = ['java', '-jar', args.jar, '-c', name, '-g', 'OFF', '-nc', '-nr']
+    if args.rtpath:
+        cmd += ['-r', args.rtpath]
+    if args.jcepath:
+        cmd += ['-j', args.jcepath]
+    start = time.time()
+    try:
+        proc = subprocess.run(cmd, stdout=subprocess.PIPE, stderr=subprocess.STDOUT, universal_newlines=True,
+                              timeout=args.timeout)
+    except subprocess.TimeoutExpired:
+        return 'timeout', time.time() - start, None, None
+    wall = time.time() - start
+    analysis = find_value(TIME_RE, proc.stdout)
+    heap = find_value(HEAP_RE, proc.stdout)
+    if analysis is None:
+        status = 'failed'
+    elif 'Caught ' in proc.stdout:
+        # finished, but some statements were not analyzed
+        status = 'errors'
+    else:
+        status = 'ok'
+    return status, wall, analysis, heap
+
+
+def run_point(args, parameter, value, writer):
+    params = dict(DEFAULTS)
+    params[parameter] = value
+    name = generate_loops.class_name(params['statements'], params['arrays'], params['depth'], params['shape'],
+                                     params['branches'], args.seed)
+    gen_args = argparse.Namespace(name=name, nocompile=False, seed=args.seed, size=args.size, **params)
+    generate_loops.main(gen_args)
+    for rep in range(args.repeat):
+        print('Running {} ({} = {}, run {})...'.format(name, parameter, value, rep + 1), end='', flush=True)
+        status, wall, analysis, heap = run_analyzer(args, name)
+        print('{} {:.2f} sec.'.format(status, wall))
+        writer.writerow([parameter, value, name, status, '{:.3f}'.format(wall),
+                         '' if analysis is None else analysis, '' if heap is None else heap])
+
+
+def read_results(csv_file):
+    results = {}
+    with open(csv_file) as f:
+        for row in csv.DictReader(f):
+            if row['status'] != 'failed' and row['status'] != 'timeout':
+                results.setdefault(row['parameter'], []).append(row)
+    return results
+
+
+def plot(csv_file):
+    try:
+        import matplotlib
+        matplotlib.use('Agg')
+        import matplotlib.pyplot as plt
+    except ImportError:
+        print('matplotlib not found, not plotting (the results are in {}).'.format(csv_file))
+        return
+    for parameter, rows in read_results(csv_file).items():
+        values = [row['value'] for row in rows]
+        fig, (time_ax, heap_ax) = plt.subplots(1, 2, figsize=(10, 4))
+        time_ax.plot(values, [float(row['analysis_sec']) for row in rows], 'o-')
+        time_ax.set_xlabel(parameter)
+        time_ax.set_ylabel('analysis time (sec)')
+        heap_ax.plot(values, [float(row['peak_heap_mb']) for row in rows], 'o-')
+        heap_ax.set_xlabel(parameter)
+        heap_ax.set_ylabel('peak heap (MB)')
+        fig.tight_layout()
+        png_file = os.path.join(os.path.dirname(csv_file), parameter + '.png')
+        fig.savefig(png_file)
+        plt.close(fig)
+        print('Wrote {}.'.format(png_file))
+
+
+def main(args):
+    if not os.path.exists(Constants.SCALING_OUT_DIR):
+        os.mkdir(Constants.SCALING_OUT_DIR)
+    csv_file = os.path.join(Constants.SCALING_OUT_DIR, Constants.SCALING_CSV)
+    if not args.plotonly:
+        parameters = args.parameters if args.parameters else list(SWEEPS.keys())
+        with open(csv_file, 'w', newline='') as f:
+            writer = csv.writer(f)
+            writer.writerow(FIELDS)
+            for parameter in parameters:
+                for value in SWEEPS[parameter]:
+                    run_point(args, parameter, value, writer)
+                    f.flush()
+    plot(csv_file)
+
+
+if __name__ == '__main__':
+    parser = argparse.ArgumentParser()
+    parser.add_argument('-jar', '--jar', help="jar location", metavar='',
+                        default=os.path.join('target', Constants.JAR_NAME), required=False)
+    parser.add_argument('-p', '--parameters', nargs='+', choices=list(SWEEPS.keys()),
+                        help="parameters to sweep (all by default). Allowed values are: " +
+                             ", ".join(SWEEPS.keys()), metavar='', required=False)
+    parser.add_argument('-n', '--size', type=int, help="trip count of every loop", default=16, metavar='',
+                        required=False)
+    parser.add_argument('-s', '--seed', type=int, help="seed of the generator", default=0, metavar='',
+                        required=False)
+    parser.add_argument('-k', '--repeat', type=int, help="runs of every program", default=1, metavar='',
+                        required=False)
+    parser.add_argument('-t', '--timeout', type=int, help="seconds before a run is stopped", default=600,
+                        metavar='', required=False)
+    parser.add_argument('-r', '--rtpath', help="complete path to rt.jar (passed to the analyzer)", metavar='',
+                        required=False)
+    parser.add_argument('-j', '--jcepath', help="complete path to jce.jar (passed to the analyzer)", metavar='',
+                        required=False)
+    parser.add_argument('--plotonly', action="store_true", help="only plot the results of the last run",
+                        required=False)
+    main(parser.parse_args())
@@ -0,0 +1,229 @@
+import benchmarks.AnalysisFixture;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import soot.*;
+import soot.jimple.AssignStmt;
+import soot.jimple.Stmt;
+import soot.options.Options;
+import soot.shimple.Shimple;
+import soot.shimple.ShimpleBody;
+import soot.toolkits.graph.Block;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Entry points for the benchmarks (see the benchmarks package). The analysis classes are package private in
+ * the default package and JMH needs its benchmarks in a named package, so the benchmarks only call this class
+ * through AnalysisFixture. A fixture loads one test program, analyzes its main method once and keeps what the
+ * micro benchmarks need (the body, the SCC nodes, the def/use nodes, the phi variables and the constants).
+ * The rt.jar and jce.jar paths can be set with the bench.rt and bench.jce system properties.
+ */
+public class BenchmarkFixture implements AnalysisFixture {
+    /**
+     * path to rt.jar
+     */
+    private static final String RT_PATH = System.getProperty("bench.rt", Constants.DEFAULT_RT_PATH);
+    /**
+     * path to jce.jar
+     */
+    private static final String JCE_PATH = System.getProperty("bench.jce", Constants.DEFAULT_JCE_PATH);
+    /**
+     * the name of the method the micro benchmarks use
+     */
+    private static final String METHOD_NAME = "main";
+    /**
+     * the test program
+     */
+    private final String class_name;
+    /**
+     * the main body of the test program
+     */
+    private final ShimpleBody body;
+    /**
+     * the blocks of the body in reverse postorder
+     */
+    private final List<Block> blocks;
+    /**
+     * the phi variables found by the analysis
+     */
+    private final PhiVariableContainer phi_vars;
+    /**
+     * the constants found by the analysis
+     */
+    private final Map<String, Integer> constants;
+    /**
+     * the SCC nodes found by the analysis
+     */
+    private final List<SCCNode> scc_nodes;
+    /**
+     * the def/use graph nodes found by the analysis
+     */
+    private final List<Node> def_use_nodes;
+
+    /**
+     * load a test program and analyze its main method once
+     * @param class_name the test program
+     */
+    public BenchmarkFixture(String class_name) {
+        this.class_name = class_name;
+        compile(class_name);
+        load_scene();
+        SootClass sc = load_class(class_name);
+        this.body = make_body(sc.getMethodByName(METHOD_NAME));
+        this.blocks = new BodyCFG(body).get_block_order();
+        Analysis analysis = new Analysis(AnalysisDispatcher.get_body_name(body.getMethod()), new SolverCache());
+        analysis.run(body);
+        this.phi_vars = analysis.get_phi_vars();
+        this.constants = analysis.get_constants();
+        this.scc_nodes = new ArrayList<>(analysis.get_scc_graph().get_nodes());
+        this.def_use_nodes = new ArrayList<>(analysis.get_def_use_graph().get_nodes().values());
+    }
+
+    /**
+     * compile a test program (if its class file is out of date) and make the z3 directory
+     * @param class_name the test program
+     */
+    private static void compile(String class_name) {
+        // z3 scripts are written here when an equation is not affine
+        if(!new File(Constants.Z3_DIR).isDirectory() && !new File(Constants.Z3_DIR).mkdirs()) {
+            throw new IllegalStateException(Constants.Z3_DIR + " could not be created.");
+        }
+        new ProgramCompiler(Constants.DEFAULT_SRC_DIR, Constants.DEFAULT_CP).compile(Collections.singletonList(class_name));
+    }
+
+    /**
+     * set up a fresh Soot (the JDK classes on the class path and the basic classes loaded)
+     */
+    private static void load_scene() {
+        G.reset();
+        Settings.set_render_mode(RenderMode.OFF);
+        Options.v().set_keep_line_number(true);
+        Options.v().set_allow_phantom_refs(true);
+        Options.v().set_whole_shimple(true);
+        Scene.v().setSootClassPath(Constants.DEFAULT_CP + File.pathSeparator + RT_PATH + File.pathSeparator + JCE_PATH);
+        Scene.v().loadBasicClasses();
+    }
+
+    /**
+     * load a test program into the Scene
+     * @param class_name the test program
+     * @return the class
+     */
+    private static SootClass load_class(String class_name) {
+        SootClass sc = Scene.v().forceResolve(class_name, SootClass.BODIES);
+        sc.setApplicationClass();
+        return sc;
+    }
+
+    /**
+     * make the Shimple body of a method
+     * @param m the method
+     * @return the Shimple body
+     */
+    private static ShimpleBody make_body(SootMethod m) {
+        ShimpleBody sb = Shimple.v().newBody(m.retrieveActiveBody());
+        m.setActiveBody(sb);
+        return sb;
+    }
+
+    /**
+     * end to end: load Soot and the test program, then analyze every method of it
+     * @return the number of dependences found
+     */
+    @Override
+    public int analyze_class() {
+        load_scene();
+        SootClass sc = load_class(class_name);
+        SolverCache solver_cache = new SolverCache();
+        int dependences = 0;
+        for(SootMethod m : new ArrayList<>(sc.getMethods())) {
+            if(!m.isConcrete()) {
+                continue;
+            }
+            Analysis analysis = new Analysis(AnalysisDispatcher.get_body_name(m), solver_cache);
+            analysis.run(make_body(m));
+            dependences += analysis.get_scc_edges().size();
+        }
+        return dependences;
+    }
+
+    /**
+     * map the statements of the body to their lines
+     * @return the line of the last statement
+     */
+    @Override
+    public int find_lines() {
+        BodyLineFinder blf = new BodyLineFinder(body);
+        return blf.get_line((Stmt)body.getUnits().getLast());
+    }
+
+    /**
+     * make the id of every def/use node
+     * @return the total length of the ids
+     */
+    @Override
+    public int make_ids() {
+        int length = 0;
+        for(Node n : def_use_nodes) {
+            length += Node.make_id(n.get_basename(), n.get_av(), n.get_type(), n.is_if(), n.get_line_num()).length();
+        }
+        return length;
+    }
+
+    /**
+     * resolve the dependency chain of the index of every SCC node
+     * @return the total length of the resolved equations
+     */
+    @Override
+    public int resolve_dep_chains() {
+        int length = 0;
+        for(SCCNode n : scc_nodes) {
+            String index = n.get_index().to_str();
+            ImmutablePair<Variable, List<AssignStmt>> dep_chain = phi_vars.get_var_dep_chain(constants, index);
+            length += Utils.resolve_dep_chain(index, dep_chain, constants).length();
+        }
+        return length;
+    }
+
+    /**
+     * solve the index equation of every SCC node (without the solver cache)
+     * @return the number of d values found
+     */
+    @Override
+    public int solve() {
+        int count = 0;
+        for(SCCNode n : scc_nodes) {
+            String index = n.get_index().to_str();
+            ImmutablePair<Variable, List<AssignStmt>> dep_chain = phi_vars.get_var_dep_chain(constants, index);
+            count += new Solver(n.get_stmt(), index, dep_chain, phi_vars, constants).solve().size();
+        }
+        return count;
+    }
+
+    /**
+     * the first statement pass of the analysis (array and index variables) over every block of the body
+     * @return the number of constants found
+     */
+    @Override
+    public int visitor_passes() {
+        BodyLineFinder blf = new BodyLineFinder(body);
+        ArrayVariables array_vars = new ArrayVariables();
+        Set<Stmt> new_array_stmts = new HashSet<>();
+        Map<String, Integer> found_constants = new HashMap<>();
+        ArrayVariableVisitor av_visitor = new ArrayVariableVisitor(array_vars,
+                new ArrayDefUseGraph(AnalysisDispatcher.get_body_name(body.getMethod())), new_array_stmts, blf);
+        VariableVisitor var_visitor = new VariableVisitor(new PhiVariableContainer(body.getMethod().getName()),
+                new HashSet<>(), found_constants, new_array_stmts, new HashMap<>());
+        for(Block b : blocks) {
+            int block_num = Utils.get_block_num(b);
+            boolean is_merge = b.getPreds().size() > 1;
+            for(Unit u : b) {
+                av_visitor.reset(block_num, true);
+                u.apply(av_visitor);
+                var_visitor.reset(av_visitor.get_is_array(), false, is_merge);
+                u.apply(var_visitor);
+            }
+        }
+        return found_constants.size();
+    }
+}
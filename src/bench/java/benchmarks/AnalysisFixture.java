@@ -0,0 +1,44 @@
+package benchmarks;
+
+/**
+ * What the benchmarks measure, implemented by BenchmarkFixture. The analysis classes are package private in the
+ * default package and a named package cannot import the default package, so BenchmarkFixture implements this
+ * interface instead and the benchmarks call it directly (see Fixture.load()).
+ */
+public interface AnalysisFixture {
+    /**
+     * end to end: load Soot and the test program, then analyze every method of it
+     * @return the number of dependences found
+     */
+    int analyze_class();
+
+    /**
+     * map the statements of the body to their lines
+     * @return the line of the last statement
+     */
+    int find_lines();
+
+    /**
+     * make the id of every def/use node
+     * @return the total length of the ids
+     */
+    int make_ids();
+
+    /**
+     * resolve the dependency chain of the index of every SCC node
+     * @return the total length of the resolved equations
+     */
+    int resolve_dep_chains();
+
+    /**
+     * solve the index equation of every SCC node (without the solver cache)
+     * @return the number of d values found
+     */
+    int solve();
+
+    /**
+     * the first statement pass of the analysis (array and index variables) over every block of the body
+     * @return the number of constants found
+     */
+    int visitor_passes();
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end: a fresh Soot with the JDK basic classes, the test program loaded and every method of it analyzed
+ * (graphs are not written). Each invocation is a cold analysis, so it is timed once per iteration.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dtinylog.configuration=tinylog-bench.properties")
+public class EndToEndBenchmark {
+    /**
+     * the test program
+     */
+    @Param({"Test10", "HPL_dgemm1", "DB_JOIN3", "MNIST2", "CryptoNets5"})
+    public String program;
+    /**
+     * the test program (its main method analyzed once)
+     */
+    private AnalysisFixture fixture;
+
+    /**
+     * compile the test program (the fixture does it)
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = Fixture.load(program);
+    }
+
+    /**
+     * analyze the test program
+     * @return the number of dependences found
+     */
+    @Benchmark
+    public int analyze() {
+        return fixture.analyze_class();
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+/**
+ * Makes the BenchmarkFixture of a test program. JMH does not take benchmarks in the default package and a named
+ * package cannot import the default package, so the fixture class is looked up by name once, in the setup of a
+ * benchmark. Everything the benchmarks time is a plain call through AnalysisFixture.
+ */
+final class Fixture {
+    /**
+     * the name of the fixture class (in the default package)
+     */
+    private static final String FIXTURE_CLASS = "BenchmarkFixture";
+
+    /**
+     * no instances, see load()
+     */
+    private Fixture() {
+    }
+
+    /**
+     * load a test program and analyze its main method once
+     * @param class_name the test program
+     * @return the fixture
+     */
+    static AnalysisFixture load(String class_name) {
+        try {
+            return Class.forName(FIXTURE_CLASS).asSubclass(AnalysisFixture.class).getConstructor(String.class)
+                    .newInstance(class_name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(FIXTURE_CLASS + " is not on the class path.", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks of the parts of the analysis that run for every statement or every dependence, on the main
+ * method of a test program that was analyzed once in the setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dtinylog.configuration=tinylog-bench.properties")
+public class HotPathBenchmark {
+    /**
+     * the test program
+     */
+    @Param({"Test10", "HPL_dgemm1", "DB_JOIN3", "MNIST2", "CryptoNets5"})
+    public String program;
+    /**
+     * the test program, analyzed once
+     */
+    private AnalysisFixture fixture;
+
+    /**
+     * load and analyze the test program
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = Fixture.load(program);
+    }
+
+    /**
+     * solve the index equations
+     * @return the number of d values found
+     */
+    @Benchmark
+    public int solve() {
+        return fixture.solve();
+    }
+
+    /**
+     * resolve the dependency chains of the indexes
+     * @return the total length of the resolved equations
+     */
+    @Benchmark
+    public int resolve_dep_chains() {
+        return fixture.resolve_dep_chains();
+    }
+
+    /**
+     * map the statements to their lines
+     * @return the line of the last statement
+     */
+    @Benchmark
+    public int find_lines() {
+        return fixture.find_lines();
+    }
+
+    /**
+     * make the ids of the def/use nodes
+     * @return the total length of the ids
+     */
+    @Benchmark
+    public int make_ids() {
+        return fixture.make_ids();
+    }
+
+    /**
+     * run the visitors over the body
+     * @return the number of constants found
+     */
+    @Benchmark
+    public int visitor_passes() {
+        return fixture.visitor_passes();
+    }
+}
@@ -0,0 +1,71 @@
+import jdk.jfr.*;
+import soot.Unit;
+import soot.toolkits.graph.Block;
+
+/**
+ * JFR event for a block processed by the BFS of a loop (see Analysis.process()). The fields are only filled in
+ * when the event is recorded. Made by JfrEventFactory, it is only built by the jfr profile.
+ */
+@Name("mpc.ProcessBlock")
+@Label("Process Block")
+@Description("A block processed by the BFS of a loop")
+@Category({"MPC Loop Parallelization", "Analysis"})
+@StackTrace(false)
+class BlockEvent extends Event implements JfrEvents.ProcessBlock {
+    /**
+     * the body the block is in
+     */
+    @Label("Body")
+    String body;
+    /**
+     * the number of the block
+     */
+    @Label("Block")
+    int block;
+    /**
+     * the number of the head block of the loop
+     */
+    @Label("Loop Head")
+    int head;
+    /**
+     * the BFS iteration (1 or 2)
+     */
+    @Label("Iteration")
+    int iteration;
+    /**
+     * the number of units in the block
+     */
+    @Label("Units")
+    int units;
+
+    /**
+     * start timing a block (see JfrEventFactory.start_block())
+     */
+    BlockEvent() {
+        begin();
+    }
+
+    /**
+     * stop timing a block and record it
+     * @param body_name the body the block is in
+     * @param b the block
+     * @param head the head block of the loop
+     * @param second_iter true iff this was the second iteration
+     */
+    @Override
+    public void finish(String body_name, Block b, Block head, boolean second_iter) {
+        end();
+        if(shouldCommit()) {
+            this.body = body_name;
+            this.block = Utils.get_block_num(b);
+            this.head = Utils.get_block_num(head);
+            this.iteration = second_iter ? 2 : 1;
+            int count = 0;
+            for(Unit ignored : b) {
+                count++;
+            }
+            this.units = count;
+            commit();
+        }
+    }
+}
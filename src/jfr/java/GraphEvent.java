@@ -0,0 +1,89 @@
+import jdk.jfr.*;
+
+/**
+ * JFR event for a graph: made into DOT text and handed to the renderer (see Utils.print_graph()) or written by
+ * the renderer (see GraphRenderer). The fields are only filled in when the event is recorded. Made by
+ * JfrEventFactory, it is only built by the jfr profile.
+ */
+@Name("mpc.Graph")
+@Label("Graph")
+@Description("A graph printed by the analysis or written by the renderer")
+@Category({"MPC Loop Parallelization", "Graphs"})
+@StackTrace(false)
+class GraphEvent extends Event implements JfrEvents.Graph {
+    /**
+     * the name of the graph
+     */
+    @Label("Graph")
+    String graph;
+    /**
+     * print (DOT text made on the analysis thread) or write (file written by the renderer)
+     */
+    @Label("Stage")
+    String stage;
+    /**
+     * the render mode
+     */
+    @Label("Mode")
+    String mode;
+    /**
+     * the number of nodes (print only)
+     */
+    @Label("Nodes")
+    int nodes;
+    /**
+     * the number of edges (print only)
+     */
+    @Label("Edges")
+    int edges;
+    /**
+     * the size of the written file (write only)
+     */
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    /**
+     * start timing a graph (see JfrEventFactory.start_graph())
+     */
+    GraphEvent() {
+        begin();
+    }
+
+    /**
+     * stop timing a printed graph and record it
+     * @param graph_name the name of the graph
+     * @param nodes the number of nodes
+     * @param edges the number of edges
+     */
+    @Override
+    public void finish_print(String graph_name, int nodes, int edges) {
+        end();
+        if(shouldCommit()) {
+            this.graph = graph_name;
+            this.stage = "print";
+            this.mode = Settings.get_render_mode().toString();
+            this.nodes = nodes;
+            this.edges = edges;
+            commit();
+        }
+    }
+
+    /**
+     * stop timing a written graph and record it
+     * @param graph_name the name of the graph (the file)
+     * @param mode the render mode
+     * @param bytes the size of the file
+     */
+    @Override
+    public void finish_write(String graph_name, RenderMode mode, long bytes) {
+        end();
+        if(shouldCommit()) {
+            this.graph = graph_name;
+            this.stage = "write";
+            this.mode = mode.toString();
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import jdk.jfr.EventType;
+
+/**
+ * Makes the JFR events for JfrEvents, which finds this class by name (it is only built by the jfr profile). An
+ * event is only made while its type is enabled, otherwise the shared JfrEvents.NO_OP is returned.
+ */
+class JfrEventFactory implements JfrEvents.Factory {
+    /**
+     * the type of SolveEvent
+     */
+    private static final EventType SOLVE = EventType.getEventType(SolveEvent.class);
+    /**
+     * the type of BlockEvent
+     */
+    private static final EventType PROCESS_BLOCK = EventType.getEventType(BlockEvent.class);
+    /**
+     * the type of GraphEvent
+     */
+    private static final EventType GRAPH = EventType.getEventType(GraphEvent.class);
+
+    /**
+     * start timing a solve
+     * @return the event or JfrEvents.NO_OP if it is not enabled
+     */
+    @Override
+    public JfrEvents.Solve start_solve() {
+        return SOLVE.isEnabled() ? new SolveEvent() : JfrEvents.NO_OP;
+    }
+
+    /**
+     * start timing a block
+     * @return the event or JfrEvents.NO_OP if it is not enabled
+     */
+    @Override
+    public JfrEvents.ProcessBlock start_block() {
+        return PROCESS_BLOCK.isEnabled() ? new BlockEvent() : JfrEvents.NO_OP;
+    }
+
+    /**
+     * start timing a graph
+     * @return the event or JfrEvents.NO_OP if it is not enabled
+     */
+    @Override
+    public JfrEvents.Graph start_graph() {
+        return GRAPH.isEnabled() ? new GraphEvent() : JfrEvents.NO_OP;
+    }
+}
@@ -0,0 +1,68 @@
+import jdk.jfr.*;
+
+import java.util.List;
+
+/**
+ * JFR event for solving index equations: one in process equation or one z3 batch. The fields are only filled in
+ * when the event is recorded, so it costs next to nothing when no recording is running. Made by JfrEventFactory,
+ * it is only built by the jfr profile (Java 8 before 8u262 does not have jdk.jfr).
+ */
+@Name("mpc.Solve")
+@Label("Solve Index Equation")
+@Description("An index equation solved in process or a batch of equations solved with z3")
+@Category({"MPC Loop Parallelization", "Solver"})
+@StackTrace(false)
+class SolveEvent extends Event implements JfrEvents.Solve {
+    /**
+     * the resolved equation (every equation of a z3 batch, one per line)
+     */
+    @Label("Equation")
+    String equation;
+    /**
+     * the backend that solved the equation
+     */
+    @Label("Backend")
+    String backend;
+    /**
+     * the number of equations solved
+     */
+    @Label("Equations")
+    int equations;
+    /**
+     * the d values found (null if the equation could not be solved in process)
+     */
+    @Label("Result")
+    String result;
+
+    /**
+     * start timing a solve (see JfrEventFactory.start_solve())
+     */
+    SolveEvent() {
+        begin();
+    }
+
+    /**
+     * stop timing a solve and record it
+     * @param solvers the solvers of the equations that were solved
+     * @param backend the backend that solved them
+     * @param result the d values found (null if the equation could not be solved in process)
+     */
+    @Override
+    public void finish(List<Solver> solvers, SolverBackend backend, Object result) {
+        end();
+        if(shouldCommit()) {
+            StringBuilder sb = new StringBuilder();
+            for(Solver solver : solvers) {
+                if(sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append(solver.get_resolved_eq());
+            }
+            this.equation = sb.toString();
+            this.backend = backend.toString();
+            this.equations = solvers.size();
+            this.result = Utils.not_null(result) ? result.toString() : null;
+            commit();
+        }
+    }
+}
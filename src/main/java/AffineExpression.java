@@ -0,0 +1,289 @@
+import org.tinylog.Logger;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * An integer affine expression (c0 + c1 * x1 + ... + cn * xn) parsed from the right hand side
+ * of a resolved index equation. Only +, -, *, /, % and parentheses are supported, multiplication
+ * needs at least one constant operand and division/modulo need two constant operands.
+ */
+class AffineExpression {
+    /**
+     * the coefficient of each variable (in order of appearance)
+     */
+    private final Map<String, Long> coefficients;
+    /**
+     * the constant term
+     */
+    private long constant;
+
+    /**
+     * create a constant expression
+     * @param constant the constant value
+     */
+    private AffineExpression(long constant) {
+        this.coefficients = new LinkedHashMap<>();
+        this.constant = constant;
+    }
+
+    /**
+     * create an expression that is a single variable
+     * @param var the variable name
+     */
+    private AffineExpression(String var) {
+        this(0);
+        this.coefficients.put(var, 1L);
+    }
+
+    /**
+     * getter for the coefficients
+     * @return the coefficient of each variable (in order of appearance)
+     */
+    Map<String, Long> get_coefficients() {
+        return coefficients;
+    }
+
+    /**
+     * getter for the constant term
+     * @return the constant term
+     */
+    long get_constant() {
+        return constant;
+    }
+
+    /**
+     * check if the expression has no variables with a non zero coefficient
+     * @return true iff the expression is a constant
+     */
+    boolean is_constant() {
+        return coefficients.values().stream().allMatch(c -> c == 0L);
+    }
+
+    /**
+     * replace a variable with a constant value
+     * @param var the variable
+     * @param value the value
+     */
+    void bind(String var, long value) {
+        Long c = coefficients.remove(var);
+        if(Utils.not_null(c)) {
+            constant = Math.addExact(constant, Math.multiplyExact(c, value));
+        }
+    }
+
+    /**
+     * evaluate the expression
+     * @param values the value of each variable
+     * @return the value of the expression
+     */
+    long evaluate(Map<String, Long> values) {
+        long result = constant;
+        for(Map.Entry<String, Long> entry : coefficients.entrySet()) {
+            result = Math.addExact(result, Math.multiplyExact(entry.getValue(), values.get(entry.getKey())));
+        }
+        return result;
+    }
+
+    /**
+     * add (or subtract) another expression to this one
+     * @param other the other expression
+     * @param sign 1 to add, -1 to subtract
+     */
+    private void add(AffineExpression other, long sign) {
+        constant = Math.addExact(constant, Math.multiplyExact(sign, other.constant));
+        for(Map.Entry<String, Long> entry : other.coefficients.entrySet()) {
+            long c = Math.multiplyExact(sign, entry.getValue());
+            coefficients.merge(entry.getKey(), c, Math::addExact);
+        }
+    }
+
+    /**
+     * multiply this expression by a constant
+     * @param factor the constant
+     */
+    private void scale(long factor) {
+        constant = Math.multiplyExact(constant, factor);
+        coefficients.replaceAll((k, v) -> Math.multiplyExact(v, factor));
+    }
+
+    /**
+     * parse an expression
+     * @param expr the expression (no '$' and no array references)
+     * @return the parsed expression or null if the expression is not affine or cannot be parsed
+     */
+    static AffineExpression parse(String expr) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = Constants.AFFINE_TOKEN_RE.matcher(expr);
+        int pos = 0;
+        while(pos < expr.length()) {
+            if(!m.find(pos) || m.start() != pos) {
+                if(expr.substring(pos).trim().isEmpty()) {
+                    break;
+                }
+                Logger.debug("Not an affine expression (bad token): " + expr);
+                return null;
+            }
+            tokens.add(m.group(1));
+            pos = m.end();
+        }
+        try {
+            Parser p = new Parser(tokens);
+            AffineExpression result = p.parse_sum();
+            if(!Utils.not_null(result) || !p.done()) {
+                Logger.debug("Not an affine expression: " + expr);
+                return null;
+            }
+            return result;
+        } catch (ArithmeticException | NumberFormatException e) {
+            Logger.debug("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage() + " (" + expr + ")");
+            return null;
+        }
+    }
+
+    /**
+     * integer division with the same semantics as z3 (euclidean, remainder is never negative)
+     * @param a the dividend
+     * @param b the divisor (not zero)
+     * @return the quotient
+     */
+    private static long euclid_div(long a, long b) {
+        long q = Math.floorDiv(a, Math.abs(b));
+        return b > 0 ? q : Math.negateExact(q);
+    }
+
+    /**
+     * Recursive descent parser over the tokens of an expression, every method returns null on failure
+     */
+    private static class Parser {
+        /**
+         * the tokens
+         */
+        private final List<String> tokens;
+        /**
+         * current position in the token list
+         */
+        private int pos;
+
+        /**
+         * constructor for the parser
+         * @param tokens the tokens
+         */
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+            this.pos = 0;
+        }
+
+        /**
+         * check if all tokens were consumed
+         * @return true iff all tokens were consumed
+         */
+        boolean done() {
+            return pos == tokens.size();
+        }
+
+        /**
+         * peek at the current token
+         * @return the current token or the empty string
+         */
+        private String peek() {
+            return pos < tokens.size() ? tokens.get(pos) : Constants.EMPTY_STR;
+        }
+
+        /**
+         * sum := product (('+' | '-') product)*
+         * @return the parsed expression
+         */
+        AffineExpression parse_sum() {
+            AffineExpression left = parse_product();
+            while(Utils.not_null(left) && (Objects.equals(peek(), "+") || Objects.equals(peek(), "-"))) {
+                long sign = Objects.equals(tokens.get(pos++), "+") ? 1L : -1L;
+                AffineExpression right = parse_product();
+                if(!Utils.not_null(right)) {
+                    return null;
+                }
+                left.add(right, sign);
+            }
+            return left;
+        }
+
+        /**
+         * product := unary (('*' | '/' | '%') unary)*
+         * @return the parsed expression
+         */
+        private AffineExpression parse_product() {
+            AffineExpression left = parse_unary();
+            while(Utils.not_null(left) && (Objects.equals(peek(), "*") || Objects.equals(peek(), "/")
+                    || Objects.equals(peek(), "%"))) {
+                String op = tokens.get(pos++);
+                AffineExpression right = parse_unary();
+                if(!Utils.not_null(right)) {
+                    return null;
+                }
+                if(Objects.equals(op, "*")) {
+                    if(right.is_constant()) {
+                        left.scale(right.constant);
+                    } else if(left.is_constant()) {
+                        right.scale(left.constant);
+                        left = right;
+                    } else {
+                        return null;
+                    }
+                } else {
+                    if(!left.is_constant() || !right.is_constant() || right.constant == 0L) {
+                        return null;
+                    }
+                    long q = euclid_div(left.constant, right.constant);
+                    if(Objects.equals(op, "/")) {
+                        left = new AffineExpression(q);
+                    } else {
+                        left = new AffineExpression(Math.subtractExact(left.constant,
+                                Math.multiplyExact(q, right.constant)));
+                    }
+                }
+            }
+            return left;
+        }
+
+        /**
+         * unary := ('-' | '+') unary | primary
+         * @return the parsed expression
+         */
+        private AffineExpression parse_unary() {
+            if(Objects.equals(peek(), "-") || Objects.equals(peek(), "+")) {
+                boolean neg = Objects.equals(tokens.get(pos++), "-");
+                AffineExpression e = parse_unary();
+                if(Utils.not_null(e) && neg) {
+                    e.scale(-1L);
+                }
+                return e;
+            }
+            return parse_primary();
+        }
+
+        /**
+         * primary := number | variable | '(' sum ')'
+         * @return the parsed expression
+         */
+        private AffineExpression parse_primary() {
+            String tok = peek();
+            if(tok.isEmpty()) {
+                return null;
+            }
+            pos++;
+            if(Objects.equals(tok, "(")) {
+                AffineExpression e = parse_sum();
+                if(!Objects.equals(peek(), ")")) {
+                    return null;
+                }
+                pos++;
+                return e;
+            } else if(Character.isDigit(tok.charAt(0))) {
+                return new AffineExpression(Long.parseLong(tok));
+            } else if(Character.isLetter(tok.charAt(0)) || tok.charAt(0) == '_') {
+                return new AffineExpression(tok);
+            }
+            return null;
+        }
+    }
+}
@@ -8,12 +8,8 @@ import soot.*;
 import soot.jimple.AssignStmt;
 import soot.jimple.IfStmt;
 import soot.jimple.Stmt;
-import soot.jimple.toolkits.annotation.logic.Loop;
-import soot.jimple.toolkits.annotation.logic.LoopFinder;
 import soot.shimple.ShimpleBody;
 import soot.toolkits.graph.Block;
-import soot.toolkits.graph.BlockGraph;
-import soot.toolkits.graph.ExceptionalBlockGraph;
 import soot.toolkits.graph.ExceptionalUnitGraph;
 
 import java.util.*;
@@ -22,9 +18,10 @@ import java.util.stream.Collectors;
 import static guru.nidi.graphviz.model.Factory.*;
 
 /**
- * The "Main" class for the Analysis of Bodies
+ * The "Main" class for the Analysis of Bodies. An Analysis holds the state of one body, a new one is made for
+ * every body (see AnalysisDispatcher) so bodies can be analyzed at the same time.
  */
-public class Analysis extends BodyTransformer {
+public class Analysis {
 
 	// No loop carried dependencies for this! the arrays are only read only or write only.
 	// The only dependency that is carried is for the sum variable. Make a check, if an array
@@ -35,11 +32,12 @@ public class Analysis extends BodyTransformer {
 	/**
 	 * Map that represents the current array versions that a block presents to a successor block
 	 */
-	private Map<Block, DownwardExposedArrayRef> c_arr_ver; // current array version
+	final private Map<Block, DownwardExposedArrayRef> c_arr_ver; // current array version
 	/**
-	 * A worklist containing the block left to process
+	 * A worklist containing the block left to process, ordered by the block order of the CFG (reverse postorder)
+	 * so a block is only taken after the blocks before it on every forward path
 	 */
-	private LinkedList<Block> worklist;
+	final private TreeSet<Block> worklist;
 	/**
 	 * a list of blocks that have been seen
 	 */
@@ -50,40 +48,36 @@ public class Analysis extends BodyTransformer {
 	 * Then they are added back.
 	 */
 	final private Set<Block> loop_blocks;
-	/**
-	 * A Set containing pairs of loop heads and exits (this will be important for nested loops)
-	 */
-	final private Set<ImmutablePair<String, String>> loop_head_exits;
 	/**
 	 * A wrapper class that contains a Map for all array variables to  array version
 	 */
-	private ArrayVariables array_vars;
+	final private ArrayVariables array_vars;
 	/**
 	 * A list of variables that have been defined in the second iteration, this is needed so we do not
 	 * confuse mark a variable as having an intra-loop dependency when it was defined earlier in the
 	 * loop (it is contained in array_vars but has been defined)
 	 */
-	private Set<String> second_iter_def_vars;
+	final private Set<String> second_iter_def_vars;
 	/**
 	 * the container class that holds all non array phi variables
 	 */
-	private PhiVariableContainer phi_vars;
+	final private PhiVariableContainer phi_vars;
 	/**
 	 * A set of possible constants gathered from non-loop blocks
 	 */
-	private Map<String, Integer> constants;
+	final private Map<String, Integer> constants;
 	/**
 	 * A list of the _original_ phi variables that is queried on the second iteration
 	 */
-	private Set<String> top_phi_var_names;
+	final private Set<String> top_phi_var_names;
 	/**
 	 * The final DefUse Graph
 	 */
-	private ArrayDefUseGraph graph;
+	final private ArrayDefUseGraph graph;
 	/**
 	 * the final SCC graph
 	 */
-	private SCCGraph scc_graph;
+	final private SCCGraph scc_graph;
 	/**
 	 * Dot graphs (for printing)
 	 */
@@ -91,11 +85,11 @@ public class Analysis extends BodyTransformer {
 	/**
 	 * container for if statements (used in def/use graph)
 	 */
-	private IfStatementContainer if_stmts;
+	final private IfStatementContainer if_stmts;
 	/**
 	 * condition stack
 	 */
-	private Stack<IfStmt>cond_stk;
+	final private Stack<IfStmt>cond_stk;
 	/**
 	 * a list of all constructed array phis
 	 */
@@ -103,59 +97,95 @@ public class Analysis extends BodyTransformer {
 	/**
 	 * set of new array statements
 	 */
-	private Set<Stmt> new_array_stmts;
+	final private Set<Stmt> new_array_stmts;
 	/**
 	 * map to handle array USES being used in IFSTMTS (and therefore MUX stmts)
 	 */
-	private Map<String, ValueBox> array_reads_for_if_stmts;
-	/**
-	 * list of loops
-	 */
-	private Set<Loop> loops;
+	final private Map<String, ValueBox> array_reads_for_if_stmts;
 	/**
 	 * Construct to find shimple lines
 	 */
 	BodyLineFinder blf;
+	/**
+	 * the CFG of the current body (unit/block graphs, loops, block order), built once per body
+	 */
+	private BodyCFG cfg;
+	/**
+	 * visitor matching if statements with their branches (one per body)
+	 */
+	private IfStatementVisitor if_visitor;
+	/**
+	 * visitor tracking array variables (one per body, reset for every statement)
+	 */
+	private ArrayVariableVisitor av_visitor;
+	/**
+	 * visitor tracking index variables and constants (one per body, reset for every statement)
+	 */
+	private VariableVisitor var_visitor;
+	/**
+	 * visitor for the first iteration of the BFS algorithm (one per body, reset for every statement)
+	 */
+	private BFSVisitor bfs_visitor;
+	/**
+	 * visitor for the second iteration of the BFS algorithm (one per body)
+	 */
+	private IndexVisitor index_visitor;
+	/**
+	 * cache of solver results (d values)
+	 */
+	private final SolverCache solver_cache;
+	/**
+	 * the name of the body that is being analyzed (class and method, see AnalysisDispatcher.get_body_name)
+	 */
+	private final String body_name;
 
 	/**
 	 * Create an analysis object
-	 * @param class_name the class that is being analyzed
+	 * @param body_name the name of the body that is being analyzed
+	 * @param solver_cache the cache of solver results
 	 */
-	public Analysis(String class_name) {
-		flow_graph = mutGraph(class_name + "_flow").setDirected(true);
+	public Analysis(String body_name, SolverCache solver_cache) {
+		flow_graph = mutGraph(body_name + "_flow").setDirected(true);
 		seen_blocks = new HashSet<>();
 		c_arr_ver = new HashMap<>();
-		worklist = new LinkedList<>();
-		phi_vars = new PhiVariableContainer(class_name);
-		loop_head_exits = new HashSet<>();
+		worklist = new TreeSet<>(Comparator.comparingInt((Block b) -> cfg.get_order(b))
+				.thenComparingInt(Utils::get_block_num));
+		phi_vars = new PhiVariableContainer(body_name);
 		array_vars = new ArrayVariables();
-		graph = new ArrayDefUseGraph(class_name);
+		graph = new ArrayDefUseGraph(body_name);
 		loop_blocks = new HashSet<>();
 		constants = new HashMap<>();
 		top_phi_var_names = new HashSet<>();
 		second_iter_def_vars = new HashSet<>();
-		scc_graph = new SCCGraph(class_name);
+		scc_graph = new SCCGraph(body_name);
 		if_stmts = new IfStatementContainer();
 		cond_stk = new Stack<>();
 		array_phis = new ArrayList<>();
 		new_array_stmts = new HashSet<>();
 		array_reads_for_if_stmts = new HashMap<>();
-		loops = new HashSet<>();
+		this.solver_cache = solver_cache;
+		this.body_name = body_name;
 	}
 
 	/**
-	 * check is a given unit is the head of a loop
-	 * @param unit the unit
-	 * @return true iff the unit is the head of a loop
+	 * getter for the solver cache
+	 * @return the cache of solver results (d values)
 	 */
-	private boolean is_loop_head(Unit unit) {
-		Stmt stmt = (Stmt)unit;
-		for(ImmutablePair<String, String> el : loop_head_exits) {
-			if(Objects.equals(stmt.toString(), el.getKey())) {
-				return true;
-			}
-		}
-		return false;
+	SolverCache get_solver_cache() {
+		return solver_cache;
+	}
+
+	/**
+	 * create the statement visitors for the current body, they share (and change) the analysis state
+	 */
+	private void make_visitors() {
+		if_visitor = new IfStatementVisitor(cfg.get_unit_graph(), if_stmts, cond_stk);
+		av_visitor = new ArrayVariableVisitor(array_vars, graph, new_array_stmts, blf);
+		var_visitor = new VariableVisitor(phi_vars, top_phi_var_names, constants, new_array_stmts,
+				array_reads_for_if_stmts);
+		bfs_visitor = new BFSVisitor(c_arr_ver, graph, array_vars, phi_vars, constants, cond_stk, blf);
+		index_visitor = new IndexVisitor(phi_vars, second_iter_def_vars, top_phi_var_names, constants,
+				scc_graph, blf);
 	}
 
 	/**
@@ -185,92 +215,47 @@ public class Analysis extends BodyTransformer {
 	}
 
 	/**
-	 * get all exits that correspond to a given unit
-	 * @param unit the unit
-	 * @return a list of exits that correspond to the unit
-	 */
-	private List<String> get_exits(Unit unit) {
-		List<String> exits = new ArrayList<>();
-		Stmt stmt = (Stmt)unit;
-		for(ImmutablePair<String, String> el : loop_head_exits) {
-			if(Objects.equals(stmt.toString(), el.getKey())) {
-				exits.add(el.getValue());
-			}
-		}
-		return exits;
-	}
-
-	/**
-	 * Recursive block traversal function. This is the main parser for the _entire_ program.
+	 * Block parsing function. This is the main parser for the _entire_ program.
 	 * At this point we are _NOT_ in a loop
 	 * @param b the block we are currently parsing
-	 * @param body the whole program body
 	 */
 	@SuppressWarnings("ForLoopReplaceableByForEach")
-	private void parse_block(Block b, Body body) {
+	private void parse_block(Block b) {
 		Logger.debug(Utils.get_block_name(b) + " head: " + b.getHead().toString());
 		boolean is_merge = false;
 		if(b.getPreds().size() > 1) {
 			is_merge = true;
 		}
+		int block_num = Utils.get_block_num(b);
 		for(Iterator<Unit> i = b.iterator(); i.hasNext();) {
 			Unit u = i.next();
-			ArrayVariableVisitor visitor = new ArrayVariableVisitor(array_vars,
-					graph, Utils.get_block_num(b), new_array_stmts, blf);
-			u.apply(visitor);
-			new_array_stmts = visitor.get_new_array_stmts();
-			boolean is_array = visitor.get_is_array();
-			VariableVisitor var_visitor =
-					new VariableVisitor(phi_vars, top_phi_var_names, constants, is_array, false,
-							is_merge, new_array_stmts, array_reads_for_if_stmts);
+			av_visitor.reset(block_num, true);
+			u.apply(av_visitor);
+			var_visitor.reset(av_visitor.get_is_array(), false, is_merge);
 			u.apply(var_visitor);
-			array_reads_for_if_stmts = var_visitor.get_array_reads_for_if_stmts();
-			new_array_stmts = var_visitor.get_new_array_stmts();
-			array_vars = visitor.get_vars();
-			graph = visitor.get_graph();
-			phi_vars = var_visitor.get_phi_vars();
-			top_phi_var_names = var_visitor.get_top_phi_var_names();
-			constants = var_visitor.get_constants();
 		}
-		if(is_loop_head(b.getHead())) {
+		if(cfg.get_loop_index().is_head(b)) {
 			if(!seen_blocks.contains(b)) {
 				Logger.info("We found a loop head, starting BFS: " + b.getHead());
-				BFS(b, get_exits(b.getHead()), body);
+				BFS(b, cfg.get_loop_index().get_exits(b));
 			}
 		}
 		for(Block sb : b.getSuccs()) {
 			if(!seen_blocks.contains(sb)) {
 				add_flow_edge(b, sb, false, false);
-				seen_blocks.add(b);
-				parse_block(sb, body);
 			}
 		}
+		seen_blocks.add(b);
 	}
 
 	/**
-	 * the start function for parsing blocks
-	 * @param body the body being parsed
+	 * the start function for parsing blocks, every block is parsed once in reverse postorder.
+	 * Blocks in a loop are parsed by the BFS of the loop head and are skipped here.
 	 */
-	private void parse_blocks_start(Body body) {
-		BlockGraph bg = new ExceptionalBlockGraph(body);
-		List<Block> blocks = bg.getHeads();
-		for(Block b : blocks) {
-			parse_block(b, body);
-		}
-	}
-
-	/**
-	 * find all loop heads/exits current body
-	 */
-	private void find_loop_heads() {
-		for(Loop l : loops) {
-			String head_str = l.getHead().toString();
-			Collection<Stmt> exits = l.getLoopExits();
-			for(Stmt exit : exits) {
-				IfStmt real_exit = (IfStmt)exit;
-				String exit_str = real_exit.getTarget().toString();
-				Logger.debug("Head/Exit found => " + head_str + " ----> " + exit_str);
-				loop_head_exits.add(new ImmutablePair<>(head_str, exit_str));
+	private void parse_blocks_start() {
+		for(Block b : cfg.get_block_order()) {
+			if(!seen_blocks.contains(b)) {
+				parse_block(b);
 			}
 		}
 	}
@@ -309,8 +294,8 @@ public class Analysis extends BodyTransformer {
 	 * @param pred the Predecessor block
 	 * @param exits all exits for the loop
 	 */
-	private void handle_non_merge(Block b, Block pred, List<String> exits) {
-		if (!exits.contains(pred.getHead().toString())) {
+	private void handle_non_merge(Block b, Block pred, Set<Block> exits) {
+		if (!exits.contains(pred)) {
 			DownwardExposedArrayRef new_daf = new DownwardExposedArrayRef(b);
 			if (c_arr_ver.containsKey(pred)) {
 				for (Map.Entry<String, ArrayVersion> entry : array_vars.entry_set()) {
@@ -318,7 +303,7 @@ public class Analysis extends BodyTransformer {
 					if(c_arr_ver.containsKey(b) && c_arr_ver.get(b).contains_var(entry.getKey())) {
 						current_s = c_arr_ver.get(b).get(entry.getKey());
 					} else {
-						current_s = Utils.copy_av(c_arr_ver.get(pred).get(entry.getKey()));
+						current_s = c_arr_ver.get(pred).get(entry.getKey());
 					}
 					new_daf.put(entry.getKey(), current_s);
 				}
@@ -336,7 +321,7 @@ public class Analysis extends BodyTransformer {
 	 * @param b the Block
 	 * @param exits all exits for the loop
 	 */
-	private void handle_merge(Block b, List<String> exits) {
+	private void handle_merge(Block b, Set<Block> exits) {
 		List<Block> pred_blocks = b.getPreds();
 		if(array_vars.entry_set().isEmpty()) {
 			List<DownwardExposedArrayRef> dafs = new ArrayList<>();
@@ -348,16 +333,14 @@ public class Analysis extends BodyTransformer {
 			if(test) {
 				c_arr_ver.put(b, new DownwardExposedArrayRef(b));
 			} else {
-				Logger.error("There should be an array version in one of the pred blocks!");
-				System.exit(0);
+				throw new IllegalStateException("There should be an array version in one of the pred blocks!");
 			}
 		} else {
 			for (Map.Entry<String, ArrayVersion> entry : array_vars.entry_set()) {
 				if (Utils.all_not_null(pred_blocks)) {
 					List<ArrayVersion> avs = new ArrayList<>();
 					for (Block blk : pred_blocks) {
-						DownwardExposedArrayRef daf = new DownwardExposedArrayRef(c_arr_ver.get(blk));
-						ArrayVersion new_av = Utils.copy_av(daf.get(entry.getKey()));
+						ArrayVersion new_av = c_arr_ver.get(blk).get(entry.getKey());
 						if (!avs.stream().map(el -> el.get_version() == new_av.get_version()).reduce(false, Boolean::logicalOr)) {
 							avs.add(new_av);
 						}
@@ -412,7 +395,7 @@ public class Analysis extends BodyTransformer {
 	 * @param exits all exits from the loop
 	 * @param second_iter true iff we are parsing the loop for the second time.
 	 */
-	private void process(Block b, Block head, List<String> exits, boolean second_iter) {
+	private void process(Block b, Block head, Set<Block> exits, boolean second_iter) {
 		List<Block> pred_blocks = b.getPreds();
 		if(second_iter) {
 			if (seen_blocks.contains(b)) {
@@ -420,11 +403,7 @@ public class Analysis extends BodyTransformer {
 				return;
 			}
 			for (Unit u : b) {
-				IndexVisitor iv = new IndexVisitor(phi_vars, second_iter_def_vars,
-						top_phi_var_names, constants, scc_graph, blf);
-				u.apply(iv);
-				second_iter_def_vars = iv.get_second_iter_def_vars();
-				scc_graph = iv.get_graph();
+				u.apply(index_visitor);
 			}
 			seen_blocks.add(b);
 			worklist.addAll(b.getSuccs());
@@ -440,9 +419,16 @@ public class Analysis extends BodyTransformer {
 					is_merge = true;
 					handle_merge(b, exits);
 				} else {
-					Logger.info("Both preds should already be in c_arr_ver!");
-					Logger.info("Skipping and adding this block to the back of worklist.");
-					worklist.addLast(b);
+					// the worklist is in reverse postorder, so every forward pred was already taken. The
+					// missing pred should only be reachable through this block (a back edge).
+					Logger.warn("Both preds should already be in c_arr_ver!");
+					for (Block pred : pred_blocks) {
+						if (!c_arr_ver.containsKey(pred) && !cfg.is_back_edge(pred, b)) {
+							Logger.error("Pred is not a back edge and was never reached: "
+									+ pred.getHead().toString());
+						}
+					}
+					Logger.warn("Skipping merge: " + b.getHead().toString());
 					return;
 				}
 //				handle_merge(b, exits);
@@ -451,44 +437,26 @@ public class Analysis extends BodyTransformer {
 				handle_non_merge(b, pred_blocks.get(0), exits);
 			}
 			// process stmts
+			int block_num = Utils.get_block_num(b);
 			for (Unit u : b) {
-				ArrayVariableVisitor av_visitor = new ArrayVariableVisitor(array_vars,
-						graph, Utils.get_block_num(b), new_array_stmts, blf);
+				// the def/use graph is only built by the BFS visitor here
+				av_visitor.reset(block_num, false);
 				u.apply(av_visitor);
-				array_vars = av_visitor.get_vars();
-				new_array_stmts = av_visitor.get_new_array_stmts();
-				BFSVisitor bfs_visitor = new BFSVisitor(c_arr_ver, b, graph,
-						array_vars, phi_vars, constants, Utils.get_block_num(b), cond_stk, blf);
+				bfs_visitor.reset(b);
 				u.apply(bfs_visitor);
-				cond_stk = bfs_visitor.get_cond_stk();
-				array_vars = bfs_visitor.get_vars();
-				c_arr_ver = bfs_visitor.get_c_arr_ver();
-				graph = bfs_visitor.get_graph();
-				boolean is_array = av_visitor.get_is_array();
-				VariableVisitor var_visitor =
-						new VariableVisitor(phi_vars, top_phi_var_names, constants, is_array, true,
-								is_merge, new_array_stmts, array_reads_for_if_stmts);
+				var_visitor.reset(av_visitor.get_is_array(), true, is_merge);
 				u.apply(var_visitor);
-				array_reads_for_if_stmts = var_visitor.get_array_reads_for_if_stmts();
-				new_array_stmts = var_visitor.get_new_array_stmts();
-				phi_vars = var_visitor.get_phi_vars();
-				top_phi_var_names = var_visitor.get_top_phi_var_names();
-				constants = var_visitor.get_constants();
 			}
 			List<Block> succ_blocks = b.getSuccs();
 			Logger.debug("We found " + succ_blocks.size() + " successor blocks.");
-			if (loop_head_exits.contains(new ImmutablePair<>(head.toString(), b.toString()))) {
-				Logger.info("We found an exit, stopping.");
-			} else {
-				for (Block s1 : succ_blocks) {
-					if (!seen_blocks.contains(s1)) {
-						add_flow_edge(b, s1, false, false);
-						worklist.addLast(s1);
-					} else if (Objects.equals(Utils.get_block_name(s1), Utils.get_block_name(head))) {
-						Logger.info("We found the head!");
-						add_flow_edge(b, head, true, false);
-						// TODO: should I clear the worklist?
-					}
+			for (Block s1 : succ_blocks) {
+				if (!seen_blocks.contains(s1)) {
+					add_flow_edge(b, s1, false, false);
+					worklist.add(s1);
+				} else if (Utils.get_block_num(s1) == Utils.get_block_num(head)) {
+					Logger.info("We found the head!");
+					add_flow_edge(b, head, true, false);
+					// TODO: should I clear the worklist?
 				}
 			}
 			seen_blocks.add(b);
@@ -503,7 +471,7 @@ public class Analysis extends BodyTransformer {
 	private void init_BFS_vars(Block b) {
 		DownwardExposedArrayRef down_ar = new DownwardExposedArrayRef(b);
 		for (Map.Entry<String, ArrayVersion> entry : array_vars.entry_set()) {
-			down_ar.put(entry.getKey(), Utils.copy_av(entry.getValue()));
+			down_ar.put(entry.getKey(), entry.getValue());
 		}
 		c_arr_ver.put(b, down_ar);
 	}
@@ -515,15 +483,13 @@ public class Analysis extends BodyTransformer {
 	 * @param second_iter true iff we are parsing the loop for the second time.
 	 */
 	private void init_worklist(Block head, boolean second_iter) {
+		Set<Block> exits = cfg.get_loop_index().get_exits(head);
 		for(Block b : head.getSuccs()) {
-			String head_str = head.getHead().toString();
-			String exit_str = b.getHead().toString();
-			ImmutablePair<String, String> head_exit = new ImmutablePair<>(head_str, exit_str);
-			if(loop_head_exits.contains(head_exit)) {
+			if(exits.contains(b)) {
 				Logger.debug("Found an exit, skipping.");
 			} else {
 				add_flow_edge(head, b, false, second_iter);
-				worklist.addFirst(b);
+				worklist.add(b);
 			}
 		}
 
@@ -532,14 +498,10 @@ public class Analysis extends BodyTransformer {
 	/**
 	 * parse the head for if statements to put on the condition stack
 	 * @param head the head block
-	 * @param b the whole program body
 	 */
-	void parse_head(Block head, Body b) {
+	void parse_head(Block head) {
 		for(Unit u : head) {
-			ExceptionalUnitGraph g = new ExceptionalUnitGraph(b);
-			IfStatementVisitor if_v = new IfStatementVisitor(g, if_stmts, cond_stk);
-			u.apply(if_v);
-			cond_stk = if_v.get_cond_stk();
+			u.apply(if_visitor);
 		}
 		seen_blocks.add(head);
 		loop_blocks.add(head);
@@ -551,12 +513,14 @@ public class Analysis extends BodyTransformer {
 	 * @param exits all exits for the current loop
 	 * @param second_iter true iff we are parsing the loop for the second time.
 	 */
-	private void parse_iteration(Block head, List<String> exits, boolean second_iter) {
+	private void parse_iteration(Block head, Set<Block> exits, boolean second_iter) {
 		init_worklist(head, second_iter);
 		// first iter
 		while(!worklist.isEmpty()) {
-			Block b = worklist.remove();
+			Block b = worklist.pollFirst();
+			JfrEvents.ProcessBlock event = JfrEvents.start_block();
 			process(b, head, exits, second_iter);
+			event.finish(body_name, b, head, second_iter);
 		}
 		Logger.info("Finished " + second_iter);
 	}
@@ -566,23 +530,26 @@ public class Analysis extends BodyTransformer {
 	 *  Perform the BFS algorithm on a loop
 	 * @param head the Head of the loop
 	 * @param exits all exits the current loops
-	 * @param b the body of the program
 	 */
-	private void BFS(Block head, List<String> exits, Body b) {
+	private void BFS(Block head, Set<Block> exits) {
 		Logger.info("seen_blocks size 0: " + seen_blocks.size());
-		parse_head(head, b);
+		parse_head(head);
 		init_BFS_vars(head);
 		// Assuming we only have one head...
+		long start = Metrics.start();
 		parse_iteration(head, exits, false);
+		Metrics.stop(Constants.METRIC_BFS_FIRST_ITER, start);
 		// second iter
 		Logger.info("Entering second iteration!");
 		// Empty worklist
-		worklist = new LinkedList<>();
+		worklist.clear();
 		worklist.add(head);
 		Logger.info("seen_blocks size 1: " + seen_blocks.size());
 		seen_blocks.removeAll(loop_blocks);
 		Logger.info("seen_blocks size 2: " + seen_blocks.size());
+		start = Metrics.start();
 		parse_iteration(head, exits, true);
+		Metrics.stop(Constants.METRIC_BFS_SECOND_ITER, start);
 		seen_blocks.addAll(loop_blocks);
 //		for(ImmutablePair<String, ArrayVersionPhi> entry : array_phis) {
 //			Logger.debug("Need to make a new phi node!");
@@ -606,62 +573,118 @@ public class Analysis extends BodyTransformer {
 //			Logger.debug("New phi: " + Utils.create_phi_stmt(entry.getLeft(), av_phi));
 //		}
 	}
-	// TODO: add javadoc to these class vars
-	private MutableGraph g1;
-	private List<Unit> seen;
 	/**
-	 * recursive helper for cfg graph creation
-	 * @param g the graph
-	 * @param c the current node
+	 * visit a unit for the cfg graph: parse it for if statements
+	 * @param c the unit
+	 * @return the graphviz node of the unit
 	 */
-	void make_cfg_graph_helper(ExceptionalUnitGraph g, Unit c) {
+	private guru.nidi.graphviz.model.Node visit_cfg_unit(Unit c) {
 		guru.nidi.graphviz.model.Node c_node = node(c.toString());
-		IfStatementVisitor if_v = new IfStatementVisitor(g, if_stmts, cond_stk);
-		c.apply(if_v);
-		if_stmts = if_v.get_if_stmts();
-		seen.add(c);
-		for(Unit u : g.getSuccsOf(c)) {
-			guru.nidi.graphviz.model.Node u_node = node(u.toString());
-			g1.add(c_node.link(to(u_node).with(Style.ROUNDED, LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT))));
-			if(!seen.contains(u)) {
-				make_cfg_graph_helper(g, u);
+		c.apply(if_visitor);
+		return c_node;
+	}
+
+	/**
+	 * make a graph of the cfg. The units are visited depth first (in the order of their successors) with an
+	 * explicit stack, so long bodies can not overflow the thread stack.
+	 */
+	void make_cfg_graph() {
+		ExceptionalUnitGraph g = cfg.get_unit_graph();
+		MutableGraph g1 = mutGraph("test").setDirected(true);
+		Set<Unit> seen = new HashSet<>();
+		Deque<ImmutablePair<guru.nidi.graphviz.model.Node, Iterator<Unit>>> stack = new ArrayDeque<>();
+		for(Unit h : g.getHeads()) {
+			seen.add(h);
+			stack.push(new ImmutablePair<>(visit_cfg_unit(h), g.getSuccsOf(h).iterator()));
+			while(!stack.isEmpty()) {
+				Iterator<Unit> succs = stack.peek().getRight();
+				if(succs.hasNext()) {
+					Unit u = succs.next();
+					guru.nidi.graphviz.model.Node u_node = node(u.toString());
+					g1.add(stack.peek().getLeft().link(to(u_node).with(Style.ROUNDED,
+							LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT))));
+					if(seen.add(u)) {
+						stack.push(new ImmutablePair<>(visit_cfg_unit(u), g.getSuccsOf(u).iterator()));
+					}
+				} else {
+					stack.pop();
+				}
 			}
 		}
+		Utils.print_graph(g1, "ff");
 	}
 
 	/**
-	 * make a graph of the cfg
-	 * @param b the body in question
+	 * getter for the phi variables
+	 * @return the container holding the non array phi variables of the body
 	 */
-	void make_cfg_graph(Body b) {
-		ExceptionalUnitGraph g = new ExceptionalUnitGraph(b);
-		g1 = mutGraph("test").setDirected(true);
-		seen = new ArrayList<>();
-		for(Unit u : g.getHeads()) {
-			make_cfg_graph_helper(g, u);
-		}
-		Utils.print_graph(g1, "ff");
+	PhiVariableContainer get_phi_vars() {
+		return phi_vars;
+	}
+
+	/**
+	 * getter for the constants
+	 * @return the constants found in the body
+	 */
+	Map<String, Integer> get_constants() {
+		return constants;
+	}
+
+	/**
+	 * getter for the SCC graph
+	 * @return the SCC graph of the body
+	 */
+	SCCGraph get_scc_graph() {
+		return scc_graph;
+	}
+
+	/**
+	 * getter for the CFG
+	 * @return the CFG of the body (null before run())
+	 */
+	BodyCFG get_cfg() {
+		return cfg;
+	}
+
+	/**
+	 * getter for the line finder
+	 * @return the line finder of the body (null before run())
+	 */
+	BodyLineFinder get_line_finder() {
+		return blf;
 	}
 
 	/**
-	 * Overridden Soot method that parsed Code Bodies
+	 * getter for the def/use graph
+	 * @return the def/use graph of the body
+	 */
+	ArrayDefUseGraph get_def_use_graph() {
+		return graph;
+	}
+
+	/**
+	 * get the SCC edges (the dependence report of the body)
+	 * @return the SCC edges
+	 */
+	Set<SCCEdge> get_scc_edges() {
+		return scc_graph.get_edges();
+	}
+
+	/**
+	 * analyze a code body (an Analysis object is only used for one body)
 	 * @param body the Current Code body
-	 * @param phaseName the name of the Current Phase
-	 * @param options The soot options
 	 */
-	@Override
-	protected void internalTransform(Body body, String phaseName, Map<String, String> options) {
+	void run(Body body) {
 		blf = new BodyLineFinder(body);
-		make_cfg_graph(body);
-		LoopFinder lf = new LoopFinder();
-		loops = lf.getLoops(body);
+		// the blocks, the loops and their heads
+		long start = Metrics.start();
+		cfg = new BodyCFG(body);
+		Metrics.stop(Constants.METRIC_FIND_LOOP_HEADS, start);
+		make_visitors();
+		make_cfg_graph();
 		if(!Constants.JUST_COMPILE) {
 			assert body instanceof ShimpleBody : "Has to be a shimple body.";
-			for (Map.Entry<String, String> e : options.entrySet()) {
-				Logger.debug(e.getKey() + " ----> " + e.getValue());
-			}
-			find_loop_heads();
-			parse_blocks_start(body);
+			parse_blocks_start();
 			Logger.info("Node count: " + graph.get_nodes().size());
 			for (Map.Entry<String, Node> entry : graph.get_nodes().entrySet()) {
 				Logger.info(entry.getKey() + " -> " + entry.getValue().get_aug_stmt_str());
@@ -686,8 +709,13 @@ public class Analysis extends BodyTransformer {
 				}
 			}
 			Utils.print_graph(flow_graph, Constants.EMPTY_FLOW_GRAPH);
+			start = Metrics.start();
 			graph.make_graph(phi_vars, constants);
-			scc_graph.make_scc_graph(phi_vars, constants, graph, if_stmts, array_vars);
+			Metrics.stop(Constants.METRIC_MAKE_GRAPH, start);
+			start = Metrics.start();
+			scc_graph.make_scc_graph(phi_vars, constants, graph, if_stmts, array_vars, solver_cache);
+			Metrics.stop(Constants.METRIC_MAKE_SCC_GRAPH, start);
+			solver_cache.log_stats(body_name);
 
 			Set<SCCEdge> edges = scc_graph.get_edges();
 			Logger.debug("Edge count: " + edges.size());
@@ -700,6 +728,11 @@ public class Analysis extends BodyTransformer {
 			array_vars.make_array_var_graph(graph);
 			phi_vars.make_non_index_graphs();
 			graph.print_def_node_dep_chains(phi_vars, constants);
+			Metrics.count(Constants.METRIC_DEF_USE_NODES, graph.get_nodes().size());
+			Metrics.count(Constants.METRIC_DEF_USE_EDGES, graph.get_edges().size());
+			Metrics.count(Constants.METRIC_SCC_NODES, scc_graph.get_nodes().size());
+			Metrics.count(Constants.METRIC_SCC_EDGES, edges.size());
+			Metrics.count(Constants.METRIC_PHI_VARIABLES, phi_vars.get_phi_vars().size());
 
 		}
 	}
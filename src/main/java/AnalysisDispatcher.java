@@ -0,0 +1,298 @@
+import org.tinylog.Logger;
+import soot.Body;
+import soot.BodyTransformer;
+import soot.SootClass;
+import soot.SootMethod;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The transformer registered with Soot. Every body gets its own Analysis so bodies do not share any state and
+ * can be analyzed at the same time: either on the thread Soot hands the body to (Soot runs the bodies of
+ * different classes on different threads) or, with more than one analysis thread, on the dispatcher's own pool.
+ * The pool may only be used by a caller that keeps the bodies unchanged until finish() returns (the server): Soot
+ * itself goes on transforming a body, and frees it, as soon as internalTransform() returns.
+ * Bodies whose result is in the result store (same bytecode, callees and options) are not analyzed again, unless
+ * graphs are written: a stored result has no graphs, so the store is not used at all then.
+ * It also keeps the result of every body and the per-class timings for the summary, and appends every result to
+ * the report as soon as the body is done.
+ */
+public class AnalysisDispatcher extends BodyTransformer {
+    /**
+     * the classes that are being analyzed
+     */
+    private final List<String> classes;
+    /**
+     * the cache of solver results (shared by all bodies)
+     */
+    private final SolverCache solver_cache;
+    /**
+     * the results of earlier runs
+     */
+    private final ResultStore result_store;
+    /**
+     * hashes bodies for the result store (null if the store is not used)
+     */
+    private final MethodHasher hasher;
+    /**
+     * the report every result is written to (null for none)
+     */
+    private final ReportWriter report;
+    /**
+     * the directory holding one output directory per class (null if the results go to the working directory)
+     */
+    private final String out_dir;
+    /**
+     * the pool bodies are analyzed on (null if they are analyzed on the thread Soot gives them to)
+     */
+    private final ExecutorService pool;
+    /**
+     * the analyses submitted to the pool that might not be done yet
+     */
+    private final List<Future<?>> pending;
+    /**
+     * the result of every body (by body name)
+     */
+    private final Map<String, MethodResult> reports;
+    /**
+     * the time spent analyzing each class (in nanoseconds)
+     */
+    private final Map<String, Long> times;
+    /**
+     * the number of bodies analyzed for each class
+     */
+    private final Map<String, Integer> body_counts;
+    /**
+     * the classes that threw an exception
+     */
+    private final Set<String> failed;
+
+    /**
+     * constructor for the dispatcher
+     * @param classes the classes that are being analyzed
+     * @param solver_cache the cache of solver results
+     * @param result_store the results of earlier runs
+     * @param hasher hashes bodies for the result store (null to analyze every body)
+     * @param report the report every result is written to (null for none)
+     * @param out_dir the directory holding one output directory per class (null to use the working directory)
+     * @param threads the number of threads used to analyze bodies (1 analyzes them on the calling thread, more than 1
+     *                is only allowed if the caller keeps the bodies until finish())
+     */
+    AnalysisDispatcher(List<String> classes, SolverCache solver_cache, ResultStore result_store, MethodHasher hasher,
+                       ReportWriter report, String out_dir, int threads) {
+        this.classes = new ArrayList<>(classes);
+        this.solver_cache = solver_cache;
+        this.result_store = result_store;
+        this.hasher = hasher;
+        this.report = report;
+        this.out_dir = out_dir;
+        this.pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        this.pending = new ArrayList<>();
+        this.reports = new TreeMap<>();
+        this.times = new LinkedHashMap<>();
+        this.body_counts = new HashMap<>();
+        this.failed = new HashSet<>();
+        for(String c : classes) {
+            times.put(c, 0L);
+            body_counts.put(c, 0);
+        }
+    }
+
+    /**
+     * get the output directory of a class
+     * @param out_dir the directory holding one output directory per class
+     * @param class_name the class
+     * @return the output directory of the class
+     */
+    static String get_class_dir(String out_dir, String class_name) {
+        return out_dir + File.separator + class_name;
+    }
+
+    /**
+     * get the name of a body, used to name its graphs and z3 files: the class and the method name
+     * (and the position of the method in its class if the name is overloaded)
+     * @param m the method of the body
+     * @return the body name
+     */
+    static String get_body_name(SootMethod m) {
+        SootClass sc = m.getDeclaringClass();
+        String name = sc.getName() + Constants.UNDERSCORE + m.getName().replace("<", "").replace(">", "");
+        int overloads = 0;
+        for(SootMethod other : sc.getMethods()) {
+            if(other.getName().equals(m.getName())) {
+                overloads++;
+            }
+        }
+        return overloads > 1 ? name + Constants.UNDERSCORE + sc.getMethods().indexOf(m) : name;
+    }
+
+    /**
+     * get the class a body is analyzed with: its declaring class if that is one of the analyzed classes, the
+     * outermost class of an inner or anonymous class (Foo for Foo$1 or Foo$Bar) if that one is, otherwise the first
+     * analyzed class
+     * @param body the body
+     * @return the class name
+     */
+    private String get_class_name(Body body) {
+        String name = body.getMethod().getDeclaringClass().getName();
+        if(classes.contains(name) || classes.isEmpty()) {
+            return name;
+        }
+        int nested = name.indexOf('$');
+        if(nested > 0 && classes.contains(name.substring(0, nested))) {
+            return name.substring(0, nested);
+        }
+        return classes.get(0);
+    }
+
+    /**
+     * hand a body to a new Analysis, on this thread or on the pool
+     * @param body the body
+     * @param phaseName the name of the current phase
+     * @param options the soot options
+     */
+    @Override
+    protected void internalTransform(Body body, String phaseName, Map<String, String> options) {
+        String class_name = get_class_name(body);
+        String body_name = get_body_name(body.getMethod());
+        if(!Utils.not_null(pool)) {
+            analyze(body, class_name, body_name);
+        } else {
+            synchronized (pending) {
+                pending.add(pool.submit(() -> analyze(body, class_name, body_name)));
+            }
+        }
+    }
+
+    /**
+     * analyze a body with its own Analysis (or take its result from the result store)
+     * @param body the body
+     * @param class_name the class the body is analyzed with
+     * @param body_name the name of the body
+     */
+    private void analyze(Body body, String class_name, String body_name) {
+        if(Utils.not_null(out_dir)) {
+            Settings.set_output_dir(get_class_dir(out_dir, class_name));
+        }
+        Metrics.set_scope(class_name);
+        Metrics.count(Constants.METRIC_BODIES, 1);
+        long start = System.nanoTime();
+        try {
+            // a stored body would leave no graphs behind
+            String key = Utils.not_null(hasher) && Settings.get_render_mode() == RenderMode.OFF
+                    ? hasher.get_key(body.getMethod()) : null;
+            MethodResult result = result_store.get(key);
+            boolean stored = Utils.not_null(result);
+            if(stored) {
+                Logger.info("Unchanged, using the stored result: " + body_name);
+                Metrics.count(Constants.METRIC_STORED_BODIES, 1);
+            } else {
+                Analysis analysis = new Analysis(body_name, solver_cache);
+                analysis.run(body);
+                result = MethodResult.of(body_name, analysis);
+                result_store.put(key, result);
+            }
+            synchronized (this) {
+                reports.put(body_name, result);
+            }
+            if(Utils.not_null(report)) {
+                report.write(class_name, result, stored);
+            }
+        } catch (RuntimeException e) {
+            // a batch keeps going, a single class fails like before
+            if(!Utils.not_null(out_dir)) {
+                throw e;
+            }
+            synchronized (this) {
+                failed.add(class_name);
+            }
+            Logger.error("Caught " + e.getClass().getSimpleName() + " in " + body_name + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        } finally {
+            Metrics.stop(Constants.METRIC_ANALYSIS, start);
+            synchronized (this) {
+                times.merge(class_name, System.nanoTime() - start, Long::sum);
+                body_counts.merge(class_name, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * wait for the bodies given to the pool and stop it (nothing to do without a pool)
+     */
+    void finish() {
+        if(!Utils.not_null(pool)) {
+            return;
+        }
+        List<Future<?>> futures;
+        synchronized (pending) {
+            futures = new ArrayList<>(pending);
+            pending.clear();
+        }
+        try {
+            for(Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * get the result of every analyzed body
+     * @return the result of every body (by body name)
+     */
+    synchronized Map<String, MethodResult> get_reports() {
+        return new TreeMap<>(reports);
+    }
+
+    /**
+     * check if a class failed
+     * @param class_name the class
+     * @return true iff analyzing one of the bodies of the class threw an exception
+     */
+    synchronized boolean has_failed(String class_name) {
+        return failed.contains(class_name);
+    }
+
+    /**
+     * log the time spent on each class and the number of dependences found in each body
+     */
+    synchronized void log_summary() {
+        long total = 0;
+        Logger.info(String.format("Analyzed %d class(es):", times.size()));
+        for(Map.Entry<String, Long> entry : times.entrySet()) {
+            String status = failed.contains(entry.getKey()) ? "FAILED" : "ok";
+            Logger.info(String.format("\t%-24s %4d bodies %10.3f sec  %s", entry.getKey(),
+                    body_counts.getOrDefault(entry.getKey(), 0), entry.getValue() * 1e-9, status));
+            total += entry.getValue();
+        }
+        for(Map.Entry<String, MethodResult> entry : reports.entrySet()) {
+            if(!entry.getValue().get_dependences().isEmpty()) {
+                Logger.info(String.format("\t%-40s %4d dependence(s)", entry.getKey(),
+                        entry.getValue().get_dependences().size()));
+            }
+        }
+        if(result_store.get_hits() > 0) {
+            Logger.info(String.format("%d unchanged bod(ies) taken from the result store", result_store.get_hits()));
+        }
+        Logger.info(String.format("Total analysis time: %.3f sec", total * 1e-9));
+    }
+}
@@ -0,0 +1,338 @@
+import org.tinylog.Logger;
+import soot.Body;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.options.Options;
+import soot.shimple.Shimple;
+import soot.shimple.ShimpleBody;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Resident analysis server. Soot and the JDK classes are set up once and stay loaded, each request
+ * only pays for loading and analyzing its own class.
+ * The server listens on the loopback interface and speaks a line protocol, a request is one line:
+ * <pre>
+ *     ANALYZE class=&lt;name&gt; [cp=&lt;class path&gt;] [graphs=&lt;OFF|DOT|PNG|SVG&gt;] [out=&lt;dir&gt;]
+ *     PING
+ *     SHUTDOWN
+ * </pre>
+ * every response ends with a line holding only END. An ANALYZE response has a METHOD line for every body
+ * followed by one EDGE line per dependence (the same format as the log), an ERROR line if the analysis failed
+ * and a TIME line. The results of a class go to &lt;base&gt;/&lt;out&gt;/&lt;class&gt;, where the base directory is
+ * fixed when the server starts and out (a directory inside it, the base itself by default) may not leave it.
+ * The class must be a Java binary name, both are checked before anything is written. A connection is closed on
+ * the first line that is not a known command or has malformed arguments (e.g. a browser request).
+ * Requests are handled one at a time.
+ */
+class AnalysisServer {
+    /**
+     * the port to listen on
+     */
+    private final int port;
+    /**
+     * path to rt.jar
+     */
+    private final String rtpath;
+    /**
+     * path to jce.jar
+     */
+    private final String jcepath;
+    /**
+     * the cache of solver results (kept for the lifetime of the server)
+     */
+    private final SolverCache solver_cache;
+    /**
+     * the results of earlier requests and runs (null to analyze every body)
+     */
+    private final ResultStore result_store;
+    /**
+     * the directory every result of the server goes to
+     */
+    private final File base_dir;
+    /**
+     * the class path entries Soot has been given so far
+     */
+    private final Set<String> class_paths;
+    /**
+     * false once a SHUTDOWN request was received
+     */
+    private boolean running;
+
+    /**
+     * constructor for the server
+     * @param port the port to listen on
+     * @param rtpath path to rt.jar
+     * @param jcepath path to jce.jar
+     * @param solver_cache the cache of solver results
+     * @param result_store the results of earlier runs (null to analyze every body)
+     * @param base_dir the directory every result of the server goes to
+     * @throws IOException if the base directory can not be created
+     */
+    AnalysisServer(int port, String rtpath, String jcepath, SolverCache solver_cache, ResultStore result_store,
+                   String base_dir) throws IOException {
+        File base = new File(base_dir);
+        if(!base.isDirectory() && !base.mkdirs()) {
+            throw new IOException(base_dir + " could not be created.");
+        }
+        this.base_dir = base.getCanonicalFile();
+        this.port = port;
+        this.rtpath = rtpath;
+        this.jcepath = jcepath;
+        this.solver_cache = solver_cache;
+        this.result_store = result_store;
+        this.class_paths = new LinkedHashSet<>();
+        this.running = true;
+    }
+
+    /**
+     * set up Soot once: the JDK classes are on the class path and the basic classes are loaded
+     */
+    private void init_soot() {
+        long start = System.currentTimeMillis();
+        long scene_start = Metrics.start();
+        Options.v().set_keep_line_number(true);
+        Options.v().set_allow_phantom_refs(true);
+        Options.v().set_whole_shimple(true);
+        Scene.v().setSootClassPath(rtpath + File.pathSeparator + jcepath);
+        Scene.v().loadBasicClasses();
+        Metrics.stop(Constants.METRIC_SCENE_LOAD, scene_start);
+        Logger.info(String.format("Soot ready in %.2f sec", (System.currentTimeMillis() - start) / 1000.0));
+    }
+
+    /**
+     * add a class path entry to the Soot class path (if it is new)
+     * @param cp the class path entry
+     */
+    private void add_class_path(String cp) {
+        if(class_paths.add(cp)) {
+            List<String> entries = new ArrayList<>(class_paths);
+            entries.add(rtpath);
+            entries.add(jcepath);
+            Scene.v().setSootClassPath(String.join(File.pathSeparator, entries));
+            Logger.debug(String.format("CLASSPATH: %s", Scene.v().getSootClassPath()));
+        }
+    }
+
+    /**
+     * load a class from its class file. A class that was loaded by an earlier request is dropped first
+     * so a recompiled class is picked up.
+     * @param class_name the class
+     * @return the loaded class
+     */
+    private SootClass load_class(String class_name) {
+        if(Scene.v().containsClass(class_name)) {
+            Scene.v().removeClass(Scene.v().getSootClass(class_name));
+        }
+        SootClass sc = Scene.v().forceResolve(class_name, SootClass.BODIES);
+        if(sc.isPhantom()) {
+            Scene.v().removeClass(sc);
+            throw new IllegalArgumentException("Class not found: " + class_name);
+        }
+        sc.setApplicationClass();
+        return sc;
+    }
+
+    /**
+     * check the class of an ANALYZE request before anything is read or written
+     * @param args the request arguments
+     * @throws IllegalArgumentException if there is no class or it is not a Java binary name
+     */
+    private static void check_class(Map<String, String> args) {
+        String class_name = args.get("class");
+        if(!Utils.not_null(class_name) || !class_name.matches(Constants.CLASS_NAME_REGEX)) {
+            throw new IllegalArgumentException("Not a class name: " + class_name);
+        }
+    }
+
+    /**
+     * get the directory the results of a request go to
+     * @param out the directory asked for, inside the base directory (null for the base directory itself)
+     * @return the canonical directory
+     * @throws IllegalArgumentException if the directory is not inside the base directory
+     */
+    private File get_out_dir(String out) {
+        if(!Utils.not_null(out)) {
+            return base_dir;
+        }
+        try {
+            File dir = new File(base_dir, out).getCanonicalFile();
+            if(!dir.equals(base_dir) && !dir.getPath().startsWith(base_dir.getPath() + File.separator)) {
+                throw new IllegalArgumentException("Output directory outside of " + base_dir + ": " + out);
+            }
+            return dir;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid output directory: " + out);
+        }
+    }
+
+    /**
+     * parse the key=value arguments of a request
+     * @param tokens the request tokens (the first one is the command)
+     * @return the arguments
+     */
+    private static Map<String, String> parse_args(String[] tokens) {
+        Map<String, String> args = new HashMap<>();
+        for(int i = 1; i < tokens.length; i++) {
+            String[] kv = tokens[i].split("=", 2);
+            if(kv.length != 2) {
+                throw new IllegalArgumentException("Malformed argument: " + tokens[i]);
+            }
+            args.put(kv[0], kv[1]);
+        }
+        return args;
+    }
+
+    /**
+     * analyze one class and write the dependence report (the bodies of the class are analyzed on
+     * Settings.get_analysis_threads() threads)
+     * @param args the request arguments (checked by check_args())
+     * @param out_file the directory the results go to (see get_out_dir())
+     * @param out the response writer
+     */
+    private void analyze(Map<String, String> args, File out_file, PrintWriter out) {
+        String class_name = args.get("class");
+        RenderMode mode = RenderMode.valueOf(args.getOrDefault("graphs", RenderMode.OFF.toString()).toUpperCase());
+        long start = System.nanoTime();
+        String cp = args.getOrDefault("cp", Constants.DEFAULT_CP);
+        add_class_path(cp);
+        Settings.set_render_mode(mode);
+        Metrics.set_scope(class_name);
+        long load_start = Metrics.start();
+        SootClass sc = load_class(class_name);
+        Metrics.stop(Constants.METRIC_SCENE_LOAD, load_start);
+        // only the directory of the class (inside the base directory) is cleared
+        String out_dir = out_file.getPath();
+        String class_dir = AnalysisDispatcher.get_class_dir(out_dir, class_name);
+        if(!out_file.isDirectory() && !out_file.mkdirs()) {
+            throw new IllegalStateException(out_dir + " could not be created.");
+        }
+        Utils.refresh_dir(class_dir);
+        Utils.refresh_dir(class_dir + File.separator + Constants.GRAPH_DIR);
+        Utils.refresh_dir(class_dir + File.separator + Constants.Z3_DIR);
+        // a new hasher for every request, the class files may have changed since the last one
+        String report_filename = class_dir + File.separator + Constants.REPORT_FILE;
+        ReportWriter report = new ReportWriter(report_filename, Collections.singletonList(class_name));
+        AnalysisDispatcher dispatcher = new AnalysisDispatcher(Collections.singletonList(class_name), solver_cache,
+                Utils.not_null(result_store) ? result_store : new ResultStore(),
+                Utils.not_null(result_store) ? new MethodHasher(cp) : null, report, out_dir,
+                Settings.get_analysis_threads());
+        // Soot skips a transformer unless its phase is enabled
+        Map<String, String> phase_options = Collections.singletonMap("enabled", "true");
+        try {
+            for(SootMethod m : new ArrayList<>(sc.getMethods())) {
+                if(!m.isConcrete()) {
+                    continue;
+                }
+                Body body = m.retrieveActiveBody();
+                long shimple_start = Metrics.start();
+                ShimpleBody sb = Shimple.v().newBody(body);
+                Metrics.stop(Constants.METRIC_SHIMPLE, shimple_start);
+                m.setActiveBody(sb);
+                dispatcher.transform(sb, "stp.arrayssa", phase_options);
+            }
+            dispatcher.finish();
+        } finally {
+            report.close();
+        }
+        GraphRenderer.finish();
+        for(Map.Entry<String, MethodResult> entry : dispatcher.get_reports().entrySet()) {
+            out.println("METHOD " + entry.getKey());
+            for(Dependence d : entry.getValue().get_dependences()) {
+                out.println("EDGE: " + d);
+            }
+        }
+        out.println("REPORT " + report_filename);
+        if(dispatcher.has_failed(class_name)) {
+            out.println("ERROR the analysis of " + class_name + " failed (see the log)");
+        }
+        out.println(String.format("TIME %.3f", (System.nanoTime() - start) * 1e-9));
+    }
+
+    /**
+     * handle one request line
+     * @param line the request
+     * @param out the response writer
+     * @return false iff the line is not a valid request (and the connection has to be closed)
+     */
+    private boolean handle(String line, PrintWriter out) {
+        String[] tokens = line.trim().split("\\s+");
+        String command = tokens[0].toUpperCase();
+        boolean valid = true;
+        try {
+            switch (command) {
+                case "PING":
+                    out.println("PONG");
+                    break;
+                case "SHUTDOWN":
+                    running = false;
+                    out.println("BYE");
+                    break;
+                case "ANALYZE":
+                    Map<String, String> args;
+                    File out_file;
+                    try {
+                        args = parse_args(tokens);
+                        check_class(args);
+                        out_file = get_out_dir(args.get("out"));
+                    } catch (IllegalArgumentException e) {
+                        valid = false;
+                        throw e;
+                    }
+                    analyze(args, out_file, out);
+                    break;
+                default:
+                    valid = false;
+                    out.println("ERROR Unknown command: " + tokens[0]);
+            }
+        } catch (RuntimeException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+            out.println("ERROR " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        out.println("END");
+        out.flush();
+        return valid;
+    }
+
+    /**
+     * set up Soot then serve requests until a SHUTDOWN request
+     * @throws IOException if the server socket can not be opened
+     */
+    void run() throws IOException {
+        init_soot();
+        try(ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+            Logger.info(String.format("Listening on %s:%d", server.getInetAddress().getHostAddress(), server.getLocalPort()));
+            while(running) {
+                try(Socket client = server.accept();
+                    BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                    PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while(running && Utils.not_null(line = in.readLine())) {
+                        if(!line.trim().isEmpty()) {
+                            Logger.info("Request: " + line);
+                            if(!handle(line, out)) {
+                                Logger.warn("Invalid request, closing the connection.");
+                                break;
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                    if(Constants.PRINT_ST) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+        Logger.info("Server stopped.");
+    }
+}
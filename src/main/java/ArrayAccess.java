@@ -0,0 +1,77 @@
+/**
+ * an array def or use of the def/use graph (a node), without any reference to Soot objects: its id, its
+ * (possibly augmented) statement, whether it is a def or a use and its line
+ */
+class ArrayAccess {
+    /**
+     * the id of the node (see Node.make_id)
+     */
+    private final String id;
+    /**
+     * the statement of the node (augmented if it was augmented)
+     */
+    private final String stmt;
+    /**
+     * the type of the node (DEF or USE)
+     */
+    private final String type;
+    /**
+     * the line of the statement in shimple
+     */
+    private final int line;
+
+    /**
+     * constructor for an array access
+     * @param id the id of the node
+     * @param stmt the statement of the node
+     * @param type the type of the node (DEF or USE)
+     * @param line the line of the statement in shimple
+     */
+    ArrayAccess(String id, String stmt, String type, int line) {
+        this.id = id;
+        this.stmt = stmt;
+        this.type = type;
+        this.line = line;
+    }
+
+    /**
+     * make the array access of a def/use node
+     * @param n the node
+     * @return the array access
+     */
+    static ArrayAccess of(Node n) {
+        return new ArrayAccess(n.get_id(), n.get_aug_stmt_str(), n.get_type().toString(), n.get_line_num());
+    }
+
+    /**
+     * getter for the id
+     * @return the id of the node
+     */
+    String get_id() {
+        return id;
+    }
+
+    /**
+     * getter for the statement
+     * @return the statement of the node
+     */
+    String get_stmt() {
+        return stmt;
+    }
+
+    /**
+     * getter for the type
+     * @return the type of the node (DEF or USE)
+     */
+    String get_type() {
+        return type;
+    }
+
+    /**
+     * getter for the line
+     * @return the line of the statement in shimple
+     */
+    int get_line() {
+        return line;
+    }
+}
@@ -9,7 +9,6 @@ import soot.jimple.AssignStmt;
 import soot.jimple.IfStmt;
 import soot.jimple.Stmt;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -23,13 +22,13 @@ import static guru.nidi.graphviz.model.Factory.*;
 @SuppressWarnings("ALL")
 class ArrayDefUseGraph {
     /**
-     * a list of all edges in the graph
+     * a list of all edges in the graph (persistent, so copies of the graph share it)
      */
-    private Map<Integer, Edge> edges;
+    private PersistentMap<Integer, Edge> edges;
     /**
-     * a list of all nodes in the graph
+     * a list of all nodes in the graph (persistent, so copies of the graph share it)
      */
-    private Map<String, Node> nodes;
+    private PersistentMap<String, Node> nodes;
     /**
      * the graph that is made for the inter loop dependencies
      */
@@ -37,23 +36,21 @@ class ArrayDefUseGraph {
 
     /**
      * constructor for ArrayDefUseGraph
-     * @param class_name the name of the class being analyzed
+     * @param body_name the name of the body being analyzed
      */
-    ArrayDefUseGraph(String class_name) {
-        edges = new HashMap<>();
-        nodes = new HashMap<>();
-        array_def_use_graph = mutGraph(class_name + "_array_def_use_graph").setDirected(true);
+    ArrayDefUseGraph(String body_name) {
+        edges = PersistentMap.empty();
+        nodes = PersistentMap.empty();
+        array_def_use_graph = mutGraph(body_name + "_array_def_use_graph").setDirected(true);
     }
 
     /**
-     * copy constructor for ArrayDefUseGraph
+     * copy constructor for ArrayDefUseGraph, this is O(1) since the node and edge maps are persistent
      * @param a_graph the ArrayDefUseGraph being copied
      */
     ArrayDefUseGraph(ArrayDefUseGraph a_graph) {
-        this.edges =  a_graph.edges.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        this.nodes =  a_graph.nodes.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        this.edges = a_graph.edges;
+        this.nodes = a_graph.nodes;
         this.array_def_use_graph = a_graph.array_def_use_graph;
     }
 
@@ -65,13 +62,12 @@ class ArrayDefUseGraph {
      */
     void add_node(Node node, boolean is_def, boolean is_phi) {
         if(nodes.containsKey(node.get_id())) {
-            Logger.error("We have an ID conflict: " + node.get_id());
             Logger.error(node.get_stmt().toString());
             Logger.error(nodes.get(node.get_id()).get_stmt().toString());
-            System.exit(0);
+            throw new IllegalStateException("We have an ID conflict: " + node.get_id());
         }
         if (!is_def) {
-            nodes.put(node.get_id(), node);
+            nodes = nodes.plus(node.get_id(), node);
             add_edge(node);
         } else {
             if(is_phi) {
@@ -84,14 +80,13 @@ class ArrayDefUseGraph {
                                 node.is_if(), node.get_line_num());
                         Node use_node = nodes.get(id);
                         Edge edge = new Edge(use_node, node);
-                        edges.put(edge.hashCode(), edge);
+                        edges = edges.plus(edge.hashCode(), edge);
                     }
                 } else {
-                    Logger.error("This should never be called on an ArrayVersionSingle");
-                    System.exit(0);
+                    throw new IllegalStateException("This should never be called on an ArrayVersionSingle");
                 }
              }
-            nodes.put(node.get_id(), node);
+            nodes = nodes.plus(node.get_id(), node);
         }
     }
 
@@ -115,7 +110,7 @@ class ArrayDefUseGraph {
                 def_node.set_is_used_in_edge(true);
                 use_node.set_is_used_in_edge(true);
                 Edge edge = new Edge(nodes.get(use_node.get_opposite_id()), use_node);
-                edges.put(edge.hashCode(), edge);
+                edges = edges.plus(edge.hashCode(), edge);
             } else {
                 // TODO: fix if the indexes _are_ the same but just renamed....
                 //      Test12 shimple:
@@ -151,15 +146,16 @@ class ArrayDefUseGraph {
                           String new_name, ArrayVersion new_av, AssignStmt new_stmt, boolean base_def, boolean was_if_stmt, BodyLineFinder blf) {
         String id = Node.make_id(old_name, old_av, DefOrUse.DEF, was_if_stmt, new_av.get_line_num());
         assert nodes.containsKey(id) : "the id of the old node must be a key in nodes.";
-        Node n = nodes.remove(id);
+        Node n = nodes.get(id);
+        nodes = nodes.minus(id);
         String new_id = Node.make_id(new_name, new_av, DefOrUse.DEF, new_stmt instanceof IfStmt, blf.get_line(new_stmt));
         Node new_node = new Node(new_stmt, new_name, new_av, n.get_index(), DefOrUse.DEF, base_def, blf.get_line(new_stmt));
-        nodes.put(new_id, new_node);
+        nodes = nodes.plus(new_id, new_node);
     }
 
     /**
      * getter for all edges
-     * @return all edges in the graph
+     * @return all edges in the graph (immutable)
      */
     Map<Integer, Edge> get_edges() {
         return edges;
@@ -167,7 +163,7 @@ class ArrayDefUseGraph {
 
     /**
      * getter for all nodes
-     * @return all nodes in the graph
+     * @return all nodes in the graph (immutable)
      */
     Map<String, Node> get_nodes() {
         return nodes;
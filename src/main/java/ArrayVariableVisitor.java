@@ -2,12 +2,12 @@ import org.tinylog.Logger;
 import soot.jimple.*;
 import soot.jimple.internal.JNewArrayExpr;
 
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 /**
- * Visitor for keeping track of array Variables
+ * Visitor for keeping track of array Variables.
+ * One visitor is used for a whole body, it changes the analysis state directly and is reset before every statement.
  */
 public class ArrayVariableVisitor extends AbstractStmtSwitch {
     /**
@@ -21,7 +21,11 @@ public class ArrayVariableVisitor extends AbstractStmtSwitch {
     /**
      * the number of the block of code being currently analyzed
      */
-    private final int block_num;
+    private int block_num;
+    /**
+     * flag to tell if nodes should be added to the def/use graph (only on the first parse of the body)
+     */
+    private boolean update_graph;
     /**
      * flag that is used by VariableVisitor to check for constants. If we are dealing with an array
      * it is not a constant we are interested in.
@@ -41,45 +45,32 @@ public class ArrayVariableVisitor extends AbstractStmtSwitch {
      * Create a new array variable visitor
      * This class searches for array definitions and uses, tracks them and adds them to the
      * def/use graph object. This mostly handles array variable versioning.
-     * @param vars the current map of array variables coupled with their versions  when this visitor is called
+     * @param vars the map of array variables coupled with their versions (changed in place)
      *             this is wrapped in the ArrayVariables class
-     * @param graph the current array def/use graph when this visitor is called
-     * @param block_num the block number that is calling this visitor
-     * @param new_array_stmts set of new array stmts
+     * @param graph the array def/use graph (changed in place)
+     * @param new_array_stmts set of new array stmts (changed in place)
      * @param blf construct to get line numbers correctly
      */
-    ArrayVariableVisitor(ArrayVariables vars, ArrayDefUseGraph graph, int block_num,
+    ArrayVariableVisitor(ArrayVariables vars, ArrayDefUseGraph graph,
                          Set<Stmt> new_array_stmts, BodyLineFinder blf) {
-        this.vars = new ArrayVariables(vars);
-        this.graph = new ArrayDefUseGraph(graph);
-        this.block_num = block_num;
+        this.vars = vars;
+        this.graph = graph;
+        this.block_num = 0;
+        this.update_graph = true;
         this.is_array = false;
-        this.new_array_stmts = new HashSet<>(new_array_stmts);
+        this.new_array_stmts = new_array_stmts;
         this.blf = blf;
     }
 
     /**
-     * get the  array variables (this is called after everything has finished)
-     * @return the wrapper class for the map of array variables and versions
-     */
-    ArrayVariables get_vars() {
-        return new ArrayVariables(vars);
-    }
-
-    /**
-     * the the modified def/use graph (this is called after everything has finished)
-     * @return the array def/use graph object
-     */
-    ArrayDefUseGraph get_graph() {
-        return graph;
-    }
-
-    /**
-     * getter for new array stmts
-     * @return new array stmts set
+     * reset the visitor before it is applied to the next statement
+     * @param block_num the block number that is calling this visitor
+     * @param update_graph true iff new arrays and renames should be added to the def/use graph
      */
-    Set<Stmt> get_new_array_stmts() {
-        return new HashSet<>(new_array_stmts);
+    void reset(int block_num, boolean update_graph) {
+        this.block_num = block_num;
+        this.update_graph = update_graph;
+        this.is_array = false;
     }
 
     /**
@@ -152,8 +143,10 @@ public class ArrayVariableVisitor extends AbstractStmtSwitch {
             // NOTE: ALWAYS a new array!
             Logger.info("Found a new array: " + left_op);
             ArrayVersion av = new ArrayVersionSingle(0, block_num, stmt, blf.get_line(stmt));
-            graph.add_node(new Node(stmt, left_op, av, new ArrayIndex(), DefOrUse.DEF, true,  blf.get_line(stmt)),
-                    true, false);
+            if(update_graph) {
+                graph.add_node(new Node(stmt, left_op, av, new ArrayIndex(), DefOrUse.DEF, true,  blf.get_line(stmt)),
+                        true, false);
+            }
             vars.put(left_op, av);
             new_array_stmts.add(stmt);
             is_array = true;
@@ -164,7 +157,9 @@ public class ArrayVariableVisitor extends AbstractStmtSwitch {
             ArrayVersion av = vars.get(right_op);
             ArrayVersion new_av = Utils.rename_av(av);
             vars.put(left_op, new_av);
-            graph.array_def_rename(right_op, vars.get(right_op), left_op, new_av, stmt, true, stmt instanceof IfStmt, blf);
+            if(update_graph) {
+                graph.array_def_rename(right_op, vars.get(right_op), left_op, new_av, stmt, true, stmt instanceof IfStmt, blf);
+            }
             vars.remove(right_op);
             Logger.debug("An array got renamed...");
             is_array = true;
@@ -5,25 +5,26 @@ import org.tinylog.Logger;
 import soot.jimple.Stmt;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static guru.nidi.graphviz.model.Factory.*;
 
 /**
- * class to store all actual array variables
+ * class to store all actual array variables.
+ * The versions are kept in a persistent map and are never changed in place (the toggles copy the version first),
+ * so copies of this class share every entry until it is changed.
  */
 @SuppressWarnings("unused")
 public class ArrayVariables {
     /**
      * a map of all array variables and versions
      */
-    final private Map<String, ArrayVersion> array_vars;
+    private PersistentMap<String, ArrayVersion> array_vars;
 
     /**
      * blank constructor for array variable class
      */
     ArrayVariables() {
-        this.array_vars = new HashMap<>();
+        this.array_vars = PersistentMap.empty();
     }
 
     /**
@@ -32,17 +33,15 @@ public class ArrayVariables {
      * @param base_ver the base of the new entry
      */
     ArrayVariables(String name, ArrayVersion base_ver) {
-        array_vars = new HashMap<>();
-        array_vars.put(name, base_ver);
+        array_vars = PersistentMap.<String, ArrayVersion>empty().plus(name, base_ver);
     }
 
     /**
-     * copy constructor for the class
+     * copy constructor for the class, this is O(1) since the versions are shared
      * @param av the other ArrayVariables object
      */
     ArrayVariables(ArrayVariables av) {
-        this.array_vars = av.array_vars.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, entry -> Utils.copy_av(entry.getValue())));
+        this.array_vars = av.array_vars;
     }
 
     /**
@@ -51,7 +50,7 @@ public class ArrayVariables {
      * @param av the version of the entry
      */
     void put(String name, ArrayVersion av) {
-        array_vars.put(name, av);
+        array_vars = array_vars.plus(name, av);
     }
 
     /**
@@ -59,7 +58,7 @@ public class ArrayVariables {
      * @param name the name of the entry
      */
     void remove(String name) {
-        array_vars.remove(name);
+        array_vars = array_vars.minus(name);
     }
 
     /**
@@ -103,8 +102,11 @@ public class ArrayVariables {
      */
     void toggle_written(String name) {
         ArrayVersion av = array_vars.get(name);
-        av.toggle_written();
-        array_vars.put(name, av);
+        if(!av.has_been_written_to()) {
+            av = Utils.copy_av(av);
+            av.toggle_written();
+            array_vars = array_vars.plus(name, av);
+        }
     }
 
     /**
@@ -113,8 +115,11 @@ public class ArrayVariables {
      */
     void toggle_read(String name) {
         ArrayVersion av = array_vars.get(name);
-        av.toggle_read();
-        array_vars.put(name, av);
+        if(!av.has_been_read()) {
+            av = Utils.copy_av(av);
+            av.toggle_read();
+            array_vars = array_vars.plus(name, av);
+        }
     }
 
     /**
@@ -98,6 +98,18 @@ public class ArrayVersionPhi implements ArrayVersion {
         return tmp;
     }
 
+    /**
+     * get the version numbers of the array versions composing this ArrayVersionPhi (no copies are made)
+     * @return the versions in the same order as get_array_versions()
+     */
+    List<Integer> get_array_version_numbers() {
+        List<Integer> tmp = new ArrayList<>(array_versions.size());
+        for(ArrayVersion av : array_versions) {
+            tmp.add(av.get_version());
+        }
+        return tmp;
+    }
+
     /**
      * Overridden getter
      * @return true always, this always represents a phi node
@@ -16,6 +16,7 @@ import java.util.stream.Collectors;
 
 /**
  * The main visitor for the BFS algorithm.
+ * One visitor is used for a whole body, it changes the analysis state directly and is reset before every statement.
  */
 class BFSVisitor extends AbstractStmtSwitch {
     /**
@@ -29,11 +30,11 @@ class BFSVisitor extends AbstractStmtSwitch {
     /**
      * The current block being analyzed
      */
-    private final Block b;
+    private Block b;
     /**
      * the current downward exposed array references from the previous block
      */
-    private final DownwardExposedArrayRef daf;
+    private DownwardExposedArrayRef daf;
     /**
      * The final DefUse Graph
      */
@@ -45,7 +46,7 @@ class BFSVisitor extends AbstractStmtSwitch {
     /**
      * the block number for the merge
      */
-    private final int block_num;
+    private int block_num;
     /**
      * the constants
      */
@@ -60,28 +61,25 @@ class BFSVisitor extends AbstractStmtSwitch {
     private BodyLineFinder blf;
 
     /**
-     * Constructor for the BFS Visitor
+     * Constructor for the BFS Visitor, all of the passed state is changed in place
      * @param c_arr_ver a Map of currently exposed array versions per block
-     * @param b the current block
-     * @param graph the current ArrayDefUseGraph
+     * @param graph the ArrayDefUseGraph
      * @param array_vars the array variables
      * @param phi_vars a container containing all phi_variables that have been seen up to this point
      *                 (along with the aliases of those PhiVariables
      * @param constants the constants
-     * @param block_num the number of the block
      * @param cond_stk the stack of conditions (used for mux nodes)
      * @param blf construct to get line numbers correctly
      */
-    BFSVisitor(Map<Block, DownwardExposedArrayRef> c_arr_ver, Block b, ArrayDefUseGraph graph,
+    BFSVisitor(Map<Block, DownwardExposedArrayRef> c_arr_ver, ArrayDefUseGraph graph,
                ArrayVariables array_vars, PhiVariableContainer phi_vars, Map<String, Integer> constants,
-               int block_num, Stack<IfStmt> cond_stk, BodyLineFinder blf) {
+               Stack<IfStmt> cond_stk, BodyLineFinder blf) {
         this.c_arr_ver = c_arr_ver;
-        this.b = b;
-        assert c_arr_ver.containsKey(b) : "the current array versions must have an entry for the current block";
-        this.daf = new DownwardExposedArrayRef(c_arr_ver.get(b));
-        this.graph = new ArrayDefUseGraph(graph);
-        this.block_num = block_num;
-        this.array_vars = new ArrayVariables(array_vars);
+        this.b = null;
+        this.daf = null;
+        this.graph = graph;
+        this.block_num = 0;
+        this.array_vars = array_vars;
         this.phi_vars = phi_vars;
         this.constants = constants;
         this.cond_stk = cond_stk;
@@ -89,35 +87,15 @@ class BFSVisitor extends AbstractStmtSwitch {
     }
 
     /**
-     * getter for the c_arr_ver Map
-     * @return the c_arr_ver Map
-     */
-    Map<Block, DownwardExposedArrayRef> get_c_arr_ver() {
-        return c_arr_ver;
-    }
-
-    /**
-     * getter for the possible change ArrayDefUseGraph
-     * @return the ArrayDefUseGraph
-     */
-    ArrayDefUseGraph get_graph() {
-        return graph;
-    }
-
-    /**
-     * return the possibly changed array vars
-     * @return the array vars
-     */
-    ArrayVariables get_vars() {
-        return new ArrayVariables(array_vars);
-    }
-
-    /**
-     * getter for condition stack
-     * @return the possibly modified condition stack
+     * reset the visitor before it is applied to the next statement
+     * @param b the current block
      */
-    Stack<IfStmt> get_cond_stk() {
-        return cond_stk;
+    void reset(Block b) {
+        assert c_arr_ver.containsKey(b) : "the current array versions must have an entry for the current block";
+        this.b = b;
+        this.block_num = Utils.get_block_num(b);
+        // changes are only published to c_arr_ver when the statement is an array access (the copy is O(1))
+        this.daf = new DownwardExposedArrayRef(c_arr_ver.get(b));
     }
 
     /**
@@ -171,7 +149,7 @@ class BFSVisitor extends AbstractStmtSwitch {
             Logger.debug(" The index is: " + index_box.getValue().toString());
             Logger.debug(" " + basename + " should be changed to " + daf.get_name(basename));
             Logger.debug(" " + "This is a use for " + daf.get_name(basename));
-            ArrayVersion av = Utils.copy_av(daf.get(basename));
+            ArrayVersion av = daf.get(basename);
             Node new_node = new Node(stmt, basename, av, new ArrayIndex(index_box), DefOrUse.USE,
                     new ImmutablePair<String, String>(basename, daf.get_name(basename)), false,
                     blf.get_line(stmt));
@@ -195,7 +173,7 @@ class BFSVisitor extends AbstractStmtSwitch {
                                     Logger.info("IF STMT: here is the assignment: " + as.toString());
                                     String basename = as.getArrayRef().getBaseBox().getValue().toString();
                                     ValueBox index_box = as.getArrayRef().getIndexBox();
-                                    ArrayVersion av = Utils.copy_av(daf.get(basename));
+                                    ArrayVersion av = daf.get(basename);
                                     // TODO: need to find a way to add if nodes without taking the DAF, it squashes other nodes!
                                     Node new_node = new Node(stmt, basename, av, new ArrayIndex(index_box), DefOrUse.USE,
                                             new ImmutablePair<>(basename, daf.get_name(basename)), false, blf.get_line(stmt));
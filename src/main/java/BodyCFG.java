@@ -0,0 +1,136 @@
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import soot.Body;
+import soot.jimple.toolkits.annotation.logic.LoopFinder;
+import soot.toolkits.graph.Block;
+import soot.toolkits.graph.DominatorsFinder;
+import soot.toolkits.graph.ExceptionalBlockGraph;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.MHGDominatorsFinder;
+
+import java.util.*;
+
+/**
+ * the control flow information of a body (unit graph, block graph, loops, block order and dominators).
+ * It is built once per body and shared by every phase of the analysis.
+ */
+class BodyCFG {
+    /**
+     * the unit CFG
+     */
+    private final ExceptionalUnitGraph unit_graph;
+    /**
+     * the block CFG
+     */
+    private final ExceptionalBlockGraph block_graph;
+    /**
+     * the loops keyed by their head block
+     */
+    private final LoopIndex loop_index;
+    /**
+     * the blocks in reverse postorder
+     */
+    private final List<Block> block_order;
+    /**
+     * the reverse postorder position of every block
+     */
+    private final Map<Block, Integer> block_index;
+    /**
+     * the block dominators (only built if they are asked for)
+     */
+    private DominatorsFinder<Block> dominators;
+
+    /**
+     * build the CFG information of a body
+     * @param body the body
+     */
+    BodyCFG(Body body) {
+        this.unit_graph = new ExceptionalUnitGraph(body);
+        this.block_graph = new ExceptionalBlockGraph(unit_graph);
+        this.loop_index = new LoopIndex(new LoopFinder().getLoops(unit_graph), block_graph.getBlocks());
+        this.block_order = order_blocks(block_graph);
+        this.block_index = new HashMap<>();
+        for(int i = 0; i < block_order.size(); i++) {
+            block_index.put(block_order.get(i), i);
+        }
+        this.dominators = null;
+    }
+
+    /**
+     * order the blocks of a body in reverse postorder (ignoring back edges every block comes after its
+     * predecessors). Uses an explicit stack so deep bodies can not overflow the thread stack.
+     * @param bg the block graph of the body
+     * @return the blocks in reverse postorder, one run per head (in head order)
+     */
+    private static List<Block> order_blocks(ExceptionalBlockGraph bg) {
+        List<Block> order = new ArrayList<>();
+        Set<Block> visited = new HashSet<>();
+        Deque<ImmutablePair<Block, Iterator<Block>>> stack = new ArrayDeque<>();
+        for(Block h : bg.getHeads()) {
+            if(!visited.add(h)) {
+                continue;
+            }
+            List<Block> post_order = new ArrayList<>();
+            stack.push(new ImmutablePair<>(h, h.getSuccs().iterator()));
+            while(!stack.isEmpty()) {
+                Iterator<Block> succs = stack.peek().getRight();
+                if(succs.hasNext()) {
+                    Block sb = succs.next();
+                    if(visited.add(sb)) {
+                        stack.push(new ImmutablePair<>(sb, sb.getSuccs().iterator()));
+                    }
+                } else {
+                    post_order.add(stack.pop().getLeft());
+                }
+            }
+            Collections.reverse(post_order);
+            order.addAll(post_order);
+        }
+        return order;
+    }
+
+    /**
+     * getter for the unit graph
+     * @return the unit CFG
+     */
+    ExceptionalUnitGraph get_unit_graph() {
+        return unit_graph;
+    }
+
+    /**
+     * getter for the loop index
+     * @return the loops keyed by their head block
+     */
+    LoopIndex get_loop_index() {
+        return loop_index;
+    }
+
+    /**
+     * get the blocks in reverse postorder
+     * @return the blocks in reverse postorder
+     */
+    List<Block> get_block_order() {
+        return block_order;
+    }
+
+    /**
+     * get the reverse postorder position of a block
+     * @param b the block
+     * @return the position of the block (unreachable blocks go last)
+     */
+    int get_order(Block b) {
+        return block_index.getOrDefault(b, Integer.MAX_VALUE);
+    }
+
+    /**
+     * check if an edge is a back edge (its target dominates its source)
+     * @param from the source block
+     * @param to the target block
+     * @return true iff the edge from -> to is a back edge
+     */
+    boolean is_back_edge(Block from, Block to) {
+        if(dominators == null) {
+            dominators = new MHGDominatorsFinder<>(block_graph);
+        }
+        return dominators.isDominatedBy(from, to);
+    }
+}
@@ -1,9 +1,9 @@
 import org.tinylog.Logger;
 import soot.Body;
+import soot.Unit;
 import soot.jimple.Stmt;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.regex.Matcher;
 
 /**
@@ -18,6 +18,11 @@ class BodyLineFinder {
      * a map connecting lines with line numbers
      */
     Map<String, Integer> line_map;
+    /**
+     * a map connecting the units of the body with line numbers (units compare by identity so statements
+     * with the same text get their own line)
+     */
+    Map<Unit, Integer> unit_line_map;
 
     /**
      * @param body the body
@@ -25,16 +30,28 @@ class BodyLineFinder {
     BodyLineFinder(Body body) {
         this.body = body;
         line_map = new HashMap<>();
+        Map<String, Deque<Integer>> text_lines = new HashMap<>();
         String[] lines = body.toString().split("\n");
         for(int i = 0; i < lines.length; i++) {
             Matcher m = Constants.LINE_PATTERN.matcher(lines[i]);
             if(m.matches()) {
                 line_map.put(m.group(1), i);
+                text_lines.computeIfAbsent(m.group(1), k -> new ArrayDeque<>()).addLast(i);
             } else {
                 Logger.debug("Found a non matching line: " + lines[i]);
             }
 
         }
+        // the body is printed in unit order, so the n-th unit with a given text is on the n-th line with that text
+        unit_line_map = new IdentityHashMap<>();
+        for(Unit u : body.getUnits()) {
+            Deque<Integer> text_line = text_lines.get(u.toString());
+            if(Utils.not_null(text_line) && !text_line.isEmpty()) {
+                unit_line_map.put(u, text_line.pollFirst());
+            } else {
+                unit_line_map.put(u, -1);
+            }
+        }
     }
 
     /**
@@ -52,6 +69,10 @@ class BodyLineFinder {
      * @return the line number of -1 if it does not exist
      */
     int get_line(Stmt s) {
+        Integer line = unit_line_map.get(s);
+        if(Utils.not_null(line)) {
+            return line;
+        }
         return line_map.getOrDefault(s.toString(), -1);
     }
 }
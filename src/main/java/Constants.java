@@ -12,8 +12,7 @@ class Constants {
     static final ArrayVersion VAR_NOT_FOUND = null;
     static final String ARR_VER_STR = "%s_%d";
     static final String ARR_PHI_STR_START = "phi(";
-    static final Pattern BLOCK_RE = Pattern.compile("^(Block\\s\\d+)");
-    static final Pattern BLOCK_NUM_RE = Pattern.compile("^Block\\s(\\d+)");
+    static final String BLOCK_NAME_STR = "Block ";
     static final Pattern LINE_PATTERN = Pattern.compile("[\\(\\)\\d\\s]+(.*);");
     static final String DEFAULT_CP = "test_programs/out";
     static final String DEFAULT_RT_PATH = Utils.rt_path();
@@ -26,6 +25,12 @@ class Constants {
     static final String GRAPH_DIR = "graphs";
     static final String Z3_DIR = "z3_python";
     static final String GRAPH_EXT =  ".png";
+    static final String JAVA_EXT = ".java";
+    static final String CLASS_EXT = ".class";
+    static final String DEFAULT_SRC_DIR = "test_programs/src";
+    static final String DEFAULT_BATCH_DIR = "batch_out";
+    // a Java binary name: identifiers (with $ for nested classes) joined by single dots
+    static final String CLASS_NAME_REGEX = "[\\w$]+(\\.[\\w$]+)*";
     static final String EMPTY_STR = "";
     static final boolean JUST_COMPILE = false;
     static final String DEFAULT_COMPILE_CMD = "python compile.py -c %s";
@@ -37,6 +42,64 @@ class Constants {
     static final String EQ_ZERO_PY = "%s == 0";
     static final String NEQ_ZERO_PY = "%s != 0";
     static final String SAT = "sat";
+    static final String Z3_QUERY_STR = "QUERY %d";
+    static final String Z3_QUERY_PY = "print('QUERY %d')";
+    static final SolverBackend DEFAULT_SOLVER_BACKEND = SolverBackend.JAVA;
+    static final int DEFAULT_SOLVER_THREADS = 1;
+    static final RenderMode DEFAULT_RENDER_MODE = RenderMode.PNG;
+    static final int DEFAULT_RENDER_THREADS = 1;
+    static final int DEFAULT_ANALYSIS_THREADS = 1;
+    static final int RECORD_FILE_HEADER_SIZE = 8;
+    static final String SOLVER_CACHE_FILE = "solver_cache.dat";
+    static final int SOLVER_CACHE_MAGIC = 0x4D504353;
+    // bump this when the cache key or the solver results change
+    static final int SOLVER_CACHE_VERSION = 1;
+    static final int SOLVER_CACHE_MAX_RECORD = 1 << 20;
+    static final String RESULT_STORE_FILE = "result_store.dat";
+    static final int RESULT_STORE_MAGIC = 0x4D505253;
+    // bump this when the analysis results change (it is part of every key as well)
+    static final int RESULT_STORE_VERSION = 4;
+    static final int RESULT_STORE_MAX_RECORD = 1 << 24;
+    static final String METRICS_FILE = "metrics.json";
+    static final String REPORT_FILE = "report.json";
+    static final int SNAPSHOT_MAGIC = 0x4D505353;
+    // bump this when the layout of the snapshot changes
+    static final int SNAPSHOT_VERSION = 3;
+    static final int SNAPSHOT_HEADER_SIZE = 24;
+    static final String SNAPSHOT_TMP_SUFFIX = ".tmp";
+    // METRIC TIMERS
+    static final String METRIC_COMPILE = "compile";
+    static final String METRIC_SCENE_LOAD = "scene_load";
+    static final String METRIC_SHIMPLE = "shimple";
+    static final String METRIC_CALL_GRAPH = "call_graph";
+    static final String METRIC_ANALYSIS = "analysis";
+    static final String METRIC_FIND_LOOP_HEADS = "find_loop_heads";
+    static final String METRIC_BFS_FIRST_ITER = "bfs_first_iteration";
+    static final String METRIC_BFS_SECOND_ITER = "bfs_second_iteration";
+    static final String METRIC_MAKE_GRAPH = "make_graph";
+    static final String METRIC_MAKE_SCC_GRAPH = "make_scc_graph";
+    static final String METRIC_SOLVER = "solver";
+    static final String METRIC_PRINT_GRAPH = "print_graph";
+    static final String METRIC_GRAPH_WRITE = "graph_write";
+    // METRIC COUNTERS
+    static final String METRIC_BODIES = "bodies";
+    static final String METRIC_STORED_BODIES = "bodies_from_result_store";
+    static final String METRIC_DEF_USE_NODES = "def_use_nodes";
+    static final String METRIC_DEF_USE_EDGES = "def_use_edges";
+    static final String METRIC_SCC_NODES = "scc_nodes";
+    static final String METRIC_SCC_EDGES = "scc_edges";
+    static final String METRIC_PHI_VARIABLES = "phi_variables";
+    static final String METRIC_SOLVER_CALLS = "solver_invocations";
+    static final String METRIC_SOLVER_CACHE_HITS = "solver_cache_hits";
+    static final String METRIC_GRAPHS = "graphs_written";
+    static final String METRIC_GRAPH_BYTES = "graph_bytes_written";
+    static final String METRIC_Z3_BYTES = "z3_bytes_written";
+    static final String METRIC_SOLVER_CACHE_BYTES = "solver_cache_bytes_written";
+    static final String METRIC_RESULT_STORE_BYTES = "result_store_bytes_written";
+    static final String METRIC_SNAPSHOT_BYTES = "snapshot_bytes_written";
+    static final String METRIC_PEAK_HEAP_BYTES = "peak_heap_bytes";
+    static final Pattern IDENTIFIER_RE = Pattern.compile("\\b[A-Za-z_][A-Za-z0-9_]*");
+    static final Pattern AFFINE_TOKEN_RE = Pattern.compile("\\s*([A-Za-z_][A-Za-z0-9_]*|\\d+|[-+*/%()])");
     static final String ASSERT_NULL_STR = "%s should not be null.";
     // BLANK NODE PLACEHOLDERS
     static final String EMPTY_DEF_USE = "EMPTY_DEF_USE";
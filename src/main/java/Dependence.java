@@ -0,0 +1,136 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * a dependence found by the analysis (an SCC edge): the source and destination statements, their lines
+ * and the d value between them
+ */
+class Dependence {
+    /**
+     * the source statement
+     */
+    private final String src;
+    /**
+     * the line of the source statement
+     */
+    private final int src_line;
+    /**
+     * the destination statement
+     */
+    private final String dest;
+    /**
+     * the line of the destination statement
+     */
+    private final int dest_line;
+    /**
+     * the d value
+     */
+    private final int d;
+
+    /**
+     * constructor for a dependence
+     * @param src the source statement
+     * @param src_line the line of the source statement
+     * @param dest the destination statement
+     * @param dest_line the line of the destination statement
+     * @param d the d value
+     */
+    Dependence(String src, int src_line, String dest, int dest_line, int d) {
+        this.src = src;
+        this.src_line = src_line;
+        this.dest = dest;
+        this.dest_line = dest_line;
+        this.d = d;
+    }
+
+    /**
+     * make the dependence of an SCC edge
+     * @param e the SCC edge
+     * @return the dependence
+     */
+    static Dependence of(SCCEdge e) {
+        return new Dependence(e.get_src().get_stmt().toString(), e.get_src().get_line_num(),
+                e.get_dest().get_stmt().toString(), e.get_dest().get_line_num(), e.get_d());
+    }
+
+    /**
+     * getter for the source statement
+     * @return the source statement
+     */
+    String get_src() {
+        return src;
+    }
+
+    /**
+     * getter for the source line
+     * @return the line of the source statement
+     */
+    int get_src_line() {
+        return src_line;
+    }
+
+    /**
+     * getter for the destination statement
+     * @return the destination statement
+     */
+    String get_dest() {
+        return dest;
+    }
+
+    /**
+     * getter for the destination line
+     * @return the line of the destination statement
+     */
+    int get_dest_line() {
+        return dest_line;
+    }
+
+    /**
+     * getter for the d value
+     * @return the d value
+     */
+    int get_d() {
+        return d;
+    }
+
+    /**
+     * check if the dependence is carried from one iteration of the loop to another
+     * @return true iff the d value is not 0
+     */
+    boolean is_loop_carried() {
+        return d != 0;
+    }
+
+    /**
+     * write the dependence
+     * @param out the output stream
+     * @throws IOException if the stream can not be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(src);
+        out.writeInt(src_line);
+        out.writeUTF(dest);
+        out.writeInt(dest_line);
+        out.writeInt(d);
+    }
+
+    /**
+     * read a dependence written by write()
+     * @param in the input stream
+     * @return the dependence
+     * @throws IOException if the stream is truncated
+     */
+    static Dependence read(DataInputStream in) throws IOException {
+        return new Dependence(in.readUTF(), in.readInt(), in.readUTF(), in.readInt(), in.readInt());
+    }
+
+    /**
+     * the dependence in the format of the log
+     * @return the dependence as a string
+     */
+    @Override
+    public String toString() {
+        return src + " -- " + d + " --> " + dest;
+    }
+}
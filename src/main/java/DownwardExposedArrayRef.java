@@ -2,8 +2,6 @@ import org.tinylog.Logger;
 import soot.jimple.Stmt;
 import soot.toolkits.graph.Block;
 
-import java.util.Map;
-
 /**
  * Class representing the downward exposed array versions for a given block.
  * A block only knows the versions that are passed to it by predecessor blocks (Part of BFS)
@@ -30,15 +28,12 @@ class DownwardExposedArrayRef {
     }
 
     /**
-     * copies a DownwardExposedArrayRef object
+     * copies a DownwardExposedArrayRef object, the versions are shared until one of them changes
      * @param daf the origin DownwardExposedArrayRef
      */
     DownwardExposedArrayRef(DownwardExposedArrayRef daf) {
         this.b = daf.b;
         this.array_vars = new ArrayVariables(daf.array_vars);
-        for(Map.Entry<String, ArrayVersion> entry : daf.array_vars.entry_set()) {
-            this.array_vars.put(entry.getKey(), Utils.copy_av(entry.getValue()));
-        }
     }
 
     /**
@@ -58,7 +53,7 @@ class DownwardExposedArrayRef {
      */
     void new_ver(String s, int block_num, Stmt stmt) {
         if(array_vars.contains_key(s)) {
-            ArrayVersion new_ver = array_vars.get(s);
+            ArrayVersion new_ver = Utils.copy_av(array_vars.get(s));
             new_ver.incr_version(block_num, stmt);
             array_vars.put(s, new_ver);
         } else {
@@ -71,7 +66,7 @@ class DownwardExposedArrayRef {
      * @param s the variable name
      */
     void force_incr(String s) {
-        ArrayVersion av = array_vars.get(s);
+        ArrayVersion av = Utils.copy_av(array_vars.get(s));
         av.force_incr_version();
         array_vars.put(s, av);
     }
@@ -0,0 +1,111 @@
+import guru.nidi.graphviz.engine.Format;
+import guru.nidi.graphviz.engine.Graphviz;
+import org.tinylog.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * writes graphs off the analysis thread. A graph is snapshotted as DOT text when it is submitted (so the
+ * analysis can keep changing it) and written by a background pool of Settings.get_render_threads() threads.
+ * The run only waits for the pool in finish().
+ */
+class GraphRenderer {
+    /**
+     * the render pool (created on the first submitted graph)
+     */
+    private static ExecutorService pool = null;
+    /**
+     * the renders that have been submitted and not waited for
+     */
+    private static final List<Future<?>> pending = new ArrayList<>();
+
+    /**
+     * submit a graph to be written in the current render mode
+     * @param graph_name the name of the graph (the file name without the extension)
+     * @param dot the graph as DOT text
+     */
+    static synchronized void submit(String graph_name, String dot) {
+        RenderMode mode = Settings.get_render_mode();
+        if(mode == RenderMode.OFF) {
+            return;
+        }
+        if(pool == null) {
+            pool = Executors.newFixedThreadPool(Settings.get_render_threads());
+        }
+        File f = new File(Utils.make_graph_name(graph_name, mode.get_ext()));
+        String class_name = Metrics.get_scope();
+        pending.add(pool.submit(() -> write(f, dot, mode, class_name)));
+    }
+
+    /**
+     * write a graph
+     * @param f the file
+     * @param dot the graph as DOT text
+     * @param mode the render mode
+     * @param class_name the class the graph belongs to (for the metrics, null if none)
+     */
+    private static void write(File f, String dot, RenderMode mode, String class_name) {
+        long start = Metrics.start();
+        JfrEvents.Graph event = JfrEvents.start_graph();
+        try {
+            switch (mode) {
+                case DOT:
+                    Files.write(f.toPath(), dot.getBytes(StandardCharsets.UTF_8));
+                    break;
+                case SVG:
+                    Graphviz.fromString(dot).render(Format.SVG).toFile(f);
+                    break;
+                case PNG:
+                    BufferedImage bimg = Graphviz.fromString(dot).render(Format.PNG).toImage();
+                    ImageIO.write(bimg, "png", f);
+                    break;
+                default:
+                    break;
+            }
+            long bytes = f.length();
+            Metrics.stop(class_name, Constants.METRIC_GRAPH_WRITE, start);
+            Metrics.count(class_name, Constants.METRIC_GRAPHS, 1);
+            Metrics.count(class_name, Constants.METRIC_GRAPH_BYTES, bytes);
+            event.finish_write(f.getName(), mode, bytes);
+        } catch (IOException | NoClassDefFoundError e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * wait for every submitted graph to be written and stop the render pool
+     */
+    static synchronized void finish() {
+        if(pool == null) {
+            return;
+        }
+        Logger.info("Waiting for " + pending.size() + " graph(s) to be written.");
+        for(Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (InterruptedException | ExecutionException e) {
+                Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                if(Constants.PRINT_ST) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        pending.clear();
+        pool.shutdown();
+        pool = null;
+    }
+}
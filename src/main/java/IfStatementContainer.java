@@ -1,6 +1,6 @@
 import soot.jimple.IfStmt;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -8,15 +8,16 @@ import java.util.Map;
  */
 class IfStatementContainer {
     /**
-     * container for the IfStmts the key is the IfStmt toString()
+     * container for the IfStmts the key is the IfStmt itself (units compare by identity,
+     * so two if statements with the same text are kept apart)
      */
-    Map<String, IfStatement> statements;
+    Map<IfStmt, IfStatement> statements;
 
     /**
      * Constructor
      */
     IfStatementContainer() {
-        statements = new HashMap<>();
+        statements = new LinkedHashMap<>();
     }
 
     /**
@@ -24,7 +25,7 @@ class IfStatementContainer {
      * @param b_stmts the other IfStatementContainer
      */
     IfStatementContainer(IfStatementContainer b_stmts) {
-        this.statements = new HashMap<>(b_stmts.statements);
+        this.statements = new LinkedHashMap<>(b_stmts.statements);
     }
 
     /**
@@ -32,16 +33,7 @@ class IfStatementContainer {
      * @param ifstatement the IfStatement
      */
     void add(IfStatement ifstatement) {
-        statements.put(ifstatement.get_stmt().toString(), ifstatement);
-    }
-
-    /**
-     * get an IfStmt from the container (String)
-     * @param s a String representation of the IfStmt
-     * @return the element or null;
-     */
-    IfStatement get(String s) {
-        return statements.get(s);
+        statements.put(ifstatement.get_stmt(), ifstatement);
     }
 
     /**
@@ -50,7 +42,7 @@ class IfStatementContainer {
      * @return the element or null;
      */
     IfStatement get(IfStmt stmt) {
-        return statements.get(stmt.toString());
+        return statements.get(stmt);
     }
 
     /**
@@ -59,24 +51,15 @@ class IfStatementContainer {
      * @return true iff the stmt is in the container
      */
     boolean contains_statement(IfStmt stmt) {
-        return statements.containsKey(stmt.toString());
-    }
-
-    /**
-     * test for membership in the container (String)
-     * @param s a String representation of the IfStmt
-     * @return true iff the stmt is in the container
-     */
-    boolean contains_statement(String s) {
-        return statements.containsKey(s);
+        return statements.containsKey(stmt);
     }
 
     /**
      * get the map of if statements
      * @return the map of if stmts
      */
-    Map<String, IfStatement> get_statements(){
-        return new HashMap<>(statements);
+    Map<IfStmt, IfStatement> get_statements(){
+        return new LinkedHashMap<>(statements);
     }
 
 }
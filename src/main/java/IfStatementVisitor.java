@@ -15,7 +15,7 @@ class IfStatementVisitor extends AbstractStmtSwitch {
     private final ExceptionalUnitGraph g;
 
     /**
-     * a container holding all of the previously found IfStmts
+     * a container holding all of the previously found IfStmts (shared, changed in place)
      */
     private final IfStatementContainer if_stmts;
 
@@ -26,23 +26,23 @@ class IfStatementVisitor extends AbstractStmtSwitch {
 
     /**
      * Constructor
-     * @param g the CFG
-     * @param if_stmts the previously parsed Branch Statements
+     * @param g the CFG of the body
+     * @param if_stmts the previously parsed Branch Statements (changed in place)
      * @param cond_stk the stack of conditions (used for mux nodes)
      */
     IfStatementVisitor(ExceptionalUnitGraph g, IfStatementContainer if_stmts,
                        Stack<IfStmt> cond_stk) {
         this.g = g;
-        this.if_stmts = new IfStatementContainer(if_stmts);
+        this.if_stmts = if_stmts;
         this.cond_stk = cond_stk;
     }
 
     /**
      * getter for b_stmts
-     * @return the possible modified IfStatementContainer
+     * @return the IfStatementContainer
      */
     IfStatementContainer get_if_stmts() {
-        return new IfStatementContainer(if_stmts);
+        return if_stmts;
     }
 
     /**
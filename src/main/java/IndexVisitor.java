@@ -4,7 +4,6 @@ import soot.Value;
 import soot.ValueBox;
 import soot.jimple.*;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -12,6 +11,7 @@ import java.util.stream.Collectors;
 
 /**
  * visit variables after the first run through, this finds cross loop dependencies.
+ * One visitor is used for a whole body, it changes the analysis state directly.
  * TODO: needs better explanation
  */
 @SuppressWarnings({"FieldMayBeFinal", "unused"})
@@ -22,6 +22,8 @@ public class IndexVisitor extends AbstractStmtSwitch {
     private PhiVariableContainer pvc;
 
     // TODO: not sure if this is needed
+    // TODO: this may be incorrect. To be an intra-loop dependency a variable must be based off
+    //         of a phi variable, and have some sort of augmentation done to it (e.g. pv1 - 1).
     /**
      * the list of vars that have been defined so far on the second iter run through
      */
@@ -48,32 +50,23 @@ public class IndexVisitor extends AbstractStmtSwitch {
      * constructor for the Index visitor
      * @param pvc the phi variables
      * @param second_iter_def_vars the list of vars that have been defined so far on the second iter run through
+     *                             (changed in place)
      * @param top_phi_var_names A list of the _original_ phi variables that is queried on the second iteration
      * @param constants the constants
-     * @param graph the current graph
+     * @param graph the SCC graph (changed in place)
      * @param blf construct to get line numbers correctly
      */
     IndexVisitor(PhiVariableContainer pvc, Set<String> second_iter_def_vars,
                  Set<String> top_phi_var_names, Map<String, Integer> constants, SCCGraph graph,
                  BodyLineFinder blf) {
-        this.pvc = new PhiVariableContainer(pvc);
-        this.second_iter_def_vars = new HashSet<>(second_iter_def_vars);
-        this.top_phi_var_names = new HashSet<>(top_phi_var_names);
-        this.graph = new SCCGraph(graph);
+        this.pvc = pvc;
+        this.second_iter_def_vars = second_iter_def_vars;
+        this.top_phi_var_names = top_phi_var_names;
+        this.graph = graph;
         this.constants = constants;
         this.blf = blf;
     }
 
-    /**
-     * getter for the second iter defs
-     * @return the list of vars that have been defined so far on the second iter run through
-     */
-    Set<String> get_second_iter_def_vars() {
-        // TODO: this may be incorrect. To be an intra-loop dependency a variable must be based off
-        //         of a phi variable, and have some sort of augmentation done to it (e.g. pv1 - 1).
-        return new HashSet<>(second_iter_def_vars);
-    }
-
     /**
      * @param stmt get the read or write enum based on the passed statement
      * @return the ReadWrite enum
@@ -145,30 +138,6 @@ public class IndexVisitor extends AbstractStmtSwitch {
         }
     }
 
-    /**
-     * getter for the original phi vars
-     * @return A list of the _original_ phi variables that is queried on the second iteration
-     */
-    Set<String> get_top_phi_var_names() {
-        return new HashSet<>(top_phi_var_names);
-    }
-
-    /**
-     * a getter for the possibly changed graph
-     * @return the graph
-     */
-    public SCCGraph get_graph() {
-        return new SCCGraph(graph);
-    }
-
-    /**
-     * getter for the phi vars
-     * @return the phi var container
-     */
-    PhiVariableContainer get_pvc() {
-        return new PhiVariableContainer(pvc);
-    }
-
     @Override
     public void caseBreakpointStmt(BreakpointStmt stmt) {
         if(stmt.containsArrayRef()) {
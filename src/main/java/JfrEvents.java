@@ -0,0 +1,176 @@
+import soot.toolkits.graph.Block;
+
+import java.util.List;
+
+/**
+ * The JFR events of the analysis, as seen by the rest of the analysis. The event classes (SolveEvent, BlockEvent
+ * and GraphEvent) extend jdk.jfr.Event, which Java 8 before 8u262 does not have, so they live in src/jfr/java and
+ * are only compiled by the jfr profile of pom.xml, together with JfrEventFactory which makes them. Everything else
+ * only uses the interfaces here: the factory is looked up once, and while an event is not enabled (no recording is
+ * running) or the factory (or jdk.jfr) is missing every start method returns the shared NO_OP event, so nothing is
+ * made. A started event is timed from its construction.
+ */
+class JfrEvents {
+    /**
+     * an event for solving index equations (see SolveEvent)
+     */
+    interface Solve {
+        /**
+         * stop timing a solve and record it
+         * @param solvers the solvers of the equations that were solved
+         * @param backend the backend that solved them
+         * @param result the d values found (null if the equation could not be solved in process)
+         */
+        void finish(List<Solver> solvers, SolverBackend backend, Object result);
+    }
+
+    /**
+     * an event for a block processed by the BFS of a loop (see BlockEvent)
+     */
+    interface ProcessBlock {
+        /**
+         * stop timing a block and record it
+         * @param body_name the body the block is in
+         * @param b the block
+         * @param head the head block of the loop
+         * @param second_iter true iff this is the second BFS iteration
+         */
+        void finish(String body_name, Block b, Block head, boolean second_iter);
+    }
+
+    /**
+     * an event for a graph printed or written (see GraphEvent)
+     */
+    interface Graph {
+        /**
+         * stop timing the print of a graph and record it
+         * @param graph_name the name of the graph
+         * @param nodes the number of nodes of the graph
+         * @param edges the number of edges of the graph
+         */
+        void finish_print(String graph_name, int nodes, int edges);
+
+        /**
+         * stop timing the write of a graph and record it
+         * @param graph_name the name of the graph file
+         * @param mode the render mode the file was written in
+         * @param bytes the size of the file
+         */
+        void finish_write(String graph_name, RenderMode mode, long bytes);
+    }
+
+    /**
+     * makes the events (see JfrEventFactory)
+     */
+    interface Factory {
+        /**
+         * start timing a solve
+         * @return the event or NO_OP if the event is not enabled
+         */
+        Solve start_solve();
+
+        /**
+         * start timing a block
+         * @return the event or NO_OP if the event is not enabled
+         */
+        ProcessBlock start_block();
+
+        /**
+         * start timing a graph
+         * @return the event or NO_OP if the event is not enabled
+         */
+        Graph start_graph();
+    }
+
+    /**
+     * an event that records nothing, used for every event while no recording is running (or JFR is missing)
+     */
+    static final class NoOp implements Solve, ProcessBlock, Graph {
+        /**
+         * record nothing
+         * @param solvers the solvers of the equations that were solved
+         * @param backend the backend that solved them
+         * @param result the d values found
+         */
+        @Override
+        public void finish(List<Solver> solvers, SolverBackend backend, Object result) {
+        }
+
+        /**
+         * record nothing
+         * @param body_name the body the block is in
+         * @param b the block
+         * @param head the head block of the loop
+         * @param second_iter true iff this is the second BFS iteration
+         */
+        @Override
+        public void finish(String body_name, Block b, Block head, boolean second_iter) {
+        }
+
+        /**
+         * record nothing
+         * @param graph_name the name of the graph
+         * @param nodes the number of nodes of the graph
+         * @param edges the number of edges of the graph
+         */
+        @Override
+        public void finish_print(String graph_name, int nodes, int edges) {
+        }
+
+        /**
+         * record nothing
+         * @param graph_name the name of the graph file
+         * @param mode the render mode the file was written in
+         * @param bytes the size of the file
+         */
+        @Override
+        public void finish_write(String graph_name, RenderMode mode, long bytes) {
+        }
+    }
+
+    /**
+     * the shared event that records nothing
+     */
+    static final NoOp NO_OP = new NoOp();
+    /**
+     * the factory of the jfr profile (null if it was not built or jdk.jfr is missing)
+     */
+    private static final Factory FACTORY = find_factory();
+
+    /**
+     * find the factory of the event classes
+     * @return the factory or null if it was not built or jdk.jfr is missing
+     */
+    private static Factory find_factory() {
+        try {
+            return Class.forName("JfrEventFactory", true, JfrEvents.class.getClassLoader())
+                    .asSubclass(Factory.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * start timing a solve
+     * @return the event or NO_OP if it is not recorded
+     */
+    static Solve start_solve() {
+        return Utils.not_null(FACTORY) ? FACTORY.start_solve() : NO_OP;
+    }
+
+    /**
+     * start timing a block
+     * @return the event or NO_OP if it is not recorded
+     */
+    static ProcessBlock start_block() {
+        return Utils.not_null(FACTORY) ? FACTORY.start_block() : NO_OP;
+    }
+
+    /**
+     * start timing a graph
+     * @return the event or NO_OP if it is not recorded
+     */
+    static Graph start_graph() {
+        return Utils.not_null(FACTORY) ? FACTORY.start_graph() : NO_OP;
+    }
+}
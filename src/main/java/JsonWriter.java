@@ -0,0 +1,256 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * A small streaming JSON writer (nothing is kept in memory but the nesting). Objects and arrays are opened and
+ * closed explicitly, members of an object are written with name() followed by a value or a nested object or array.
+ * The output is indented with two spaces per level.
+ */
+class JsonWriter implements Closeable {
+    /**
+     * the writer the JSON goes to
+     */
+    private final Writer out;
+    /**
+     * for every open object or array: true iff nothing has been written in it yet
+     */
+    private final Deque<Boolean> empty;
+    /**
+     * true iff a name was written and its value has not been written yet
+     */
+    private boolean after_name;
+
+    /**
+     * constructor for the JSON writer
+     * @param out the writer the JSON goes to (closed by close())
+     */
+    JsonWriter(Writer out) {
+        this.out = out;
+        this.empty = new ArrayDeque<>();
+        this.after_name = false;
+    }
+
+    /**
+     * start a value: write the separator and the indentation (nothing after a name)
+     * @throws IOException if the writer fails
+     */
+    private void before_value() throws IOException {
+        if(after_name) {
+            after_name = false;
+            return;
+        }
+        if(!empty.isEmpty()) {
+            if(!empty.pop()) {
+                out.write(',');
+            }
+            empty.push(false);
+            new_line();
+        }
+    }
+
+    /**
+     * write a new line and the indentation of the current level
+     * @throws IOException if the writer fails
+     */
+    private void new_line() throws IOException {
+        out.write('\n');
+        for(int i = 0; i < empty.size(); i++) {
+            out.write("  ");
+        }
+    }
+
+    /**
+     * open an object or an array
+     * @param c the opening character
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    private JsonWriter open(char c) throws IOException {
+        before_value();
+        out.write(c);
+        empty.push(true);
+        return this;
+    }
+
+    /**
+     * close an object or an array
+     * @param c the closing character
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    private JsonWriter close(char c) throws IOException {
+        boolean was_empty = empty.pop();
+        if(!was_empty) {
+            new_line();
+        }
+        out.write(c);
+        if(empty.isEmpty()) {
+            out.write('\n');
+        }
+        return this;
+    }
+
+    /**
+     * open an object
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter begin_object() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * close the current object
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter end_object() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * open an array
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter begin_array() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * close the current array
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter end_array() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * write the name of the next member of the current object
+     * @param name the name
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter name(String name) throws IOException {
+        before_value();
+        write_string(name);
+        out.write(": ");
+        after_name = true;
+        return this;
+    }
+
+    /**
+     * write a string value (null is written as null)
+     * @param value the value
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter value(String value) throws IOException {
+        before_value();
+        if(!Utils.not_null(value)) {
+            out.write("null");
+        } else {
+            write_string(value);
+        }
+        return this;
+    }
+
+    /**
+     * write an integer value
+     * @param value the value
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter value(long value) throws IOException {
+        before_value();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * write a decimal value (rounded to three decimals, NaN and infinity are written as null)
+     * @param value the value
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter value(double value) throws IOException {
+        before_value();
+        if(Double.isNaN(value) || Double.isInfinite(value)) {
+            out.write("null");
+        } else {
+            out.write(String.format(Locale.ROOT, "%.3f", value));
+        }
+        return this;
+    }
+
+    /**
+     * write a boolean value
+     * @param value the value
+     * @return this writer
+     * @throws IOException if the writer fails
+     */
+    JsonWriter value(boolean value) throws IOException {
+        before_value();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * write a quoted and escaped string
+     * @param s the string
+     * @throws IOException if the writer fails
+     */
+    private void write_string(String s) throws IOException {
+        out.write('"');
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        out.write(String.format("\\u%04x", (int)c));
+                    } else {
+                        out.write(c);
+                    }
+                    break;
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * flush the writer
+     * @throws IOException if the writer fails
+     */
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * close the writer
+     * @throws IOException if the writer fails
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
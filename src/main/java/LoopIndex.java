@@ -0,0 +1,89 @@
+import org.tinylog.Logger;
+import soot.Unit;
+import soot.jimple.IfStmt;
+import soot.jimple.Stmt;
+import soot.jimple.toolkits.annotation.logic.Loop;
+import soot.toolkits.graph.Block;
+
+import java.util.*;
+
+/**
+ * index of the loops of a body keyed by block: the head block of every loop maps to its loop and to the
+ * blocks its exits jump to. Built once per body from the LoopFinder output.
+ */
+class LoopIndex {
+    /**
+     * the head block of every loop to the loop
+     */
+    private final Map<Block, Loop> head_loops;
+    /**
+     * the head block of every loop to the blocks the exits of the loop jump to
+     * (this will be important for nested loops)
+     */
+    private final Map<Block, Set<Block>> head_exits;
+
+    /**
+     * build the index
+     * @param loops the loops of the body
+     * @param blocks the blocks of the body
+     */
+    LoopIndex(Set<Loop> loops, List<Block> blocks) {
+        this.head_loops = new HashMap<>();
+        this.head_exits = new HashMap<>();
+        Map<Unit, Block> head_blocks = new IdentityHashMap<>();
+        for(Block b : blocks) {
+            head_blocks.put(b.getHead(), b);
+        }
+        for(Loop l : loops) {
+            Stmt head = l.getHead();
+            Block head_block = head_blocks.get(head);
+            if(!Utils.not_null(head_block)) {
+                Logger.warn("Loop head does not start a block: " + head);
+                continue;
+            }
+            if(l.getLoopExits().isEmpty()) {
+                Logger.debug("Loop has no exits, skipping: " + head);
+                continue;
+            }
+            head_loops.putIfAbsent(head_block, l);
+            Set<Block> exits = head_exits.computeIfAbsent(head_block, k -> new HashSet<>());
+            for(Stmt exit : l.getLoopExits()) {
+                IfStmt real_exit = (IfStmt)exit;
+                Unit target = real_exit.getTarget();
+                Logger.debug("Head/Exit found => " + head + " ----> " + target);
+                Block target_block = head_blocks.get(target);
+                if(Utils.not_null(target_block)) {
+                    exits.add(target_block);
+                } else {
+                    Logger.warn("Loop exit target does not start a block: " + target);
+                }
+            }
+        }
+    }
+
+    /**
+     * check if a block is the head of a loop
+     * @param b the block
+     * @return true iff the block is the head of a loop
+     */
+    boolean is_head(Block b) {
+        return head_loops.containsKey(b);
+    }
+
+    /**
+     * get the loops that have a head block and exits (the loops the analysis parses)
+     * @return the loops
+     */
+    Collection<Loop> get_loops() {
+        return Collections.unmodifiableCollection(head_loops.values());
+    }
+
+    /**
+     * get the blocks the exits of a loop jump to
+     * @param head the head block of the loop
+     * @return the exit blocks (empty if the block is not a loop head)
+     */
+    Set<Block> get_exits(Block head) {
+        return Collections.unmodifiableSet(head_exits.getOrDefault(head, Collections.emptySet()));
+    }
+}
@@ -0,0 +1,375 @@
+import soot.jimple.AssignStmt;
+import soot.jimple.Stmt;
+import soot.jimple.toolkits.annotation.logic.Loop;
+import soot.shimple.PhiExpr;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * the results of analyzing one loop of a body, without any reference to Soot objects (see MethodResult): the part
+ * of the def/use and SCC graphs that lies inside the loop and the phi variables the loop defines. A node is inside
+ * a loop if its statement is (an array phi node if its if statement is), an edge if both of its ends are. The
+ * statements of a nested loop are statements of the outer loop as well. A statement of the loop that accesses an
+ * array but has no node was not modelled by the analysis, a loop with such a statement is never parallelizable.
+ * The dependences of a loop are kept by their index in the dependences of the method, which is how they are
+ * written (see write()).
+ */
+class LoopResult {
+    /**
+     * the head statement of the loop
+     */
+    private final String head;
+    /**
+     * the source line of the loop (-1 if unknown)
+     */
+    private final int source_line;
+    /**
+     * the number of statements of the loop that access an array but have no def/use node
+     */
+    private final int unmodelled_accesses;
+    /**
+     * the def/use nodes inside the loop
+     */
+    private final List<ArrayAccess> nodes;
+    /**
+     * the def/use edges inside the loop (def statement, use statement)
+     */
+    private final List<String[]> def_use_edges;
+    /**
+     * the indexes of the dependences inside the loop in the dependences of the method
+     */
+    private final List<Integer> dependence_ids;
+    /**
+     * the dependences (SCC edges) inside the loop
+     */
+    private final List<Dependence> dependences;
+    /**
+     * the phi variables defined in the loop
+     */
+    private final List<String> phi_vars;
+    /**
+     * the phi variables defined in the loop that are looping index variables
+     */
+    private final List<String> index_vars;
+
+    /**
+     * constructor for a loop result
+     * @param head the head statement of the loop
+     * @param source_line the source line of the loop (-1 if unknown)
+     * @param unmodelled_accesses the number of statements of the loop that access an array but have no def/use node
+     * @param nodes the def/use nodes inside the loop
+     * @param def_use_edges the def/use edges inside the loop (def statement, use statement)
+     * @param dependence_ids the indexes of the dependences inside the loop in the dependences of the method
+     * @param dependences the dependences inside the loop (the dependences of the method at dependence_ids)
+     * @param phi_vars the phi variables defined in the loop
+     * @param index_vars the phi variables defined in the loop that are looping index variables
+     */
+    LoopResult(String head, int source_line, int unmodelled_accesses, List<ArrayAccess> nodes,
+               List<String[]> def_use_edges, List<Integer> dependence_ids, List<Dependence> dependences,
+               List<String> phi_vars, List<String> index_vars) {
+        this.head = head;
+        this.source_line = source_line;
+        this.unmodelled_accesses = unmodelled_accesses;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.def_use_edges = Collections.unmodifiableList(def_use_edges);
+        this.dependence_ids = Collections.unmodifiableList(dependence_ids);
+        this.dependences = Collections.unmodifiableList(dependences);
+        this.phi_vars = Collections.unmodifiableList(phi_vars);
+        this.index_vars = Collections.unmodifiableList(index_vars);
+    }
+
+    /**
+     * get the statement that places a def/use node in the body
+     * @param n the node
+     * @return the statement of the node, the if statement of an array phi node (null if there is none)
+     */
+    private static Stmt get_anchor(Node n) {
+        if(Utils.not_null(n.get_stmt())) {
+            return n.get_stmt();
+        }
+        if(n.get_av() instanceof ArrayVersionPhi) {
+            return ((ArrayVersionPhi)n.get_av()).get_mux_node().get_if_stmt();
+        }
+        return null;
+    }
+
+    /**
+     * get the source line of a loop: the smallest line of its statements (the statements are not in source order
+     * and phi statements have no line)
+     * @param loop the loop
+     * @return the source line (-1 if no statement has one)
+     */
+    private static int get_source_line(Loop loop) {
+        int line = -1;
+        for(Stmt s : loop.getLoopStatements()) {
+            int l = s.getJavaSourceStartLineNumber();
+            if(l > 0 && (line < 0 || l < line)) {
+                line = l;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * make the result of a loop of a finished analysis
+     * @param loop the loop
+     * @param analysis the analysis of the body of the loop
+     * @param scc_edges the SCC edges of the body, in the order of the dependences of the method
+     * @param method_dependences the dependences of the method
+     * @return the result
+     */
+    static LoopResult of(Loop loop, Analysis analysis, List<SCCEdge> scc_edges, List<Dependence> method_dependences) {
+        Set<Stmt> stmts = new HashSet<>(loop.getLoopStatements());
+        List<ArrayAccess> nodes = new ArrayList<>();
+        Set<Stmt> node_stmts = new HashSet<>();
+        for(Node n : analysis.get_def_use_graph().get_nodes().values()) {
+            if(stmts.contains(get_anchor(n))) {
+                nodes.add(ArrayAccess.of(n));
+                node_stmts.add(n.get_stmt());
+            }
+        }
+        int unmodelled_accesses = 0;
+        for(Stmt s : stmts) {
+            if(s.containsArrayRef() && !node_stmts.contains(s)) {
+                unmodelled_accesses++;
+            }
+        }
+        List<String[]> def_use_edges = new ArrayList<>();
+        for(Edge e : analysis.get_def_use_graph().get_edges().values()) {
+            if(stmts.contains(get_anchor(e.get_def())) && stmts.contains(get_anchor(e.get_use()))) {
+                def_use_edges.add(new String[]{e.get_def().get_aug_stmt_str(), e.get_use().get_aug_stmt_str()});
+            }
+        }
+        List<Integer> dependence_ids = new ArrayList<>();
+        List<Dependence> dependences = new ArrayList<>();
+        for(int i = 0; i < scc_edges.size(); i++) {
+            SCCEdge e = scc_edges.get(i);
+            if(stmts.contains(e.get_src().get_stmt()) && stmts.contains(e.get_dest().get_stmt())) {
+                dependence_ids.add(i);
+                dependences.add(method_dependences.get(i));
+            }
+        }
+        List<String> phi_vars = new ArrayList<>();
+        List<String> index_vars = new ArrayList<>();
+        for(Stmt s : loop.getLoopStatements()) {
+            if(s instanceof AssignStmt && ((AssignStmt)s).getRightOp() instanceof PhiExpr) {
+                String name = ((AssignStmt)s).getLeftOp().toString();
+                PhiVariable pv = analysis.get_phi_vars().get_phi_var(name);
+                if(Utils.not_null(pv)) {
+                    phi_vars.add(name);
+                    if(pv.is_looping_index_var()) {
+                        index_vars.add(name);
+                    }
+                }
+            }
+        }
+        Stmt head = loop.getHead();
+        return new LoopResult(head.toString(), get_source_line(loop),
+                unmodelled_accesses, nodes, def_use_edges, dependence_ids, dependences, phi_vars, index_vars);
+    }
+
+    /**
+     * get the dependences of a loop that was read back
+     * @param dependence_ids the indexes of the dependences of the loop in the dependences of the method
+     * @param method_dependences the dependences of the method
+     * @return the dependences of the loop
+     * @throws IOException if an index is not a dependence of the method
+     */
+    static List<Dependence> get_dependences(List<Integer> dependence_ids, List<Dependence> method_dependences)
+            throws IOException {
+        List<Dependence> dependences = new ArrayList<>(dependence_ids.size());
+        for(int id : dependence_ids) {
+            if(id < 0 || id >= method_dependences.size()) {
+                throw new IOException("Bad dependence index " + id + " of a loop.");
+            }
+            dependences.add(method_dependences.get(id));
+        }
+        return dependences;
+    }
+
+    /**
+     * getter for the head statement
+     * @return the head statement of the loop
+     */
+    String get_head() {
+        return head;
+    }
+
+    /**
+     * getter for the source line
+     * @return the source line of the loop (-1 if unknown)
+     */
+    int get_source_line() {
+        return source_line;
+    }
+
+    /**
+     * getter for the unmodelled accesses
+     * @return the number of statements of the loop that access an array but have no def/use node
+     */
+    int get_unmodelled_accesses() {
+        return unmodelled_accesses;
+    }
+
+    /**
+     * getter for the def/use nodes
+     * @return the def/use nodes inside the loop
+     */
+    List<ArrayAccess> get_nodes() {
+        return nodes;
+    }
+
+    /**
+     * getter for the def/use edges
+     * @return the def/use edges inside the loop (def statement, use statement)
+     */
+    List<String[]> get_def_use_edges() {
+        return def_use_edges;
+    }
+
+    /**
+     * getter for the dependence indexes
+     * @return the indexes of the dependences inside the loop in the dependences of the method
+     */
+    List<Integer> get_dependence_ids() {
+        return dependence_ids;
+    }
+
+    /**
+     * getter for the dependences
+     * @return the dependences inside the loop
+     */
+    List<Dependence> get_dependences() {
+        return dependences;
+    }
+
+    /**
+     * getter for the phi variables
+     * @return the phi variables defined in the loop
+     */
+    List<String> get_phi_vars() {
+        return phi_vars;
+    }
+
+    /**
+     * getter for the index variables
+     * @return the phi variables defined in the loop that are looping index variables
+     */
+    List<String> get_index_vars() {
+        return index_vars;
+    }
+
+    /**
+     * count the loop carried dependences of the loop
+     * @return the number of dependences with a d value other than 0
+     */
+    int get_carried_count() {
+        int count = 0;
+        for(Dependence d : dependences) {
+            if(d.is_loop_carried()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * check if the iterations of the loop can run in parallel
+     * @return true iff every array access of the loop was modelled and no dependence inside the loop is loop carried
+     */
+    boolean is_parallelizable() {
+        return unmodelled_accesses == 0 && get_carried_count() == 0;
+    }
+
+    /**
+     * write the result (the dependences by their index, see MethodResult.write())
+     * @param out the output stream
+     * @throws IOException if the stream can not be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(head);
+        out.writeInt(source_line);
+        out.writeInt(unmodelled_accesses);
+        out.writeInt(nodes.size());
+        for(ArrayAccess n : nodes) {
+            out.writeUTF(n.get_id());
+            out.writeUTF(n.get_stmt());
+            out.writeUTF(n.get_type());
+            out.writeInt(n.get_line());
+        }
+        out.writeInt(def_use_edges.size());
+        for(String[] edge : def_use_edges) {
+            out.writeUTF(edge[0]);
+            out.writeUTF(edge[1]);
+        }
+        out.writeInt(dependence_ids.size());
+        for(int id : dependence_ids) {
+            out.writeInt(id);
+        }
+        write_names(out, phi_vars);
+        write_names(out, index_vars);
+    }
+
+    /**
+     * write a list of names
+     * @param out the output stream
+     * @param names the names
+     * @throws IOException if the stream can not be written
+     */
+    private static void write_names(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for(String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    /**
+     * read a list of names written by write_names()
+     * @param in the input stream
+     * @return the names
+     * @throws IOException if the stream is truncated
+     */
+    private static List<String> read_names(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        List<String> names = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+
+    /**
+     * read a result written by write()
+     * @param in the input stream
+     * @param method_dependences the dependences of the method
+     * @return the result
+     * @throws IOException if the stream is truncated or a dependence index is bad
+     */
+    static LoopResult read(DataInputStream in, List<Dependence> method_dependences) throws IOException {
+        String head = in.readUTF();
+        int source_line = in.readInt();
+        int unmodelled_accesses = in.readInt();
+        int n = in.readInt();
+        List<ArrayAccess> nodes = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            nodes.add(new ArrayAccess(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt()));
+        }
+        n = in.readInt();
+        List<String[]> def_use_edges = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            def_use_edges.add(new String[]{in.readUTF(), in.readUTF()});
+        }
+        n = in.readInt();
+        List<Integer> dependence_ids = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            dependence_ids.add(in.readInt());
+        }
+        List<String> phi_vars = read_names(in);
+        List<String> index_vars = read_names(in);
+        return new LoopResult(head, source_line, unmodelled_accesses, nodes, def_use_edges,
+                dependence_ids, get_dependences(dependence_ids, method_dependences), phi_vars, index_vars);
+    }
+}
@@ -3,16 +3,24 @@ import org.apache.commons.lang3.SystemUtils;
 import org.tinylog.Logger;
 import soot.Pack;
 import soot.PackManager;
+import soot.SceneTransformer;
+import soot.SourceLocator;
 import soot.Transform;
+import soot.asm.AsmClassProvider;
 import soot.options.Options;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.MemoryType;
 import java.lang.management.MemoryUsage;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Main {
 
@@ -29,15 +37,135 @@ public class Main {
 	}
 
 	/**
-	 * main method
+	 * load a result snapshot and log the dependences and loops of every method in it
+	 * @param filename the name of the snapshot file
+	 */
+	private static void load_snapshot(String filename) {
+		try {
+			long start = System.nanoTime();
+			ResultSnapshot rs = new ResultSnapshot(filename);
+			long open_time = System.nanoTime() - start;
+			long decode_time = 0L;
+			int loops = 0;
+			for(String name : rs.get_method_names()) {
+				long decode_start = System.nanoTime();
+				MethodResult result = rs.get(name);
+				decode_time += System.nanoTime() - decode_start;
+				int parallel = 0;
+				for(LoopResult l : result.get_loops()) {
+					parallel += l.is_parallelizable() ? 1 : 0;
+				}
+				loops += result.get_loops().size();
+				Logger.info(String.format("\t%-40s %4d dependence(s) %3d loop(s) %3d parallelizable", name,
+						result.get_dependences().size(), result.get_loops().size(), parallel));
+			}
+			Logger.info(String.format("Loaded %d method(s), %d loop(s) and %d string(s) from %s: %.3f ms to open, "
+					+ "%.3f ms to decode every method", rs.get_method_count(), loops, rs.get_string_count(), filename,
+					open_time * 1e-6, decode_time * 1e-6));
+		} catch (IOException e) {
+			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+			if(Constants.PRINT_ST) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * add the transforms that time the Soot phases before the analysis. The first one runs in the wspp pack, right
+	 * after Soot loaded the Scene (with -w and line numbers, Soot builds the Jimple and the Shimple bodies of the
+	 * analyzed classes while it does so, they are part of the scene_load time). The second one runs in the wstp
+	 * pack, after the call graph.
+	 * @param pm the pack manager
+	 * @param soot_start the time Soot was started (see Metrics.start())
+	 */
+	private static void add_phase_timers(PackManager pm, long soot_start) {
+		AtomicLong cg_start = new AtomicLong(soot_start);
+		pm.getPack("wspp").add(new Transform("wspp.metrics", new SceneTransformer() {
+			@Override
+			protected void internalTransform(String phaseName, Map<String, String> options) {
+				Metrics.stop(Constants.METRIC_SCENE_LOAD, soot_start);
+				cg_start.set(Metrics.start());
+			}
+		}));
+		pm.getPack("wstp").add(new Transform("wstp.metrics", new SceneTransformer() {
+			@Override
+			protected void internalTransform(String phaseName, Map<String, String> options) {
+				Metrics.stop(Constants.METRIC_CALL_GRAPH, cg_start.get());
+			}
+		}));
+	}
+
+	/**
+	 * get the classes to analyze from the command line: the -c list (comma separated), the -cf file
+	 * (one class per line, # starts a comment) and the -cd directory (every .java file in it)
+	 * @param cmd the parsed command line
+	 * @return the class names (in order, without duplicates)
+	 */
+	private static List<String> get_classes(CommandLine cmd) {
+		Set<String> classes = new LinkedHashSet<>();
+		if(cmd.hasOption("class")) {
+			for(String c : cmd.getOptionValue("class").split(",")) {
+				if(!c.trim().isEmpty()) {
+					classes.add(c.trim());
+				}
+			}
+		}
+		try {
+			if(cmd.hasOption("classfile")) {
+				for(String line : Files.readAllLines(Paths.get(cmd.getOptionValue("classfile")))) {
+					String c = line.split("#", 2)[0].trim();
+					if(!c.isEmpty()) {
+						classes.add(c);
+					}
+				}
+			}
+			if(cmd.hasOption("classdir")) {
+				List<String> found = new ArrayList<>();
+				try(DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(cmd.getOptionValue("classdir")),
+						"*" + Constants.JAVA_EXT)) {
+					for(Path p : stream) {
+						String name = p.getFileName().toString();
+						found.add(name.substring(0, name.length() - Constants.JAVA_EXT.length()));
+					}
+				}
+				Collections.sort(found);
+				classes.addAll(found);
+			}
+		} catch (IOException e) {
+			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+			if(Constants.PRINT_ST) {
+				e.printStackTrace();
+			}
+			System.exit(1);
+		}
+		return new ArrayList<>(classes);
+	}
+
+	/**
+	 * main method. A failed check of the analysis throws an IllegalStateException, which ends the run the way
+	 * it always has: logged, with exit code 0.
 	 * @param argv arguments
 	 */
 	public static void main(String[] argv) {
+		try {
+			run(argv);
+		} catch (IllegalStateException e) {
+			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+			if(Constants.PRINT_ST) {
+				e.printStackTrace();
+			}
+			System.exit(0);
+		}
+	}
+
+	/**
+	 * parse the arguments and run the analysis
+	 * @param argv arguments
+	 */
+	private static void run(String[] argv) {
 		// needed fix...
 
 		System.setProperty("tinylog.configuration", "tinylog.properties");
-		Utils.refresh_dir(Constants.GRAPH_DIR);
-		Utils.refresh_dir(Constants.Z3_DIR);
 
 		org.apache.commons.cli.Options options = new org.apache.commons.cli.Options();
 
@@ -68,11 +196,36 @@ public class Main {
 		Option c = Option.builder("c")
 				.hasArg()
 				.longOpt("class")
-				.desc("name of the class to analyze")
-				.required(true)
+				.desc("name of the class to analyze (a comma separated list analyzes them all in one run)")
+				.required(false)
 				.build();
 		options.addOption(c);
 
+		Option class_file = Option.builder("cf")
+				.hasArg()
+				.longOpt("classfile")
+				.desc("file listing the classes to analyze (one per line)")
+				.required(false)
+				.build();
+		options.addOption(class_file);
+
+		Option class_dir = Option.builder("cd")
+				.hasArg()
+				.longOpt("classdir")
+				.desc("analyze the class of every .java file in this directory")
+				.required(false)
+				.build();
+		options.addOption(class_dir);
+
+		Option out_dir_opt = Option.builder("o")
+				.hasArg()
+				.longOpt("outdir")
+				.desc("directory for the per class results of a batch run or the server, default: "
+						+ Constants.DEFAULT_BATCH_DIR)
+				.required(false)
+				.build();
+		options.addOption(out_dir_opt);
+
 		Option st_test = Option.builder("S")
 				.longOpt("StatementTest")
 				.desc("flag to tell if we want to be in statement test mode")
@@ -80,6 +233,117 @@ public class Main {
 				.build();
 		options.addOption(c);
 
+		Option solver = Option.builder("s")
+				.hasArg()
+				.longOpt("solver")
+				.desc("backend used to solve index equations (JAVA or Z3), default: " + Constants.DEFAULT_SOLVER_BACKEND)
+				.required(false)
+				.build();
+		options.addOption(solver);
+
+		Option solver_cache_opt = Option.builder("sc")
+				.hasArg()
+				.longOpt("solvercache")
+				.desc("file used to cache solver results across runs, default: " + Constants.SOLVER_CACHE_FILE)
+				.required(false)
+				.build();
+		options.addOption(solver_cache_opt);
+
+		Option no_cache = Option.builder("nc")
+				.longOpt("nocache")
+				.desc("do not read or write the solver cache file")
+				.required(false)
+				.build();
+		options.addOption(no_cache);
+
+		Option result_store_opt = Option.builder("rs")
+				.hasArg()
+				.longOpt("resultstore")
+				.desc("file holding the results of unchanged methods across runs, default: " + Constants.RESULT_STORE_FILE)
+				.required(false)
+				.build();
+		options.addOption(result_store_opt);
+
+		Option no_results = Option.builder("nr")
+				.longOpt("noresults")
+				.desc("analyze every method again, do not read or write the result store")
+				.required(false)
+				.build();
+		options.addOption(no_results);
+
+		Option threads = Option.builder("t")
+				.hasArg()
+				.longOpt("threads")
+				.desc("number of threads used to solve index equations, default: " + Constants.DEFAULT_SOLVER_THREADS)
+				.required(false)
+				.build();
+		options.addOption(threads);
+
+		Option graphs = Option.builder("g")
+				.hasArg()
+				.longOpt("graphs")
+				.desc("how graphs are written (OFF, DOT, PNG or SVG), default: " + Constants.DEFAULT_RENDER_MODE)
+				.required(false)
+				.build();
+		options.addOption(graphs);
+
+		Option render_threads = Option.builder("gt")
+				.hasArg()
+				.longOpt("graphthreads")
+				.desc("number of background threads used to write graphs, default: " + Constants.DEFAULT_RENDER_THREADS)
+				.required(false)
+				.build();
+		options.addOption(render_threads);
+
+		Option analysis_threads = Option.builder("at")
+				.hasArg()
+				.longOpt("analysisthreads")
+				.desc("number of threads used to analyze the method bodies of a server request, default: "
+						+ Constants.DEFAULT_ANALYSIS_THREADS)
+				.required(false)
+				.build();
+		options.addOption(analysis_threads);
+
+		Option server_opt = Option.builder("srv")
+				.hasArg()
+				.longOpt("server")
+				.desc("keep Soot loaded and serve analysis requests on this local port")
+				.required(false)
+				.build();
+		options.addOption(server_opt);
+
+		Option metrics_file = Option.builder("mf")
+				.hasArg()
+				.longOpt("metricsfile")
+				.desc("file the timers and counters of the run are written to (JSON), default: " + Constants.METRICS_FILE)
+				.required(false)
+				.build();
+		options.addOption(metrics_file);
+
+		Option report_file = Option.builder("rf")
+				.hasArg()
+				.longOpt("reportfile")
+				.desc("file the dependence report (JSON) is streamed to, default: " + Constants.REPORT_FILE)
+				.required(false)
+				.build();
+		options.addOption(report_file);
+
+		Option snapshot = Option.builder("ss")
+				.hasArg()
+				.longOpt("snapshot")
+				.desc("write the results of the run to this binary snapshot file")
+				.required(false)
+				.build();
+		options.addOption(snapshot);
+
+		Option load_snapshot = Option.builder("ls")
+				.hasArg()
+				.longOpt("loadsnapshot")
+				.desc("load a binary snapshot file, log its results and exit (nothing is analyzed)")
+				.required(false)
+				.build();
+		options.addOption(load_snapshot);
+
 		CommandLineParser parser = new DefaultParser();
 		HelpFormatter formatter = new HelpFormatter();
 		CommandLine cmd = null;
@@ -92,11 +356,74 @@ public class Main {
 			formatter.printHelp("utility-name", options);
 			System.exit(1);
 		}
+		if(cmd.hasOption("loadsnapshot")) {
+			load_snapshot(cmd.getOptionValue("loadsnapshot"));
+			return;
+		}
+		// loading a snapshot analyzes nothing, so the graphs and z3 files of the last run are only cleared now
+		Utils.refresh_dir(Constants.GRAPH_DIR);
+		Utils.refresh_dir(Constants.Z3_DIR);
 		String classpath = cmd.getOptionValue("classpath", Constants.DEFAULT_CP);
 		String rtpath = cmd.getOptionValue("rtpath", Constants.DEFAULT_RT_PATH);
 		String jcepath = cmd.getOptionValue("jcepath", Constants.DEFAULT_JCE_PATH);
 
-		String klass = cmd.getOptionValue("class");
+		List<String> classes = get_classes(cmd);
+		if(classes.isEmpty() && !cmd.hasOption("server")) {
+			Logger.error("No class to analyze, use -c, -cf or -cd.");
+			formatter.printHelp("utility-name", options);
+			System.exit(1);
+		}
+		// more than one class (or a list of them) is a batch: every class gets its own output directory
+		boolean batch = classes.size() > 1 || cmd.hasOption("classfile") || cmd.hasOption("classdir");
+		String out_dir = batch ? cmd.getOptionValue("outdir", Constants.DEFAULT_BATCH_DIR) : null;
+		try {
+			String backend = cmd.getOptionValue("solver", Constants.DEFAULT_SOLVER_BACKEND.toString());
+			Settings.set_solver_backend(SolverBackend.valueOf(backend.toUpperCase()));
+		} catch (IllegalArgumentException e) {
+			Logger.error("Unknown solver backend: " + cmd.getOptionValue("solver"));
+			formatter.printHelp("utility-name", options);
+			System.exit(1);
+		}
+		try {
+			Settings.set_solver_threads(Integer.parseInt(cmd.getOptionValue("threads",
+					Integer.toString(Constants.DEFAULT_SOLVER_THREADS))));
+		} catch (NumberFormatException e) {
+			Logger.error("Invalid thread count: " + cmd.getOptionValue("threads"));
+			formatter.printHelp("utility-name", options);
+			System.exit(1);
+		}
+		Logger.info(String.format("Solver backend: %s (%d thread(s))", Settings.get_solver_backend(),
+				Settings.get_solver_threads()));
+		try {
+			String mode = cmd.getOptionValue("graphs", Constants.DEFAULT_RENDER_MODE.toString());
+			Settings.set_render_mode(RenderMode.valueOf(mode.toUpperCase()));
+		} catch (IllegalArgumentException e) {
+			Logger.error("Unknown graph mode: " + cmd.getOptionValue("graphs"));
+			formatter.printHelp("utility-name", options);
+			System.exit(1);
+		}
+		try {
+			Settings.set_render_threads(Integer.parseInt(cmd.getOptionValue("graphthreads",
+					Integer.toString(Constants.DEFAULT_RENDER_THREADS))));
+		} catch (NumberFormatException e) {
+			Logger.error("Invalid graph thread count: " + cmd.getOptionValue("graphthreads"));
+			formatter.printHelp("utility-name", options);
+			System.exit(1);
+		}
+		Logger.info(String.format("Graphs: %s (%d thread(s))", Settings.get_render_mode(),
+				Settings.get_render_threads()));
+		try {
+			Settings.set_analysis_threads(Integer.parseInt(cmd.getOptionValue("analysisthreads",
+					Integer.toString(Constants.DEFAULT_ANALYSIS_THREADS))));
+		} catch (NumberFormatException e) {
+			Logger.error("Invalid analysis thread count: " + cmd.getOptionValue("analysisthreads"));
+			formatter.printHelp("utility-name", options);
+			System.exit(1);
+		}
+		if(cmd.hasOption("analysisthreads") && !cmd.hasOption("server")) {
+			Logger.warn("-at only applies to the server, the bodies are analyzed on Soot's threads.");
+		}
+		Logger.info(String.format("Analysis threads: %d", Settings.get_analysis_threads()));
 
 		if(SystemUtils.IS_OS_WINDOWS) {
 			Logger.info( "Running on Windows OS.");
@@ -104,10 +431,65 @@ public class Main {
 		} else if(SystemUtils.IS_OS_MAC || SystemUtils.IS_OS_LINUX) {
 			Logger.info( "Running on unix-like OS.");
 		}
+		SolverCache solver_cache;
+		if(cmd.hasOption("nocache")) {
+			solver_cache = new SolverCache();
+		} else {
+			solver_cache = new SolverCache(new SolverCacheFile(cmd.getOptionValue("solvercache", Constants.SOLVER_CACHE_FILE)));
+		}
+		ResultStore result_store;
+		if(cmd.hasOption("noresults")) {
+			result_store = new ResultStore();
+		} else {
+			result_store = new ResultStore(cmd.getOptionValue("resultstore", Constants.RESULT_STORE_FILE));
+		}
+		String metrics_filename = cmd.getOptionValue("metricsfile", Constants.METRICS_FILE);
+		if(cmd.hasOption("server")) {
+			long server_start = System.currentTimeMillis();
+			try {
+				new AnalysisServer(Integer.parseInt(cmd.getOptionValue("server")), rtpath, jcepath, solver_cache,
+						cmd.hasOption("noresults") ? null : result_store,
+						cmd.getOptionValue("outdir", Constants.DEFAULT_BATCH_DIR)).run();
+			} catch (NumberFormatException e) {
+				Logger.error("Invalid port: " + cmd.getOptionValue("server"));
+				formatter.printHelp("utility-name", options);
+				System.exit(1);
+			} catch (IOException e) {
+				Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+				if(Constants.PRINT_ST) {
+					e.printStackTrace();
+				}
+			}
+			solver_cache.close();
+			result_store.close();
+			GraphRenderer.finish();
+			Metrics.write(metrics_filename, classes, System.currentTimeMillis() - server_start);
+			return;
+		}
 		classpath = classpath + File.pathSeparator + rtpath + File.pathSeparator + jcepath;
-		compile_program(klass);
+		if(batch) {
+			Utils.refresh_dir(out_dir);
+			for(String klass : classes) {
+				String class_dir_name = AnalysisDispatcher.get_class_dir(out_dir, klass);
+				Utils.refresh_dir(class_dir_name);
+				Utils.refresh_dir(class_dir_name + File.separator + Constants.GRAPH_DIR);
+				Utils.refresh_dir(class_dir_name + File.separator + Constants.Z3_DIR);
+			}
+		}
+		long compile_start = Metrics.start();
+		ProgramCompiler compiler = new ProgramCompiler(Constants.DEFAULT_SRC_DIR, Constants.DEFAULT_CP);
+		if(compiler.compile(classes)) {
+			// the classes compiled in this run are read from memory, the others from the class path
+			SourceLocator.v().setClassProviders(new ArrayList<>(Arrays.asList(compiler.get_class_provider(),
+					new AsmClassProvider())));
+		} else {
+			for(String klass : classes) {
+				compile_program(klass);
+			}
+		}
+		Metrics.stop(Constants.METRIC_COMPILE, compile_start);
 		Logger.debug(String.format("CLASSPATH: %s", classpath));
-		Logger.debug(String.format("CLASS: %s", klass));
+		Logger.debug(String.format("CLASS: %s", String.join(", ", classes)));
 
 		List <String> args = new ArrayList<>();
 		args.add("-w");
@@ -122,8 +504,11 @@ public class Main {
 		// -cp specifies the class path. Must include a path to the application classes, and the rt.jar
 		args.add("-cp");
 		args.add(classpath);
-		// specifies the class that contains the "main" method
-		args.add(klass);
+		// specifies the class that contains the "main" method (the first class of a batch)
+		args.add("-main-class");
+		args.add(classes.get(0));
+		// every class is loaded into the same Scene and analyzed in this one run
+		args.addAll(classes);
 
 		long startTime = System.currentTimeMillis();
 		Options.v().set_whole_shimple(true);
@@ -132,13 +517,30 @@ public class Main {
 		PackManager pm = PackManager.v();
 		Pack pack = pm.getPack("stp");
 
-		Analysis analysis = new Analysis(klass);
-		Transform t = new Transform("stp.arrayssa", analysis);
+		// methods are hashed from the class files of the program (not the JDK)
+		MethodHasher hasher = cmd.hasOption("noresults") ? null
+				: new MethodHasher(cmd.getOptionValue("classpath", Constants.DEFAULT_CP));
+		ReportWriter report = new ReportWriter(cmd.getOptionValue("reportfile", Constants.REPORT_FILE), classes);
+		// Soot runs the bodies of different classes on all cores, and hands a body to the next phase (and frees it
+		// before the output is written) as soon as the transformer returns, so each body is analyzed on its Soot thread
+		AnalysisDispatcher dispatcher = new AnalysisDispatcher(classes, solver_cache, result_store, hasher, report,
+				out_dir, 1);
+		Transform t = new Transform("stp.arrayssa", dispatcher);
 		//p.insertAfter(t, phaseName);
 		//p.insertAfter(t, "sop.cpf");
 		pack.add(t);
+		add_phase_timers(pm, Metrics.start());
 
 		soot.Main.main(args.toArray(new String[0]));
+		report.close();
+		solver_cache.close();
+		result_store.close();
+		// the analysis is done, only the graphs that are still being written are waited for
+		GraphRenderer.finish();
+		dispatcher.log_summary();
+		if(cmd.hasOption("snapshot")) {
+			ResultSnapshot.write(cmd.getOptionValue("snapshot"), dispatcher.get_reports());
+		}
 
 		long endTime   = System.currentTimeMillis();
 		Logger.info(String.format("Total running time: %.2f sec", ((float)(endTime - startTime) / 1000)));
@@ -165,6 +567,7 @@ public class Main {
 			Logger.info(String.format("Peak HEAP memory reserved: %.2f MB", heap_mem_com * 1e-6));
 			Logger.info(String.format("Peak NON-HEAP used: %.2f MB", non_heap_mem_used * 1e-6));
 			Logger.info(String.format("Peak NON-HEAP memory reserved: %.2f MB", non_heap_mem_com * 1e-6));
+			Metrics.count(Constants.METRIC_PEAK_HEAP_BYTES, (long)heap_mem_used);
 
 		} catch (Throwable e) {
 			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
@@ -172,5 +575,6 @@ public class Main {
 				e.printStackTrace();
 			}
 		}
+		Metrics.write(metrics_filename, classes, endTime - startTime);
 	}
 }
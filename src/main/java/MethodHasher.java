@@ -0,0 +1,183 @@
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.tinylog.Logger;
+import soot.AbstractJasminClass;
+import soot.SootMethod;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * hashes method bodies from their class files (read with ASM) for the result store. The key of a method covers
+ * its own bytecode (line numbers included, they end up in the report), the bytecode of every method it calls
+ * (directly or not) that is found on the class path, the analyzer version and the options that change results.
+ * A call is followed to the method named in the instruction and an invokedynamic to the methods its bootstrap
+ * arguments point to (the body of a lambda or a method reference). Overrides of a called method are not followed:
+ * a change to a subclass that is only reached by virtual dispatch keeps the key, so delete the store after one.
+ */
+class MethodHasher {
+    /**
+     * the directories the class files are read from
+     */
+    private final List<String> class_dirs;
+    /**
+     * the hash of the bytecode of every method of the classes read so far ("owner.name+descriptor" to hash)
+     */
+    private final Map<String, String> own_hashes;
+    /**
+     * the methods called by every method of the classes read so far (in the same format)
+     */
+    private final Map<String, Set<String>> callees;
+    /**
+     * the classes that were read (or could not be found)
+     */
+    private final Set<String> read_classes;
+
+    /**
+     * constructor for the hasher
+     * @param class_path the class path the analyzed classes are loaded from (directories, jars are ignored)
+     */
+    MethodHasher(String class_path) {
+        this.class_dirs = new ArrayList<>();
+        for(String entry : class_path.split(File.pathSeparator)) {
+            if(new File(entry).isDirectory()) {
+                class_dirs.add(entry);
+            }
+        }
+        this.own_hashes = new HashMap<>();
+        this.callees = new HashMap<>();
+        this.read_classes = new HashSet<>();
+    }
+
+    /**
+     * get the result store key of a method
+     * @param m the method
+     * @return the key or null if the class file of the method was not found
+     */
+    synchronized String get_key(SootMethod m) {
+        String owner = m.getDeclaringClass().getName().replace('.', '/');
+        String id = owner + "." + m.getName() + AbstractJasminClass.jasminDescriptorOf(m.makeRef());
+        read_class(owner);
+        if(!own_hashes.containsKey(id)) {
+            return null;
+        }
+        // the method and everything it can reach on the class path, a change in any of them changes the key
+        Set<String> reached = new TreeSet<>();
+        Deque<String> stack = new ArrayDeque<>();
+        stack.push(id);
+        while(!stack.isEmpty()) {
+            String cur = stack.pop();
+            if(!reached.add(cur)) {
+                continue;
+            }
+            read_class(cur.substring(0, cur.indexOf('.')));
+            for(String callee : callees.getOrDefault(cur, Collections.emptySet())) {
+                if(!reached.contains(callee)) {
+                    stack.push(callee);
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(Constants.RESULT_STORE_VERSION).append('|').append(Settings.get_solver_backend()).append('|')
+                .append(Settings.get_render_mode()).append('|').append(id);
+        for(String r : reached) {
+            String h = own_hashes.get(r);
+            if(Utils.not_null(h)) {
+                sb.append('|').append(r).append('=').append(h);
+            }
+        }
+        return digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * read a class file (once) and hash every method in it
+     * @param owner the internal name of the class
+     */
+    private void read_class(String owner) {
+        if(!read_classes.add(owner)) {
+            return;
+        }
+        File f = find_class_file(owner);
+        if(!Utils.not_null(f)) {
+            return;
+        }
+        try {
+            ClassNode cn = new ClassNode();
+            new ClassReader(Files.readAllBytes(f.toPath())).accept(cn, 0);
+            for(MethodNode mn : cn.methods) {
+                String id = owner + "." + mn.name + mn.desc;
+                // the method on its own in an empty class, the bytes only depend on the method
+                ClassWriter cw = new ClassWriter(0);
+                cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, owner, null, "java/lang/Object", null);
+                mn.accept(cw);
+                cw.visitEnd();
+                own_hashes.put(id, digest(cw.toByteArray()));
+                Set<String> called = new HashSet<>();
+                for(AbstractInsnNode insn : mn.instructions.toArray()) {
+                    if(insn instanceof MethodInsnNode) {
+                        MethodInsnNode call = (MethodInsnNode)insn;
+                        called.add(call.owner + "." + call.name + call.desc);
+                    } else if(insn instanceof InvokeDynamicInsnNode) {
+                        for(Object arg : ((InvokeDynamicInsnNode)insn).bsmArgs) {
+                            if(arg instanceof Handle) {
+                                Handle target = (Handle)arg;
+                                called.add(target.getOwner() + "." + target.getName() + target.getDesc());
+                            }
+                        }
+                    }
+                }
+                callees.put(id, called);
+            }
+        } catch (IOException | RuntimeException e) {
+            Logger.warn("Caught " + e.getClass().getSimpleName() + " hashing " + f + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * find the class file of a class on the class path
+     * @param owner the internal name of the class
+     * @return the class file or null if it is not in one of the class directories
+     */
+    private File find_class_file(String owner) {
+        for(String dir : class_dirs) {
+            File f = new File(dir, owner.replace('/', File.separatorChar) + Constants.CLASS_EXT);
+            if(f.isFile()) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * hash some bytes
+     * @param bytes the bytes
+     * @return the SHA-256 of the bytes in hex
+     */
+    private static String digest(byte[] bytes) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for(byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import soot.jimple.toolkits.annotation.logic.Loop;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * the results of analyzing one method body, without any reference to Soot objects so they can be stored
+ * (see ResultStore) and reported after the body is gone: the def/use edges, the SCC edges with their d values and
+ * the results of every loop (see LoopResult), ordered by their source line.
+ */
+class MethodResult {
+    /**
+     * the name of the body (see AnalysisDispatcher.get_body_name)
+     */
+    private final String body_name;
+    /**
+     * the edges of the def/use graph (def statement, use statement)
+     */
+    private final List<String[]> def_use_edges;
+    /**
+     * the dependences (the SCC edges)
+     */
+    private final List<Dependence> dependences;
+    /**
+     * the results of the loops of the body
+     */
+    private final List<LoopResult> loops;
+
+    /**
+     * constructor for a method result
+     * @param body_name the name of the body
+     * @param def_use_edges the edges of the def/use graph (def statement, use statement)
+     * @param dependences the dependences
+     * @param loops the results of the loops of the body
+     */
+    MethodResult(String body_name, List<String[]> def_use_edges, List<Dependence> dependences,
+                 List<LoopResult> loops) {
+        this.body_name = body_name;
+        this.def_use_edges = Collections.unmodifiableList(def_use_edges);
+        this.dependences = Collections.unmodifiableList(dependences);
+        this.loops = Collections.unmodifiableList(loops);
+    }
+
+    /**
+     * make the result of a finished analysis
+     * @param body_name the name of the body
+     * @param analysis the analysis of the body
+     * @return the result
+     */
+    static MethodResult of(String body_name, Analysis analysis) {
+        List<String[]> def_use_edges = new ArrayList<>();
+        for(Map.Entry<Integer, Edge> entry : analysis.get_def_use_graph().get_edges().entrySet()) {
+            def_use_edges.add(new String[]{entry.getValue().get_def().get_aug_stmt_str(),
+                    entry.getValue().get_use().get_aug_stmt_str()});
+        }
+        List<SCCEdge> scc_edges = new ArrayList<>(analysis.get_scc_edges());
+        List<Dependence> dependences = new ArrayList<>();
+        for(SCCEdge e : scc_edges) {
+            dependences.add(Dependence.of(e));
+        }
+        List<LoopResult> loops = new ArrayList<>();
+        for(Loop l : analysis.get_cfg().get_loop_index().get_loops()) {
+            loops.add(LoopResult.of(l, analysis, scc_edges, dependences));
+        }
+        loops.sort(Comparator.comparingInt(LoopResult::get_source_line).thenComparing(LoopResult::get_head));
+        return new MethodResult(body_name, def_use_edges, dependences, loops);
+    }
+
+    /**
+     * getter for the body name
+     * @return the name of the body
+     */
+    String get_body_name() {
+        return body_name;
+    }
+
+    /**
+     * getter for the def/use edges
+     * @return the edges of the def/use graph (def statement, use statement)
+     */
+    List<String[]> get_def_use_edges() {
+        return def_use_edges;
+    }
+
+    /**
+     * getter for the dependences
+     * @return the dependences (the SCC edges)
+     */
+    List<Dependence> get_dependences() {
+        return dependences;
+    }
+
+    /**
+     * getter for the loops
+     * @return the results of the loops of the body
+     */
+    List<LoopResult> get_loops() {
+        return loops;
+    }
+
+    /**
+     * write the result, every dependence is written once (the loops refer to them by index)
+     * @param out the output stream
+     * @throws IOException if the stream can not be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(body_name);
+        out.writeInt(def_use_edges.size());
+        for(String[] edge : def_use_edges) {
+            out.writeUTF(edge[0]);
+            out.writeUTF(edge[1]);
+        }
+        out.writeInt(dependences.size());
+        for(Dependence d : dependences) {
+            d.write(out);
+        }
+        out.writeInt(loops.size());
+        for(LoopResult l : loops) {
+            l.write(out);
+        }
+    }
+
+    /**
+     * read a result written by write()
+     * @param in the input stream
+     * @return the result
+     * @throws IOException if the stream is truncated or corrupt
+     */
+    static MethodResult read(DataInputStream in) throws IOException {
+        String body_name = in.readUTF();
+        int n = in.readInt();
+        List<String[]> def_use_edges = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            def_use_edges.add(new String[]{in.readUTF(), in.readUTF()});
+        }
+        n = in.readInt();
+        List<Dependence> dependences = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            dependences.add(Dependence.read(in));
+        }
+        n = in.readInt();
+        List<LoopResult> loops = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            loops.add(LoopResult.read(in, dependences));
+        }
+        return new MethodResult(body_name, def_use_edges, dependences, loops);
+    }
+}
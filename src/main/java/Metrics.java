@@ -0,0 +1,183 @@
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Timers and counters of a run, written to a JSON file at the end (see write()). Every timer keeps the number of
+ * times it ran, the total and the longest time, every counter keeps a sum. Values are recorded for the whole run
+ * and, when the thread is working on a class (see set_scope()), for that class as well. Timers and counters are
+ * recorded once per phase, graph or solver call, never per statement, so a single lock is enough.
+ */
+class Metrics {
+    /**
+     * the class the current thread is working on (null if none)
+     */
+    private static final ThreadLocal<String> scope = new ThreadLocal<>();
+    /**
+     * the timers of the whole run (name to count, total and max nanoseconds), in the order they first ran
+     */
+    private static final Map<String, long[]> timers = new LinkedHashMap<>();
+    /**
+     * the counters of the whole run, in the order they were first counted
+     */
+    private static final Map<String, Long> counters = new LinkedHashMap<>();
+    /**
+     * the timers of each class
+     */
+    private static final Map<String, Map<String, long[]>> class_timers = new TreeMap<>();
+    /**
+     * the counters of each class
+     */
+    private static final Map<String, Map<String, Long>> class_counters = new TreeMap<>();
+
+    /**
+     * set the class the current thread is working on
+     * @param class_name the class (null for none)
+     */
+    static void set_scope(String class_name) {
+        scope.set(class_name);
+    }
+
+    /**
+     * get the class the current thread is working on
+     * @return the class (null for none)
+     */
+    static String get_scope() {
+        return scope.get();
+    }
+
+    /**
+     * start a timer
+     * @return the start time to give to stop()
+     */
+    static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * stop a timer started on this thread
+     * @param timer the name of the timer
+     * @param start the start time returned by start()
+     */
+    static void stop(String timer, long start) {
+        stop(scope.get(), timer, start);
+    }
+
+    /**
+     * stop a timer for a given class (for work done for a class on another thread)
+     * @param class_name the class (null for the whole run only)
+     * @param timer the name of the timer
+     * @param start the start time returned by start()
+     */
+    static synchronized void stop(String class_name, String timer, long start) {
+        long elapsed = System.nanoTime() - start;
+        add_time(timers, timer, elapsed);
+        if(Utils.not_null(class_name)) {
+            add_time(class_timers.computeIfAbsent(class_name, k -> new LinkedHashMap<>()), timer, elapsed);
+        }
+    }
+
+    /**
+     * add a time to a timer
+     * @param map the timers
+     * @param timer the name of the timer
+     * @param elapsed the time in nanoseconds
+     */
+    private static void add_time(Map<String, long[]> map, String timer, long elapsed) {
+        long[] t = map.computeIfAbsent(timer, k -> new long[3]);
+        t[0]++;
+        t[1] += elapsed;
+        t[2] = Math.max(t[2], elapsed);
+    }
+
+    /**
+     * add to a counter
+     * @param counter the name of the counter
+     * @param n the amount
+     */
+    static void count(String counter, long n) {
+        count(scope.get(), counter, n);
+    }
+
+    /**
+     * add to a counter for a given class (for work done for a class on another thread)
+     * @param class_name the class (null for the whole run only)
+     * @param counter the name of the counter
+     * @param n the amount
+     */
+    static synchronized void count(String class_name, String counter, long n) {
+        counters.merge(counter, n, Long::sum);
+        if(Utils.not_null(class_name)) {
+            class_counters.computeIfAbsent(class_name, k -> new LinkedHashMap<>()).merge(counter, n, Long::sum);
+        }
+    }
+
+    /**
+     * write the timers and counters of a scope
+     * @param json the JSON writer
+     * @param t the timers
+     * @param c the counters
+     * @throws IOException if the writer fails
+     */
+    private static void write_scope(JsonWriter json, Map<String, long[]> t, Map<String, Long> c) throws IOException {
+        json.begin_object();
+        json.name("timers").begin_object();
+        for(Map.Entry<String, long[]> entry : t.entrySet()) {
+            long[] v = entry.getValue();
+            json.name(entry.getKey()).begin_object();
+            json.name("count").value(v[0]);
+            json.name("total_ms").value(v[1] * 1e-6);
+            json.name("max_ms").value(v[2] * 1e-6);
+            json.end_object();
+        }
+        json.end_object();
+        json.name("counters").begin_object();
+        for(Map.Entry<String, Long> entry : c.entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.end_object();
+        json.end_object();
+    }
+
+    /**
+     * write the metrics of the run to a JSON file
+     * @param filename the name of the file
+     * @param classes the classes of the run
+     * @param wall_ms the running time of the run in milliseconds
+     */
+    static synchronized void write(String filename, List<String> classes, long wall_ms) {
+        try (JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filename), StandardCharsets.UTF_8)))) {
+            json.begin_object();
+            json.name("classes").begin_array();
+            for(String c : classes) {
+                json.value(c);
+            }
+            json.end_array();
+            json.name("solver_backend").value(Settings.get_solver_backend().toString());
+            json.name("render_mode").value(Settings.get_render_mode().toString());
+            json.name("analysis_threads").value(Settings.get_analysis_threads());
+            json.name("wall_ms").value(wall_ms);
+            json.name("run");
+            write_scope(json, timers, counters);
+            json.name("per_class").begin_object();
+            Set<String> names = new TreeSet<>(class_timers.keySet());
+            names.addAll(class_counters.keySet());
+            for(String name : names) {
+                json.name(name);
+                write_scope(json, class_timers.getOrDefault(name, Collections.emptyMap()),
+                        class_counters.getOrDefault(name, Collections.emptyMap()));
+            }
+            json.end_object();
+            json.end_object();
+            Logger.info("Metrics written to " + filename);
+        } catch (IOException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
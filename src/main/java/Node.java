@@ -3,11 +3,7 @@ import soot.jimple.AssignStmt;
 import soot.jimple.IfStmt;
 import soot.jimple.Stmt;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
  * An _overly_ complex node class for ArrayDefUseGraph
@@ -62,6 +58,14 @@ class Node {
      * line number in shimple
      */
     private int line_num_shimple;
+    /**
+     * the id of this node (built on first use, see get_id())
+     */
+    private String id;
+    /**
+     * the opposite id of this node (built on first use, see get_opposite_id())
+     */
+    private String opposite_id;
 
     /**
      * Constructor for a brand NEW node. This will either have ArrayVersions of -1 (as a dummy node
@@ -249,9 +253,11 @@ class Node {
      * @return the opposite id
      */
     String get_opposite_id() {
-        DefOrUse t = Objects.equals(DefOrUse.DEF, type) ? DefOrUse.USE : DefOrUse.DEF;
-        return Node.make_id(basename, av, t, is_if(), line_num_shimple);
-
+        if(!Utils.not_null(opposite_id)) {
+            DefOrUse t = Objects.equals(DefOrUse.DEF, type) ? DefOrUse.USE : DefOrUse.DEF;
+            opposite_id = Node.make_id(basename, av, t, is_if(), line_num_shimple);
+        }
+        return opposite_id;
     }
 
     /**
@@ -284,11 +290,7 @@ class Node {
         int line_num = line_num_shimple;// av.get_line_num();
         if(av.is_phi()) {
             ArrayVersionPhi av_phi = (ArrayVersionPhi)av;
-            Map<Integer, Integer> have_seen = new HashMap<>();
-            List<Integer> versions = av_phi.get_array_versions().stream()
-                    .map(ArrayVersion::get_version)
-                    .collect(Collectors.toList());
-            for(int s : versions) {
+            for(int s : av_phi.get_array_version_numbers()) {
                 sb.append(s);
                 sb.append(Constants.UNDERSCORE);
             }
@@ -342,11 +344,15 @@ class Node {
     }
 
     /**
-     * get the ID of this node
+     * get the ID of this node, it is built once since the array version of a node does not change
+     * (except through force_av_incr())
      * @return  the ID of this node
      */
     String get_id() {
-        return Node.make_id(basename, av, type, is_if(), line_num_shimple);
+        if(!Utils.not_null(id)) {
+            id = Node.make_id(basename, av, type, is_if(), line_num_shimple);
+        }
+        return id;
     }
 
     /**
@@ -395,6 +401,8 @@ class Node {
      */
     void force_av_incr() {
         av.force_incr_version();
+        id = null;
+        opposite_id = null;
     }
 
     /**
@@ -0,0 +1,448 @@
+import java.util.*;
+
+/**
+ * An immutable hash array mapped trie. Updates (plus/minus) return a new map that shares every
+ * untouched branch with the old one, so a copy is free and an update costs O(log32 n).
+ * The java.util.Map mutators are not supported.
+ * @param <K> the key type (no null keys)
+ * @param <V> the value type
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+    /**
+     * the empty map
+     */
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    /**
+     * the number of hash bits used per level of the trie
+     */
+    private static final int BITS = 5;
+    /**
+     * mask for the hash bits of one level
+     */
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * marker for a missing key
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * the root of the trie (null if the map is empty)
+     */
+    private final TrieNode root;
+    /**
+     * the number of entries
+     */
+    private final int size;
+
+    /**
+     * constructor for a persistent map
+     * @param root the root of the trie
+     * @param size the number of entries
+     */
+    private PersistentMap(TrieNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * get the empty map
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * create a persistent map with the entries of another map
+     * @param m the other map
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the new map
+     */
+    static <K, V> PersistentMap<K, V> of(Map<K, V> m) {
+        if(m instanceof PersistentMap) {
+            return (PersistentMap<K, V>) m;
+        }
+        PersistentMap<K, V> ret = empty();
+        for(Map.Entry<K, V> entry : m.entrySet()) {
+            ret = ret.plus(entry.getKey(), entry.getValue());
+        }
+        return ret;
+    }
+
+    /**
+     * spread the hash code of a key
+     * @param key the key
+     * @return the hash used in the trie
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * get the position of a hash in a bitmap node
+     * @param hash the hash
+     * @param shift the shift of the current level
+     * @return the bit for the hash
+     */
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * get a new map with a key set to a value
+     * @param key the key
+     * @param value the value
+     * @return the new map (this map if nothing changed)
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        boolean[] added = new boolean[1];
+        TrieNode start = Utils.not_null(root) ? root : BitmapNode.EMPTY;
+        TrieNode new_root = start.assoc(0, hash(key), key, value, added);
+        if(new_root == root) {
+            return this;
+        }
+        return new PersistentMap<>(new_root, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * get a new map without a key
+     * @param key the key
+     * @return the new map (this map if the key is not present)
+     */
+    PersistentMap<K, V> minus(Object key) {
+        if(!Utils.not_null(root)) {
+            return this;
+        }
+        TrieNode new_root = root.without(0, hash(key), key);
+        if(new_root == root) {
+            return this;
+        }
+        return new PersistentMap<>(new_root, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if(!Utils.not_null(root) || !Utils.not_null(key)) {
+            return null;
+        }
+        Object v = root.find(0, hash(key), key);
+        return v == NOT_FOUND ? null : (V) v;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return Utils.not_null(root) && Utils.not_null(key) && root.find(0, hash(key), key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<Map.Entry<K, V>> iterator() {
+                List<Map.Entry<K, V>> entries = new ArrayList<>(size);
+                if(Utils.not_null(root)) {
+                    root.collect((List<Map.Entry<Object, Object>>) (List<?>) entries);
+                }
+                return Collections.unmodifiableList(entries).iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * a node of the trie
+     */
+    private static abstract class TrieNode {
+        /**
+         * find the value of a key
+         * @param shift the shift of this level
+         * @param hash the hash of the key
+         * @param key the key
+         * @return the value or NOT_FOUND
+         */
+        abstract Object find(int shift, int hash, Object key);
+
+        /**
+         * set a key to a value
+         * @param shift the shift of this level
+         * @param hash the hash of the key
+         * @param key the key
+         * @param value the value
+         * @param added set to true if the key was not present
+         * @return the new node (this node if nothing changed)
+         */
+        abstract TrieNode assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * remove a key
+         * @param shift the shift of this level
+         * @param hash the hash of the key
+         * @param key the key
+         * @return the new node (this node if the key is not present, null if the node is now empty)
+         */
+        abstract TrieNode without(int shift, int hash, Object key);
+
+        /**
+         * add every entry below this node to a list
+         * @param entries the list
+         */
+        abstract void collect(List<Map.Entry<Object, Object>> entries);
+    }
+
+    /**
+     * a trie node with up to 32 slots selected by a bitmap. Every slot is either a (key, value)
+     * pair or (null, child node).
+     */
+    private static final class BitmapNode extends TrieNode {
+        /**
+         * the empty node
+         */
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        /**
+         * the bitmap of used slots
+         */
+        private final int bitmap;
+        /**
+         * the slots (two array elements per slot)
+         */
+        private final Object[] array;
+
+        /**
+         * constructor for a bitmap node
+         * @param bitmap the bitmap of used slots
+         * @param array the slots
+         */
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        /**
+         * get the index of a slot
+         * @param bit the bit of the slot
+         * @return the index of the slot (in slots, not array elements)
+         */
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if(!Utils.not_null(k)) {
+                return ((TrieNode) v).find(shift + BITS, hash, key);
+            }
+            return Objects.equals(key, k) ? v : NOT_FOUND;
+        }
+
+        @Override
+        TrieNode assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+            if((bitmap & bit) != 0) {
+                Object k = array[2 * idx];
+                Object v = array[2 * idx + 1];
+                if(!Utils.not_null(k)) {
+                    TrieNode n = ((TrieNode) v).assoc(shift + BITS, hash, key, value, added);
+                    return n == v ? this : with_slot(idx, null, n);
+                }
+                if(Objects.equals(key, k)) {
+                    return v == value ? this : with_slot(idx, k, value);
+                }
+                added[0] = true;
+                return with_slot(idx, null, create_node(shift + BITS, k, v, hash, key, value));
+            }
+            added[0] = true;
+            Object[] new_array = new Object[array.length + 2];
+            System.arraycopy(array, 0, new_array, 0, 2 * idx);
+            new_array[2 * idx] = key;
+            new_array[2 * idx + 1] = value;
+            System.arraycopy(array, 2 * idx, new_array, 2 * idx + 2, array.length - 2 * idx);
+            return new BitmapNode(bitmap | bit, new_array);
+        }
+
+        @Override
+        TrieNode without(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if(!Utils.not_null(k)) {
+                TrieNode n = ((TrieNode) v).without(shift + BITS, hash, key);
+                if(n == v) {
+                    return this;
+                }
+                if(Utils.not_null(n)) {
+                    return with_slot(idx, null, n);
+                }
+            } else if(!Objects.equals(key, k)) {
+                return this;
+            }
+            if(bitmap == bit) {
+                return null;
+            }
+            Object[] new_array = new Object[array.length - 2];
+            System.arraycopy(array, 0, new_array, 0, 2 * idx);
+            System.arraycopy(array, 2 * idx + 2, new_array, 2 * idx, array.length - 2 * idx - 2);
+            return new BitmapNode(bitmap ^ bit, new_array);
+        }
+
+        @Override
+        void collect(List<Map.Entry<Object, Object>> entries) {
+            for(int i = 0; i < array.length; i += 2) {
+                if(Utils.not_null(array[i])) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(array[i], array[i + 1]));
+                } else {
+                    ((TrieNode) array[i + 1]).collect(entries);
+                }
+            }
+        }
+
+        /**
+         * copy this node with one slot replaced
+         * @param idx the index of the slot
+         * @param key the new key (null for a child node)
+         * @param value the new value or child node
+         * @return the new node
+         */
+        private BitmapNode with_slot(int idx, Object key, Object value) {
+            Object[] new_array = array.clone();
+            new_array[2 * idx] = key;
+            new_array[2 * idx + 1] = value;
+            return new BitmapNode(bitmap, new_array);
+        }
+
+        /**
+         * create a node holding two entries that collide at the current level
+         * @param shift the shift of the new node
+         * @param key1 the first key
+         * @param value1 the first value
+         * @param hash2 the hash of the second key
+         * @param key2 the second key
+         * @param value2 the second value
+         * @return the new node
+         */
+        private static TrieNode create_node(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if(hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.assoc(shift, hash1, key1, value1, added).assoc(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * a trie node for keys with the same hash
+     */
+    private static final class CollisionNode extends TrieNode {
+        /**
+         * the shared hash
+         */
+        private final int hash;
+        /**
+         * the (key, value) pairs
+         */
+        private final Object[] array;
+
+        /**
+         * constructor for a collision node
+         * @param hash the shared hash
+         * @param array the (key, value) pairs
+         */
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        /**
+         * find the index of a key
+         * @param key the key
+         * @return the array index of the key or -1
+         */
+        private int find_index(Object key) {
+            for(int i = 0; i < array.length; i += 2) {
+                if(Objects.equals(key, array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int i = find_index(key);
+            return i < 0 ? NOT_FOUND : array[i + 1];
+        }
+
+        @Override
+        TrieNode assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if(hash != this.hash) {
+                // push this node down a level
+                return new BitmapNode(bitpos(this.hash, shift), new Object[] {null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+            int i = find_index(key);
+            if(i >= 0) {
+                if(array[i + 1] == value) {
+                    return this;
+                }
+                Object[] new_array = array.clone();
+                new_array[i + 1] = value;
+                return new CollisionNode(hash, new_array);
+            }
+            added[0] = true;
+            Object[] new_array = Arrays.copyOf(array, array.length + 2);
+            new_array[array.length] = key;
+            new_array[array.length + 1] = value;
+            return new CollisionNode(hash, new_array);
+        }
+
+        @Override
+        TrieNode without(int shift, int hash, Object key) {
+            int i = find_index(key);
+            if(i < 0) {
+                return this;
+            }
+            if(array.length == 2) {
+                return null;
+            }
+            Object[] new_array = new Object[array.length - 2];
+            System.arraycopy(array, 0, new_array, 0, i);
+            System.arraycopy(array, i + 2, new_array, i, array.length - i - 2);
+            return new CollisionNode(hash, new_array);
+        }
+
+        @Override
+        void collect(List<Map.Entry<Object, Object>> entries) {
+            for(int i = 0; i < array.length; i += 2) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(array[i], array[i + 1]));
+            }
+        }
+    }
+}
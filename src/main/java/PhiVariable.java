@@ -7,7 +7,6 @@ import soot.Value;
 import soot.ValueBox;
 import soot.jimple.AssignStmt;
 import soot.shimple.PhiExpr;
-import soot.toolkits.scalar.ValueUnitPair;
 
 import java.util.*;
 
@@ -41,6 +40,19 @@ public class PhiVariable {
      * variables that are DIRECTLY linked to this phi variable
      */
     private final List<Variable> var_links;
+    /**
+     * the uses of the phi expression (as strings)
+     */
+    private final List<String> uses;
+    /**
+     * index of all_values: the number of times each name appears in all_values
+     */
+    private final Map<String, Integer> value_counts;
+    /**
+     * index of var_links: every name a linked variable has ever been mapped to the linked variables
+     * that have been it (in var_links order)
+     */
+    private final Map<String, List<Variable>> alias_owners;
     /**
      * counter for all values map
      */
@@ -67,9 +79,13 @@ public class PhiVariable {
         this.counter = 1;
         this.all_values.put(counter, new ImmutablePair<>(stmt.getLeftOpBox(), stmt));
         this.var_links = new ArrayList<>();
-        var_links.add(new Variable(phi_def, phi_expr));
+        this.uses = Collections.unmodifiableList(Utils.get_phi_var_uses_as_str(phi_expr));
+        this.value_counts = new HashMap<>();
+        this.alias_owners = new HashMap<>();
+        index_value(phi_def.toString());
+        add_var_link(new Variable(phi_def, phi_expr));
         for(Value v : phi_expr.getValues()) {
-            var_links.add(new Variable(v, phi_expr));
+            add_var_link(new Variable(v, phi_expr));
         }
     }
 
@@ -84,10 +100,66 @@ public class PhiVariable {
         this.all_values = new HashMap<>(pv.all_values);
         this.linked_stmts = new ArrayList<>(pv.linked_stmts);
         this.var_links = new ArrayList<>(pv.var_links);
+        this.uses = pv.uses;
+        this.value_counts = new HashMap<>(pv.value_counts);
+        this.alias_owners = new HashMap<>();
+        for(Map.Entry<String, List<Variable>> entry : pv.alias_owners.entrySet()) {
+            this.alias_owners.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
         this.used_as_index = pv.used_as_index;
         this.non_index_graph = pv.non_index_graph;
     }
 
+    /**
+     * add a linked variable and index its name
+     * @param var the variable
+     */
+    private void add_var_link(Variable var) {
+        var_links.add(var);
+        index_alias(var.get_root_val_str(), var);
+    }
+
+    /**
+     * record that a value was added to all_values
+     * @param name the name of the value
+     */
+    private void index_value(String name) {
+        value_counts.merge(name, 1, Integer::sum);
+    }
+
+    /**
+     * record that a linked variable has been a given name
+     * @param name the name
+     * @param var the linked variable
+     */
+    private void index_alias(String name, Variable var) {
+        List<Variable> owners = alias_owners.computeIfAbsent(name, k -> new ArrayList<>());
+        if(!owners.contains(var)) {
+            owners.add(var);
+            if(owners.size() > 1) {
+                owners.sort(Comparator.comparingInt(var_links::indexOf));
+            }
+        }
+    }
+
+    /**
+     * get the first linked variable (in var_links order) that has ever been a given name
+     * @param v the name
+     * @return the linked variable or null
+     */
+    private Variable get_alias_owner(String v) {
+        List<Variable> owners = alias_owners.get(v);
+        return Utils.not_null(owners) ? owners.get(0) : null;
+    }
+
+    /**
+     * get every name this phi variable has ever been (its def and all its aliases)
+     * @return the names
+     */
+    Set<String> get_value_names() {
+        return Collections.unmodifiableSet(value_counts.keySet());
+    }
+
     /**
      * test if a variable is either the def of a phi var or one of the uses
      * @param var the variable
@@ -95,8 +167,7 @@ public class PhiVariable {
      */
     boolean contains_var(String var) {
         String def = phi_def.toString();
-        List<String> use_vars = Utils.get_phi_var_uses_as_str(phi_expr);
-        return Objects.equals(def, var) || use_vars.contains(var);
+        return Objects.equals(def, var) || uses.contains(var);
     }
 
     /**
@@ -134,13 +205,12 @@ public class PhiVariable {
         ValueBox left_box = stmt.getLeftOpBox();
         // skip assigns with arrayref on the left hand side
         for(ValueBox vb : uses) {
-            for(Map.Entry<Integer, ImmutablePair<ValueBox, AssignStmt>> entry : all_values.entrySet()) {
-                Value v = entry.getValue().getLeft().getValue();
-                if (Objects.equals(vb.getValue().toString(), v.toString())) {
-                    // array writes can never be indexes...
-                    if (!Utils.is_def(stmt)) {
-                        values.add(new ImmutablePair<>(vb.getValue(), left_box.getValue()));
-                    }
+            // one pair for every entry of all_values with the same name
+            int count = value_counts.getOrDefault(vb.getValue().toString(), 0);
+            for(int i = 0; i < count; i++) {
+                // array writes can never be indexes...
+                if (!Utils.is_def(stmt)) {
+                    values.add(new ImmutablePair<>(vb.getValue(), left_box.getValue()));
                 }
             }
         }
@@ -157,12 +227,9 @@ public class PhiVariable {
      *   PhiVariable
      */
     boolean defines_phi_var(AssignStmt stmt) {
-        List<ValueBox> defs = stmt.getDefBoxes();
-        for(ValueUnitPair vup : phi_expr.getArgs()) {
-            for(ValueBox vb : defs) {
-                if (Objects.equals(vup.getValue().toString(), vb.getValue().toString())) {
-                    return true;
-                }
+        for(ValueBox vb : stmt.getDefBoxes()) {
+            if (uses.contains(vb.getValue().toString())) {
+                return true;
             }
         }
         return false;
@@ -174,13 +241,7 @@ public class PhiVariable {
      * @return true iff this PhiVariable has ever been this value
      */
     boolean has_ever_been(String v) {
-        for(Map.Entry<Integer, ImmutablePair<ValueBox, AssignStmt>> entry : all_values.entrySet()) {
-            Value v1 = entry.getValue().getLeft().getValue();
-            if(Objects.equals(v1.toString(), v)) {
-                return true;
-            }
-        }
-        return false;
+        return value_counts.containsKey(v);
     }
 
     /**
@@ -192,11 +253,17 @@ public class PhiVariable {
     void add_alias(ValueBox vb, AssignStmt stmt, List<ImmutablePair<Value, Value>> value_links) {
         counter++;
         all_values.put(counter, new ImmutablePair<>(vb, stmt));
+        index_value(vb.getValue().toString());
         for(ImmutablePair<Value, Value> v_pair : value_links) {
-            for(Variable var : this.var_links) {
-                if(var.has_ever_been(v_pair.getLeft().toString())) {
+            List<Variable> owners = alias_owners.get(v_pair.getLeft().toString());
+            if(!Utils.not_null(owners)) {
+                continue;
+            }
+            // the index changes while the aliases are added
+            for(Variable var : new ArrayList<>(owners)) {
 //                    if(v_pair.getRight() instanceof ArrayRef)
-                    var.add_alias(v_pair, stmt);
+                if(var.add_alias(v_pair, stmt)) {
+                    index_alias(v_pair.getRight().toString(), var);
                 }
             }
         }
@@ -210,12 +277,8 @@ public class PhiVariable {
      *         at some point, otherwise null
      */
     String get_var_dep_chain_str(Map<String, Integer> constants, String v) {
-        for(Variable var : var_links) {
-            if(var.has_ever_been(v)) {
-                return var.get_var_dep_chain_str(constants, v);
-            }
-        }
-        return null;
+        Variable var = get_alias_owner(v);
+        return Utils.not_null(var) ? var.get_var_dep_chain_str(constants, v) : null;
     }
 
     /**
@@ -224,10 +287,9 @@ public class PhiVariable {
      * @param v the variable name
      */
     void make_var_dep_chain_graph(Map<String, Integer> constants, String v) {
-        for(Variable var : var_links) {
-            if(var.has_ever_been(v)) {
-                var.make_var_dep_chain_graph(constants, v);
-            }
+        List<Variable> owners = alias_owners.getOrDefault(v, Collections.emptyList());
+        for(Variable var : owners) {
+            var.make_var_dep_chain_graph(constants, v);
         }
     }
 
@@ -241,12 +303,8 @@ public class PhiVariable {
      *   otherwise null.
      */
     ImmutablePair<Variable, Set<AssignStmt>> get_var_dep_chain(Map<String, Integer> constants, String v) {
-        for(Variable var : var_links) {
-            if(var.has_ever_been(v)) {
-                return new ImmutablePair<>(var, var.get_var_dep_chain(constants, v));
-            }
-        }
-        return null;
+        Variable var = get_alias_owner(v);
+        return Utils.not_null(var) ? new ImmutablePair<>(var, var.get_var_dep_chain(constants, v)) : null;
     }
 
     /**
@@ -319,7 +377,7 @@ public class PhiVariable {
      * @return all the phi expr uses
      */
     List<String> get_uses() {
-        return Utils.get_phi_var_uses_as_str(phi_expr);
+        return uses;
     }
 
     /**
@@ -26,6 +26,22 @@ public class PhiVariableContainer {
      * all true phi vars
      */
     private Set<PhiVariable> phi_vars;
+    /**
+     * the position of every phi variable in phi_vars (used to keep the indexes in phi_vars order)
+     */
+    private Map<PhiVariable, Integer> order;
+    /**
+     * index of phi_vars: the definition name of a phi variable to the first phi variable with that definition
+     */
+    private Map<String, PhiVariable> phi_defs;
+    /**
+     * index of phi_vars: every name a phi variable has ever been to the phi variables that have been it
+     */
+    private Map<String, List<PhiVariable>> value_owners;
+    /**
+     * index of phi_vars: every variable used in a phi expression
+     */
+    private Set<String> phi_uses;
     /**
      * a graph variable used to create multiple png graphs
      */
@@ -37,10 +53,14 @@ public class PhiVariableContainer {
 
     /**
      * Constructor for PhiVariableContainer
-     * @param class_name the name of the class being analyzed
+     * @param body_name the name of the body being analyzed
      */
-    PhiVariableContainer(String class_name) {
-        this.phi_vars = new HashSet<>();
+    PhiVariableContainer(String body_name) {
+        this.phi_vars = new LinkedHashSet<>();
+        this.order = new IdentityHashMap<>();
+        this.phi_defs = new HashMap<>();
+        this.value_owners = new HashMap<>();
+        this.phi_uses = new HashSet<>();
         this.parsed_phi_vars = new HashSet<>();
     }
 
@@ -49,7 +69,14 @@ public class PhiVariableContainer {
      * @param pvc the PhiVariable container being copied
      */
     PhiVariableContainer(PhiVariableContainer pvc) {
-        this.phi_vars = pvc.phi_vars.stream().map(PhiVariable::new).collect(Collectors.toSet());
+        this.phi_vars = new LinkedHashSet<>();
+        this.order = new IdentityHashMap<>();
+        this.phi_defs = new HashMap<>();
+        this.value_owners = new HashMap<>();
+        this.phi_uses = new HashSet<>();
+        for(PhiVariable pv : pvc.phi_vars) {
+            add(pv);
+        }
         this.graph_creator = pvc.graph_creator;
 //        this.index_phi_var_links = pvc.index_phi_var_links;
         this.parsed_phi_vars = new HashSet<>(pvc.parsed_phi_vars);
@@ -61,7 +88,57 @@ public class PhiVariableContainer {
      * @param pv the PhiVariable to add
      */
     void add(PhiVariable pv) {
-        phi_vars.add(new PhiVariable(pv));
+        PhiVariable copy = new PhiVariable(pv);
+        phi_vars.add(copy);
+        order.put(copy, order.size());
+        phi_defs.putIfAbsent(copy.get_phi_def().toString(), copy);
+        phi_uses.addAll(copy.get_uses());
+        for(String name : copy.get_value_names()) {
+            index_value(name, copy);
+        }
+    }
+
+    /**
+     * record that a phi variable has been a given name
+     * @param name the name
+     * @param pv the phi variable
+     */
+    private void index_value(String name, PhiVariable pv) {
+        List<PhiVariable> owners = value_owners.computeIfAbsent(name, k -> new ArrayList<>());
+        if(!owners.contains(pv)) {
+            owners.add(pv);
+            if(owners.size() > 1) {
+                owners.sort(Comparator.comparingInt(order::get));
+            }
+        }
+    }
+
+    /**
+     * get the phi variables that have ever been a given name
+     * @param v the name
+     * @return the phi variables (in phi_vars order)
+     */
+    private List<PhiVariable> get_value_owners(String v) {
+        return value_owners.getOrDefault(v, Collections.emptyList());
+    }
+
+    /**
+     * get the phi variables an assignment statement could affect: the ones that have been one of its uses
+     * or the array index it uses
+     * @param stmt the assignment statement
+     * @return the phi variables (in phi_vars order)
+     */
+    private List<PhiVariable> get_candidates(AssignStmt stmt) {
+        Set<PhiVariable> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(ValueBox vb : stmt.getUseBoxes()) {
+            candidates.addAll(get_value_owners(vb.getValue().toString()));
+        }
+        if(stmt.containsArrayRef()) {
+            candidates.addAll(get_value_owners(stmt.getArrayRef().getIndexBox().getValue().toString()));
+        }
+        List<PhiVariable> sorted = new ArrayList<>(candidates);
+        sorted.sort(Comparator.comparingInt(order::get));
+        return sorted;
     }
 
     /**
@@ -74,7 +151,8 @@ public class PhiVariableContainer {
     boolean process_assignment(AssignStmt stmt) {
         boolean found_link = false;
         ValueBox left = stmt.getLeftOpBox();
-        for(PhiVariable pv : phi_vars) {
+        // phi variables that are not candidates have no uses in the stmt and were never its index
+        for(PhiVariable pv : get_candidates(stmt)) {
             List<ImmutablePair<Value, Value>> values = pv.get_phi_var_uses(stmt);
             // if we are REDEFINING a phi variable it is a looping stmt.
             if(pv.defines_phi_var(stmt) && !values.isEmpty()) {
@@ -84,6 +162,7 @@ public class PhiVariableContainer {
                 pv.add_linked_stmt(stmt);
                 // TODO: not sure if this is correct...
                 pv.add_alias(left, stmt, values);
+                index_value(left.getValue().toString(), pv);
             }
             else if(!values.isEmpty() && !Utils.is_def(stmt)) {
                 // if we we are not DEFINING a phi var but we are using one
@@ -94,6 +173,7 @@ public class PhiVariableContainer {
                     Logger.debug("\t  " + v_pair.getLeft().toString() + " is affected by " + v_pair.getRight().toString());
                 }
                 pv.add_alias(left, stmt, values);
+                index_value(left.getValue().toString(), pv);
             }
             if(stmt.containsArrayRef()) {
                 ArrayRef ar = stmt.getArrayRef();
@@ -126,13 +206,11 @@ public class PhiVariableContainer {
      */
     void print_var_dep_chain(Map<String, Integer> constants, String v) {
         // TODO: this is a proof of concept function
-        for(PhiVariable pv : phi_vars) {
-            if(pv.has_ever_been(v)) {
-                String s = pv.get_var_dep_chain_str(constants, v);
-                if(Utils.not_null(s)) {
-                    // make sure it is not null!
-                    Logger.info(s);
-                }
+        for(PhiVariable pv : get_value_owners(v)) {
+            String s = pv.get_var_dep_chain_str(constants, v);
+            if(Utils.not_null(s)) {
+                // make sure it is not null!
+                Logger.info(s);
             }
         }
     }
@@ -143,10 +221,8 @@ public class PhiVariableContainer {
      * @param v the variable name
      */
     void make_var_dep_chain_graph(Map<String, Integer> constants, String v) {
-        for(PhiVariable pv : phi_vars) {
-            if(pv.has_ever_been(v)) {
-               pv.make_var_dep_chain_graph(constants, v);
-            }
+        for(PhiVariable pv : get_value_owners(v)) {
+            pv.make_var_dep_chain_graph(constants, v);
         }
     }
 
@@ -161,12 +237,11 @@ public class PhiVariableContainer {
         if(constants.containsKey(v)) {
             return new ImmutablePair<>(null, null);
         } else {
-            for (PhiVariable pv : phi_vars) {
-                if (pv.has_ever_been(v)) {
-                    ImmutablePair<Variable, Set<AssignStmt>> ans = pv.get_var_dep_chain(constants, v);
-                    // TODO: this now comes out unordered... fix this
-                    return new ImmutablePair<>(ans.getLeft(), new ArrayList<>(ans.getRight()));
-                }
+            List<PhiVariable> owners = get_value_owners(v);
+            if (!owners.isEmpty()) {
+                ImmutablePair<Variable, Set<AssignStmt>> ans = owners.get(0).get_var_dep_chain(constants, v);
+                // TODO: this now comes out unordered... fix this
+                return new ImmutablePair<>(ans.getLeft(), new ArrayList<>(ans.getRight()));
             }
         }
         Logger.error("returning null! " + v);
@@ -227,12 +302,7 @@ public class PhiVariableContainer {
      * @return the phi variable if it is in the container. If not returns null
      */
     PhiVariable get_phi_var(String def) {
-        for(PhiVariable pv : phi_vars) {
-            if(Objects.equals(pv.get_phi_def().toString(), def)) {
-                return pv;
-            }
-        }
-        return null;
+        return phi_defs.get(def);
     }
 
 
@@ -242,12 +312,8 @@ public class PhiVariableContainer {
      * @return the phi expression iff there is a var defines a phi function otherwise null
      */
     PhiExpr get_phi_expr(String var) {
-        for(PhiVariable pv : phi_vars) {
-            if(Objects.equals(var, pv.get_phi_def().toString())) {
-                return pv.get_phi_expr();
-            }
-        }
-        return null;
+        PhiVariable pv = phi_defs.get(var);
+        return Utils.not_null(pv) ? pv.get_phi_expr() : null;
     }
 
     /**
@@ -256,12 +322,7 @@ public class PhiVariableContainer {
      * @return true iff there is a phi variable that uses this variable in it's definition
      */
     boolean is_used_in_phi(String var) {
-        for(PhiVariable pv : phi_vars) {
-            if(pv.get_uses().contains(var)) {
-                return true;
-            }
-        }
-        return false;
+        return phi_uses.contains(var);
     }
 
     /**
@@ -270,12 +331,7 @@ public class PhiVariableContainer {
      * @return true iff the variable defines a phi var
      */
     boolean defines_phi(String var) {
-        for(PhiVariable pv : phi_vars) {
-            if(Objects.equals(pv.get_phi_def().toString(), var)) {
-                return true;
-            }
-        }
-        return false;
+        return phi_defs.containsKey(var);
     }
 
 
@@ -285,12 +341,7 @@ public class PhiVariableContainer {
      * @return true iff the passed variable is a phi variable definition
      */
     boolean is_phi_def(String var) {
-        for(PhiVariable pv : phi_vars) {
-            if(Objects.equals(pv.get_phi_def().toString(), var)) {
-                return true;
-            }
-        }
-        return false;
+        return phi_defs.containsKey(var);
     }
 
     /**
@@ -0,0 +1,268 @@
+import org.tinylog.Logger;
+import soot.ClassProvider;
+import soot.ClassSource;
+import soot.FoundFile;
+import soot.asm.AsmClassSource;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * compiles the programs to analyze in process with javax.tools. All the out of date sources are compiled in
+ * one call, the class bytes are kept in memory and handed to Soot through get_class_provider() (they are also
+ * written to the output directory so the next run can skip sources that did not change).
+ */
+class ProgramCompiler {
+    /**
+     * the directory holding the sources
+     */
+    private final String src_dir;
+    /**
+     * the directory holding the class files
+     */
+    private final String out_dir;
+    /**
+     * the compiled classes (binary name to class bytes)
+     */
+    private final Map<String, byte[]> class_bytes;
+
+    /**
+     * constructor for the compiler
+     * @param src_dir the directory holding the sources
+     * @param out_dir the directory holding the class files
+     */
+    ProgramCompiler(String src_dir, String out_dir) {
+        this.src_dir = src_dir;
+        this.out_dir = out_dir;
+        this.class_bytes = new HashMap<>();
+    }
+
+    /**
+     * check if the class file of a class is newer than its source
+     * @param class_name the class
+     * @return true iff the class does not need to be compiled
+     */
+    boolean is_up_to_date(String class_name) {
+        File src = new File(src_dir, class_name + Constants.JAVA_EXT);
+        File cls = new File(out_dir, class_name + Constants.CLASS_EXT);
+        return cls.exists() && cls.lastModified() >= src.lastModified();
+    }
+
+    /**
+     * compile the classes whose class files are out of date (in one compiler call)
+     * @param class_names the classes
+     * @return false iff the compiler is not available (the caller has to compile the classes itself)
+     */
+    boolean compile(List<String> class_names) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(!Utils.not_null(compiler)) {
+            Logger.warn("No system Java compiler (running on a JRE?).");
+            return false;
+        }
+        List<File> sources = new ArrayList<>();
+        for(String class_name : class_names) {
+            if(is_up_to_date(class_name)) {
+                Logger.debug("Up to date, not compiling: " + class_name);
+            } else {
+                sources.add(new File(src_dir, class_name + Constants.JAVA_EXT));
+            }
+        }
+        if(sources.isEmpty()) {
+            return true;
+        }
+        long start = System.currentTimeMillis();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager std_manager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        MemoryFileManager manager = new MemoryFileManager(std_manager);
+        List<String> options = Arrays.asList("-g", "-cp", out_dir);
+        boolean ok = compiler.getTask(null, manager, diagnostics, options, null,
+                std_manager.getJavaFileObjectsFromFiles(sources)).call();
+        for(Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            String msg = String.format("%s:%d: %s", d.getSource() == null ? "" : d.getSource().getName(),
+                    d.getLineNumber(), d.getMessage(null));
+            if(d.getKind() == Diagnostic.Kind.ERROR) {
+                Logger.error(msg);
+            } else {
+                Logger.warn(msg);
+            }
+        }
+        if(!ok) {
+            throw new IllegalStateException("Errors found while compiling.");
+        }
+        for(MemoryClassFile f : manager.get_outputs()) {
+            byte[] bytes = f.get_bytes();
+            class_bytes.put(f.get_class_name(), bytes);
+            write_class(f.get_class_name(), bytes);
+        }
+        Logger.info(String.format("Compiled %d source(s) in %.2f sec", sources.size(),
+                (System.currentTimeMillis() - start) / 1000.0));
+        return true;
+    }
+
+    /**
+     * write a class file to the output directory
+     * @param class_name the binary name of the class
+     * @param bytes the class bytes
+     */
+    private void write_class(String class_name, byte[] bytes) {
+        File f = new File(out_dir, class_name.replace('.', File.separatorChar) + Constants.CLASS_EXT);
+        try {
+            if(Utils.not_null(f.getParentFile())) {
+                Files.createDirectories(f.getParentFile().toPath());
+            }
+            Files.write(f.toPath(), bytes);
+        } catch (IOException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * get a Soot class provider that reads the classes compiled in this run from memory
+     * (it has to go before the default providers)
+     * @return the class provider
+     */
+    ClassProvider get_class_provider() {
+        return class_name -> {
+            byte[] bytes = class_bytes.get(class_name);
+            if(!Utils.not_null(bytes)) {
+                return null;
+            }
+            return new AsmClassSource(class_name, new MemoryFoundFile(class_name, bytes)) { };
+        };
+    }
+
+    /**
+     * a class file that is written to memory by the compiler
+     */
+    private static class MemoryClassFile extends SimpleJavaFileObject {
+        /**
+         * the binary name of the class
+         */
+        private final String class_name;
+        /**
+         * the class bytes
+         */
+        private final ByteArrayOutputStream out;
+
+        /**
+         * constructor for the class file
+         * @param class_name the binary name of the class
+         */
+        MemoryClassFile(String class_name) {
+            super(URI.create("mem:///" + class_name.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.class_name = class_name;
+            this.out = new ByteArrayOutputStream();
+        }
+
+        /**
+         * the compiler writes the class here
+         * @return the output stream
+         */
+        @Override
+        public OutputStream openOutputStream() {
+            return out;
+        }
+
+        /**
+         * getter for the class name
+         * @return the binary name of the class
+         */
+        String get_class_name() {
+            return class_name;
+        }
+
+        /**
+         * getter for the class bytes
+         * @return the class bytes
+         */
+        byte[] get_bytes() {
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * file manager that reads with the standard file manager and keeps the class files in memory
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        /**
+         * the class files written by the compiler
+         */
+        private final List<MemoryClassFile> outputs;
+
+        /**
+         * constructor for the file manager
+         * @param manager the standard file manager
+         */
+        MemoryFileManager(StandardJavaFileManager manager) {
+            super(manager);
+            this.outputs = new ArrayList<>();
+        }
+
+        /**
+         * give the compiler an in memory class file
+         * @param location the output location
+         * @param class_name the binary name of the class
+         * @param kind the kind of file
+         * @param sibling the source file
+         * @return the class file
+         */
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String class_name, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            MemoryClassFile f = new MemoryClassFile(class_name);
+            outputs.add(f);
+            return f;
+        }
+
+        /**
+         * getter for the class files
+         * @return the class files written by the compiler
+         */
+        List<MemoryClassFile> get_outputs() {
+            return outputs;
+        }
+    }
+
+    /**
+     * a Soot file that is read from memory
+     */
+    private static class MemoryFoundFile extends FoundFile {
+        /**
+         * the class bytes
+         */
+        private final byte[] bytes;
+
+        /**
+         * constructor for the file
+         * @param class_name the binary name of the class
+         * @param bytes the class bytes
+         */
+        MemoryFoundFile(String class_name, byte[] bytes) {
+            super(new File(class_name + Constants.CLASS_EXT));
+            this.bytes = bytes;
+        }
+
+        /**
+         * read the class bytes
+         * @return a stream over the class bytes
+         */
+        @Override
+        public InputStream inputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        /**
+         * nothing to close
+         */
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append only file of checksummed records, shared by the solver cache (see SolverCacheFile) and the result store
+ * (see ResultStore). The file starts with a magic number and a version, followed by records of the form
+ * (payload length, payload, crc32 of payload). A file with the wrong magic number or version is discarded, a
+ * corrupt record (a bad length or checksum, or a payload that can not be read) and everything after it is dropped
+ * and cut off the file. Every record is flushed as soon as it is appended, the analysis can exit at any time.
+ */
+class RecordFile {
+    /**
+     * reads the payload of a record
+     */
+    interface PayloadReader {
+        /**
+         * read a payload
+         * @param in the payload
+         * @throws IOException if the payload is truncated
+         */
+        void read(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * writes the payload of a record
+     */
+    interface PayloadWriter {
+        /**
+         * write a payload
+         * @param out the payload
+         * @throws IOException if the payload can not be written
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * the file
+     */
+    private final File file;
+    /**
+     * what the file holds (for the log)
+     */
+    private final String description;
+    /**
+     * the magic number of the file
+     */
+    private final int magic;
+    /**
+     * the version of the file, a file of another version is discarded
+     */
+    private final int version;
+    /**
+     * the largest payload that is read, a larger length means the record is corrupt
+     */
+    private final int max_record;
+    /**
+     * the counter of the bytes appended (see Metrics)
+     */
+    private final String bytes_metric;
+    /**
+     * the stream used to append new records (null if the file is not open)
+     */
+    private DataOutputStream out;
+
+    /**
+     * constructor for a record file, this does not touch the file (see load())
+     * @param filename the name of the file
+     * @param description what the file holds (for the log)
+     * @param magic the magic number of the file
+     * @param version the version of the file
+     * @param max_record the largest payload that is read
+     * @param bytes_metric the counter of the bytes appended
+     */
+    RecordFile(String filename, String description, int magic, int version, int max_record, String bytes_metric) {
+        this.file = new File(filename);
+        this.description = description;
+        this.magic = magic;
+        this.version = version;
+        this.max_record = max_record;
+        this.bytes_metric = bytes_metric;
+        this.out = null;
+    }
+
+    /**
+     * getter for the file name
+     * @return the name of the file
+     */
+    String get_name() {
+        return file.getPath();
+    }
+
+    /**
+     * read every valid record from the file and open it for appending
+     * @param reader reads the payload of every valid record
+     * @return the number of records read
+     */
+    synchronized int load(PayloadReader reader) {
+        int records = 0;
+        long valid_length = 0L;
+        if(file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                int file_magic = in.readInt();
+                int file_version = in.readInt();
+                if(file_magic != magic || file_version != version) {
+                    Logger.warn(String.format("%s %s is stale (version %d), ignoring it.", description, file,
+                            file_version));
+                } else {
+                    valid_length = Constants.RECORD_FILE_HEADER_SIZE;
+                    while(true) {
+                        long size = read_record(in, reader);
+                        if(size == 0L) {
+                            break;
+                        }
+                        records++;
+                        valid_length += size;
+                    }
+                }
+            } catch (IOException e) {
+                Logger.warn("Caught " + e.getClass().getSimpleName() + " reading " + file + ": " + e.getMessage());
+                if(Constants.PRINT_ST) {
+                    e.printStackTrace();
+                }
+            }
+            if(valid_length > 0L && valid_length < file.length()) {
+                Logger.warn(String.format("%s %s is corrupt after byte %d, dropping the rest.", description, file,
+                        valid_length));
+            }
+        }
+        open(valid_length);
+        return records;
+    }
+
+    /**
+     * read a single record
+     * @param in the input stream
+     * @param reader reads the payload of the record
+     * @return the size of the record in the file or 0 if the end of the file or a corrupt record was reached
+     */
+    private long read_record(DataInputStream in, PayloadReader reader) {
+        try {
+            int length = in.readInt();
+            if(length <= 0 || length > max_record) {
+                return 0L;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            long crc = in.readLong();
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            if(crc != crc32.getValue()) {
+                return 0L;
+            }
+            reader.read(new DataInputStream(new ByteArrayInputStream(payload)));
+            // length + payload + crc
+            return 4 + length + 8;
+        } catch (IOException e) {
+            // EOF or a truncated record
+            return 0L;
+        }
+    }
+
+    /**
+     * open the file for appending, truncating it to the valid records (or writing a new header)
+     * @param valid_length the length of the valid part of the file (0 if there is none)
+     */
+    private void open(long valid_length) {
+        try {
+            if(valid_length == 0L) {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+                out.writeInt(magic);
+                out.writeInt(version);
+                out.flush();
+            } else {
+                if(valid_length < file.length()) {
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                        raf.setLength(valid_length);
+                    }
+                }
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+        } catch (IOException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * append a record to the file (nothing is written if the file is not open)
+     * @param writer writes the payload of the record
+     */
+    synchronized void append(PayloadWriter writer) {
+        if(!Utils.not_null(out)) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream pout = new DataOutputStream(bytes);
+            writer.write(pout);
+            pout.flush();
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeLong(crc32.getValue());
+            out.flush();
+            // length + payload + crc
+            Metrics.count(bytes_metric, 4 + payload.length + 8);
+        } catch (IOException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * close the file
+     */
+    synchronized void close() {
+        if(Utils.not_null(out)) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+                if(Constants.PRINT_ST) {
+                    e.printStackTrace();
+                }
+            }
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Enum representing how graphs are written out (not at all, as DOT text or rendered to an image).
+ */
+public enum RenderMode {
+    OFF("OFF", ""),
+    DOT("DOT", ".dot"),
+    PNG("PNG", ".png"),
+    SVG("SVG", ".svg");
+
+    private final String text;
+    private final String ext;
+
+    /**
+     * @param text convert to string
+     * @param ext the file extension of the written graphs
+     */
+    RenderMode(final String text, final String ext) {
+        this.text = text;
+        this.ext = ext;
+    }
+
+    /**
+     * getter for the file extension
+     * @return the file extension of the written graphs
+     */
+    String get_ext() {
+        return ext;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
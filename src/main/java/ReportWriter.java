@@ -0,0 +1,211 @@
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the dependence report of a run as JSON while the run goes on. The header is written when the writer is
+ * made, every method is appended when its body is done (from the analysis or the result store) and every loop of
+ * the method is flushed as soon as it is written, so a reader can follow the file and only one method is ever held
+ * in memory. A method holds its dependences (SCC edges) with their d values, and each of its loops the def/use
+ * nodes and edges inside it, the indexes of its dependences in the dependences of the method, the phi variables it
+ * defines and whether it can be parallelized (every array access of the loop has a node and none of its
+ * dependences is loop carried). The report is closed by close(), a report that was cut short is missing its
+ * closing brackets.
+ */
+class ReportWriter implements Closeable {
+    /**
+     * the name of the report file
+     */
+    private final String filename;
+    /**
+     * the JSON writer (null once writing failed)
+     */
+    private JsonWriter json;
+    /**
+     * the number of methods written
+     */
+    private int methods;
+    /**
+     * the number of loops written
+     */
+    private int loops;
+    /**
+     * the number of loops written that can be parallelized
+     */
+    private int parallel_loops;
+
+    /**
+     * make a report file and write its header
+     * @param filename the name of the report file
+     * @param classes the classes of the run
+     */
+    ReportWriter(String filename, List<String> classes) {
+        this.filename = filename;
+        this.methods = 0;
+        this.loops = 0;
+        this.parallel_loops = 0;
+        try {
+            json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename),
+                    StandardCharsets.UTF_8)));
+            json.begin_object();
+            json.name("classes").begin_array();
+            for(String c : classes) {
+                json.value(c);
+            }
+            json.end_array();
+            json.name("solver_backend").value(Settings.get_solver_backend().toString());
+            json.name("methods").begin_array();
+            json.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * log a write error and stop writing
+     * @param e the error
+     */
+    private void fail(IOException e) {
+        Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        if(Constants.PRINT_ST) {
+            e.printStackTrace();
+        }
+        if(Utils.not_null(json)) {
+            try {
+                json.close();
+            } catch (IOException ignored) {
+                // the error was logged already
+            }
+        }
+        json = null;
+    }
+
+    /**
+     * append a method to the report
+     * @param class_name the class the method was analyzed with
+     * @param result the result of the method
+     * @param stored true iff the result was taken from the result store
+     */
+    synchronized void write(String class_name, MethodResult result, boolean stored) {
+        if(!Utils.not_null(json)) {
+            return;
+        }
+        try {
+            json.begin_object();
+            json.name("class").value(class_name);
+            json.name("method").value(result.get_body_name());
+            json.name("from_result_store").value(stored);
+            json.name("loops").begin_array();
+            int parallel = 0;
+            for(LoopResult l : result.get_loops()) {
+                write_loop(l);
+                json.flush();
+                parallel += l.is_parallelizable() ? 1 : 0;
+            }
+            json.end_array();
+            json.name("dependences").begin_array();
+            for(Dependence d : result.get_dependences()) {
+                write_dependence(d);
+            }
+            json.end_array();
+            json.name("parallelizable_loops").value(parallel);
+            json.end_object();
+            json.flush();
+            methods++;
+            loops += result.get_loops().size();
+            parallel_loops += parallel;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * write a loop
+     * @param l the result of the loop
+     * @throws IOException if the writer fails
+     */
+    private void write_loop(LoopResult l) throws IOException {
+        json.begin_object();
+        json.name("head").value(l.get_head());
+        json.name("source_line").value(l.get_source_line());
+        json.name("parallelizable").value(l.is_parallelizable());
+        json.name("loop_carried").value(l.get_carried_count());
+        json.name("unmodelled_accesses").value(l.get_unmodelled_accesses());
+        json.name("nodes").begin_array();
+        for(ArrayAccess n : l.get_nodes()) {
+            json.begin_object();
+            json.name("id").value(n.get_id());
+            json.name("type").value(n.get_type());
+            json.name("stmt").value(n.get_stmt());
+            json.name("line").value(n.get_line());
+            json.end_object();
+        }
+        json.end_array();
+        json.name("edges").begin_array();
+        for(String[] edge : l.get_def_use_edges()) {
+            json.begin_object();
+            json.name("def").value(edge[0]);
+            json.name("use").value(edge[1]);
+            json.end_object();
+        }
+        json.end_array();
+        // the dependences of the method, by index
+        json.name("dependence_ids").begin_array();
+        for(int id : l.get_dependence_ids()) {
+            json.value(id);
+        }
+        json.end_array();
+        json.name("phi_variables").begin_array();
+        for(String name : l.get_phi_vars()) {
+            json.value(name);
+        }
+        json.end_array();
+        json.name("index_variables").begin_array();
+        for(String name : l.get_index_vars()) {
+            json.value(name);
+        }
+        json.end_array();
+        json.end_object();
+    }
+
+    /**
+     * write a dependence
+     * @param d the dependence
+     * @throws IOException if the writer fails
+     */
+    private void write_dependence(Dependence d) throws IOException {
+        json.begin_object();
+        json.name("src").value(d.get_src());
+        json.name("src_line").value(d.get_src_line());
+        json.name("dest").value(d.get_dest());
+        json.name("dest_line").value(d.get_dest_line());
+        json.name("d").value(d.get_d());
+        json.name("loop_carried").value(d.is_loop_carried());
+        json.end_object();
+    }
+
+    /**
+     * write the totals and close the report
+     */
+    @Override
+    public synchronized void close() {
+        if(!Utils.not_null(json)) {
+            return;
+        }
+        try {
+            json.end_array();
+            json.name("method_count").value(methods);
+            json.name("loop_count").value(loops);
+            json.name("parallelizable_loops").value(parallel_loops);
+            json.end_object();
+            json.close();
+            json = null;
+            Logger.info(String.format("Report of %d method(s) and %d loop(s) written to %s", methods, loops,
+                    filename));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+}
@@ -0,0 +1,470 @@
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * A read only binary snapshot of method results (see MethodResult) that other tools can load without Soot.
+ * Every statement, name and id is stored once in a string table and referenced by its index, all numbers are
+ * big endian ints. The layout is:
+ * header (magic, version, string count, method count, offset of the string index, offset of the method index),
+ * string index (string count + 1 offsets, string i is the UTF-8 bytes between offsets i and i + 1),
+ * string bytes, method index (name and record offset of every method, sorted by name) and the method records.
+ * The reader maps the file and decodes nothing up front: a method is found with a binary search over the method
+ * index and only its record and the strings it uses are decoded, when it is asked for. Decoded strings are kept,
+ * two threads asking for the same string at the same time only decode it twice. The header, the string index and
+ * the method index are checked against the size of the file when it is opened, a record when it is decoded: a
+ * corrupt file throws an IOException. A snapshot is written to a temporary file that then replaces the old one,
+ * so a failed write never leaves half a snapshot behind.
+ */
+class ResultSnapshot {
+    /**
+     * the mapped file
+     */
+    private final ByteBuffer buf;
+    /**
+     * the number of strings in the string table
+     */
+    private final int string_count;
+    /**
+     * the number of methods
+     */
+    private final int method_count;
+    /**
+     * the offset of the string index
+     */
+    private final int strings_offset;
+    /**
+     * the offset of the method index
+     */
+    private final int methods_offset;
+    /**
+     * the strings decoded so far (null if not decoded yet)
+     */
+    private final String[] strings;
+
+    /**
+     * map a snapshot file and check its header, its string index and its method index
+     * @param filename the name of the snapshot file
+     * @throws IOException if the file can not be read, is not a snapshot of this version or is corrupt
+     */
+    ResultSnapshot(String filename) throws IOException {
+        try (FileChannel channel = new RandomAccessFile(filename, "r").getChannel()) {
+            if(channel.size() < Constants.SNAPSHOT_HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(filename + " is not a result snapshot.");
+            }
+            // the mapping stays valid after the channel is closed
+            this.buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int magic = buf.getInt(0);
+        int version = buf.getInt(4);
+        if(magic != Constants.SNAPSHOT_MAGIC || version != Constants.SNAPSHOT_VERSION) {
+            throw new IOException(String.format("%s is not a result snapshot of version %d (version %d).", filename,
+                    Constants.SNAPSHOT_VERSION, version));
+        }
+        this.string_count = buf.getInt(8);
+        this.method_count = buf.getInt(12);
+        this.strings_offset = buf.getInt(16);
+        this.methods_offset = buf.getInt(20);
+        long limit = buf.limit();
+        // the string index (with the end offset of the last string), then the string bytes
+        long strings_start = strings_offset + 4L * (string_count + 1L);
+        // the method index, then the records
+        long records_start = methods_offset + 8L * method_count;
+        if(string_count < 0 || method_count < 0 || strings_offset < Constants.SNAPSHOT_HEADER_SIZE
+                || strings_start > methods_offset || records_start > limit) {
+            throw new IOException(filename + " is corrupt (bad header).");
+        }
+        long last = strings_start;
+        for(int i = 0; i <= string_count; i++) {
+            int offset = buf.getInt(strings_offset + 4 * i);
+            if(offset < last || offset > methods_offset) {
+                throw new IOException(String.format("%s is corrupt (bad offset of string %d).", filename, i));
+            }
+            last = offset;
+        }
+        for(int i = 0; i < method_count; i++) {
+            int name = buf.getInt(methods_offset + 8 * i);
+            int record = buf.getInt(methods_offset + 8 * i + 4);
+            if(name < 0 || name >= string_count || record < records_start || record >= limit) {
+                throw new IOException(String.format("%s is corrupt (bad index entry of method %d).", filename, i));
+            }
+        }
+        this.strings = new String[string_count];
+    }
+
+    /**
+     * getter for the number of methods
+     * @return the number of methods in the snapshot
+     */
+    int get_method_count() {
+        return method_count;
+    }
+
+    /**
+     * getter for the number of strings
+     * @return the number of strings in the string table
+     */
+    int get_string_count() {
+        return string_count;
+    }
+
+    /**
+     * get a string of the string table
+     * @param id the index of the string
+     * @return the string
+     * @throws IOException if there is no string with this index
+     */
+    private String get_string(int id) throws IOException {
+        if(id < 0 || id >= string_count) {
+            throw new IOException("Bad string index " + id + " in snapshot.");
+        }
+        if(!Utils.not_null(strings[id])) {
+            int start = buf.getInt(strings_offset + 4 * id);
+            int end = buf.getInt(strings_offset + 4 * (id + 1));
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buf.duplicate();
+            // through Buffer so the class runs on Java 8 when it is built with a newer JDK
+            ((Buffer)view).position(start);
+            view.get(bytes);
+            strings[id] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings[id];
+    }
+
+    /**
+     * get the name of a method of the method index
+     * @param i the position of the method in the index
+     * @return the body name of the method
+     * @throws IOException if the name is not in the string table
+     */
+    private String get_method_name(int i) throws IOException {
+        return get_string(buf.getInt(methods_offset + 8 * i));
+    }
+
+    /**
+     * get the names of all methods
+     * @return the body names, sorted
+     * @throws IOException if a name is not in the string table
+     */
+    List<String> get_method_names() throws IOException {
+        List<String> names = new ArrayList<>(method_count);
+        for(int i = 0; i < method_count; i++) {
+            names.add(get_method_name(i));
+        }
+        return names;
+    }
+
+    /**
+     * get the result of a method, decoding its record
+     * @param body_name the body name of the method
+     * @return the result or null if the method is not in the snapshot
+     * @throws IOException if the record of the method is corrupt
+     */
+    MethodResult get(String body_name) throws IOException {
+        int low = 0;
+        int high = method_count - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = get_method_name(mid).compareTo(body_name);
+            if(cmp < 0) {
+                low = mid + 1;
+            } else if(cmp > 0) {
+                high = mid - 1;
+            } else {
+                ByteBuffer record = buf.duplicate();
+                ((Buffer)record).position(buf.getInt(methods_offset + 8 * mid + 4));
+                try {
+                    return read_method(body_name, record);
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("The record of " + body_name + " runs past the end of the snapshot.", e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * read the length of a list of a record
+     * @param in the record
+     * @param entry_size the size of an entry of the list in bytes (at least)
+     * @return the length of the list
+     * @throws IOException if the list does not fit into the rest of the file
+     */
+    private static int read_count(ByteBuffer in, int entry_size) throws IOException {
+        int n = in.getInt();
+        if(n < 0 || n > in.remaining() / entry_size) {
+            throw new IOException("Bad list length " + n + " in snapshot.");
+        }
+        return n;
+    }
+
+    /**
+     * decode a method record
+     * @param body_name the body name of the method
+     * @param in the record
+     * @return the result of the method
+     * @throws IOException if the record is corrupt
+     */
+    private MethodResult read_method(String body_name, ByteBuffer in) throws IOException {
+        List<String[]> def_use_edges = read_edges(in);
+        List<Dependence> dependences = read_dependences(in);
+        // head, source line, unmodelled accesses and the lengths of its five lists
+        int n = read_count(in, 32);
+        List<LoopResult> loops = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            String head = get_string(in.getInt());
+            int source_line = in.getInt();
+            int unmodelled_accesses = in.getInt();
+            int node_count = read_count(in, 16);
+            List<ArrayAccess> nodes = new ArrayList<>(node_count);
+            for(int j = 0; j < node_count; j++) {
+                nodes.add(new ArrayAccess(get_string(in.getInt()), get_string(in.getInt()), get_string(in.getInt()),
+                        in.getInt()));
+            }
+            List<String[]> loop_edges = read_edges(in);
+            int dependence_count = read_count(in, 4);
+            List<Integer> dependence_ids = new ArrayList<>(dependence_count);
+            for(int j = 0; j < dependence_count; j++) {
+                dependence_ids.add(in.getInt());
+            }
+            List<String> phi_vars = read_names(in);
+            List<String> index_vars = read_names(in);
+            loops.add(new LoopResult(head, source_line, unmodelled_accesses, nodes, loop_edges,
+                    dependence_ids, LoopResult.get_dependences(dependence_ids, dependences), phi_vars, index_vars));
+        }
+        return new MethodResult(body_name, def_use_edges, dependences, loops);
+    }
+
+    /**
+     * decode a list of def/use edges
+     * @param in the record
+     * @return the edges (def statement, use statement)
+     * @throws IOException if the list is corrupt
+     */
+    private List<String[]> read_edges(ByteBuffer in) throws IOException {
+        int n = read_count(in, 8);
+        List<String[]> edges = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            edges.add(new String[]{get_string(in.getInt()), get_string(in.getInt())});
+        }
+        return edges;
+    }
+
+    /**
+     * decode a list of dependences
+     * @param in the record
+     * @return the dependences
+     * @throws IOException if the list is corrupt
+     */
+    private List<Dependence> read_dependences(ByteBuffer in) throws IOException {
+        int n = read_count(in, 20);
+        List<Dependence> dependences = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            dependences.add(new Dependence(get_string(in.getInt()), in.getInt(), get_string(in.getInt()),
+                    in.getInt(), in.getInt()));
+        }
+        return dependences;
+    }
+
+    /**
+     * decode a list of names
+     * @param in the record
+     * @return the names
+     * @throws IOException if the list is corrupt
+     */
+    private List<String> read_names(ByteBuffer in) throws IOException {
+        int n = read_count(in, 4);
+        List<String> names = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            names.add(get_string(in.getInt()));
+        }
+        return names;
+    }
+
+    /**
+     * get the index of a string, adding it to the string table if it is new
+     * @param strings the string table (string to index)
+     * @param s the string
+     * @return the index of the string
+     */
+    private static int id(Map<String, Integer> strings, String s) {
+        return strings.computeIfAbsent(s, k -> strings.size());
+    }
+
+    /**
+     * write a list of def/use edges
+     * @param out the record stream
+     * @param strings the string table
+     * @param edges the edges (def statement, use statement)
+     * @throws IOException if the stream can not be written
+     */
+    private static void write_edges(DataOutputStream out, Map<String, Integer> strings, List<String[]> edges)
+            throws IOException {
+        out.writeInt(edges.size());
+        for(String[] edge : edges) {
+            out.writeInt(id(strings, edge[0]));
+            out.writeInt(id(strings, edge[1]));
+        }
+    }
+
+    /**
+     * write a list of dependences
+     * @param out the record stream
+     * @param strings the string table
+     * @param dependences the dependences
+     * @throws IOException if the stream can not be written
+     */
+    private static void write_dependences(DataOutputStream out, Map<String, Integer> strings,
+                                          List<Dependence> dependences) throws IOException {
+        out.writeInt(dependences.size());
+        for(Dependence d : dependences) {
+            out.writeInt(id(strings, d.get_src()));
+            out.writeInt(d.get_src_line());
+            out.writeInt(id(strings, d.get_dest()));
+            out.writeInt(d.get_dest_line());
+            out.writeInt(d.get_d());
+        }
+    }
+
+    /**
+     * write a list of names
+     * @param out the record stream
+     * @param strings the string table
+     * @param names the names
+     * @throws IOException if the stream can not be written
+     */
+    private static void write_names(DataOutputStream out, Map<String, Integer> strings, List<String> names)
+            throws IOException {
+        out.writeInt(names.size());
+        for(String name : names) {
+            out.writeInt(id(strings, name));
+        }
+    }
+
+    /**
+     * write the record of a method
+     * @param out the record stream
+     * @param strings the string table
+     * @param result the result of the method
+     * @throws IOException if the stream can not be written
+     */
+    private static void write_method(DataOutputStream out, Map<String, Integer> strings, MethodResult result)
+            throws IOException {
+        write_edges(out, strings, result.get_def_use_edges());
+        write_dependences(out, strings, result.get_dependences());
+        out.writeInt(result.get_loops().size());
+        for(LoopResult l : result.get_loops()) {
+            out.writeInt(id(strings, l.get_head()));
+            out.writeInt(l.get_source_line());
+            out.writeInt(l.get_unmodelled_accesses());
+            out.writeInt(l.get_nodes().size());
+            for(ArrayAccess n : l.get_nodes()) {
+                out.writeInt(id(strings, n.get_id()));
+                out.writeInt(id(strings, n.get_stmt()));
+                out.writeInt(id(strings, n.get_type()));
+                out.writeInt(n.get_line());
+            }
+            write_edges(out, strings, l.get_def_use_edges());
+            // the dependences of the method, by index
+            out.writeInt(l.get_dependence_ids().size());
+            for(int id : l.get_dependence_ids()) {
+                out.writeInt(id);
+            }
+            write_names(out, strings, l.get_phi_vars());
+            write_names(out, strings, l.get_index_vars());
+        }
+    }
+
+    /**
+     * write a snapshot of method results (to a temporary file that replaces the old snapshot once it is complete)
+     * @param filename the name of the snapshot file
+     * @param results the result of every method (by body name)
+     */
+    static void write(String filename, Map<String, MethodResult> results) {
+        File tmp = new File(filename + Constants.SNAPSHOT_TMP_SUFFIX);
+        try {
+            int size = write(tmp, results);
+            Files.move(tmp.toPath(), Paths.get(filename), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            Metrics.count(Constants.METRIC_SNAPSHOT_BYTES, size);
+            Logger.info(String.format("Snapshot of %d method(s) (%d bytes) written to %s", results.size(), size,
+                    filename));
+        } catch (IOException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+            if(tmp.exists() && !tmp.delete()) {
+                Logger.warn(tmp + " could not be deleted.");
+            }
+        }
+    }
+
+    /**
+     * write a snapshot of method results to a file
+     * @param file the file
+     * @param results the result of every method (by body name)
+     * @return the size of the snapshot in bytes
+     * @throws IOException if the file can not be written
+     */
+    private static int write(File file, Map<String, MethodResult> results) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(results.keySet());
+        Collections.sort(names);
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        int[] record_offsets = new int[names.size()];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            DataOutputStream rout = new DataOutputStream(records);
+            for(int i = 0; i < names.size(); i++) {
+                id(strings, names.get(i));
+                record_offsets[i] = rout.size();
+                write_method(rout, strings, results.get(names.get(i)));
+            }
+            rout.flush();
+            List<byte[]> bytes = new ArrayList<>(strings.size());
+            long string_bytes = 0L;
+            for(String s : strings.keySet()) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                bytes.add(b);
+                string_bytes += b.length;
+            }
+            long strings_offset = Constants.SNAPSHOT_HEADER_SIZE;
+            long methods_offset = strings_offset + 4L * (strings.size() + 1) + string_bytes;
+            long records_offset = methods_offset + 8L * names.size();
+            if(records_offset + records.size() > Integer.MAX_VALUE) {
+                throw new IOException("The snapshot is too large (" + (records_offset + records.size()) + " bytes).");
+            }
+            out.writeInt(Constants.SNAPSHOT_MAGIC);
+            out.writeInt(Constants.SNAPSHOT_VERSION);
+            out.writeInt(strings.size());
+            out.writeInt(names.size());
+            out.writeInt((int)strings_offset);
+            out.writeInt((int)methods_offset);
+            int offset = (int)strings_offset + 4 * (strings.size() + 1);
+            for(byte[] b : bytes) {
+                out.writeInt(offset);
+                offset += b.length;
+            }
+            out.writeInt(offset);
+            for(byte[] b : bytes) {
+                out.write(b);
+            }
+            for(int i = 0; i < names.size(); i++) {
+                out.writeInt(strings.get(names.get(i)));
+                out.writeInt((int)records_offset + record_offsets[i]);
+            }
+            records.writeTo(out);
+            out.flush();
+            return out.size();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import org.tinylog.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Store of method results (see MethodResult) keyed by the hash of the method (see MethodHasher), so methods that
+ * did not change since the last run are not analyzed again. The file is a record file (see RecordFile) like the
+ * solver cache, the payload of every record is the key and the result. New results are appended, a key that is
+ * stored twice keeps the last result.
+ */
+class ResultStore {
+    /**
+     * the store file (null if the store is in memory only)
+     */
+    private final RecordFile file;
+    /**
+     * the stored results for each key
+     */
+    private final Map<String, MethodResult> results;
+    /**
+     * the number of methods that were not analyzed because their result was stored
+     */
+    private final AtomicInteger hits;
+
+    /**
+     * constructor for an in memory result store
+     */
+    ResultStore() {
+        this(null);
+    }
+
+    /**
+     * constructor for a result store that is persisted across runs, the file is read here
+     * @param filename the name of the store file (null for an in memory store)
+     */
+    ResultStore(String filename) {
+        this.file = Utils.not_null(filename) ? new RecordFile(filename, "Result store",
+                Constants.RESULT_STORE_MAGIC, Constants.RESULT_STORE_VERSION, Constants.RESULT_STORE_MAX_RECORD,
+                Constants.METRIC_RESULT_STORE_BYTES) : null;
+        this.results = new ConcurrentHashMap<>();
+        this.hits = new AtomicInteger(0);
+        if(Utils.not_null(file)) {
+            file.load(in -> {
+                String key = in.readUTF();
+                results.put(key, MethodResult.read(in));
+            });
+            Logger.info(String.format("Loaded %d method result(s) from %s", results.size(), file.get_name()));
+        }
+    }
+
+    /**
+     * get the stored result of a method
+     * @param key the key of the method (null if it could not be hashed)
+     * @return the result or null if the method has to be analyzed
+     */
+    MethodResult get(String key) {
+        if(!Utils.not_null(key)) {
+            return null;
+        }
+        MethodResult result = results.get(key);
+        if(Utils.not_null(result)) {
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * store the result of a method
+     * @param key the key of the method (nothing is stored if it is null)
+     * @param result the result
+     */
+    synchronized void put(String key, MethodResult result) {
+        if(!Utils.not_null(key)) {
+            return;
+        }
+        results.put(key, result);
+        if(Utils.not_null(file)) {
+            file.append(out -> {
+                out.writeUTF(key);
+                result.write(out);
+            });
+        }
+    }
+
+    /**
+     * getter for the number of hits
+     * @return the number of methods that were not analyzed because their result was stored
+     */
+    int get_hits() {
+        return hits.get();
+    }
+
+    /**
+     * close the file (if any)
+     */
+    synchronized void close() {
+        if(Utils.not_null(file)) {
+            file.close();
+        }
+    }
+}
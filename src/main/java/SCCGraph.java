@@ -3,6 +3,7 @@ import guru.nidi.graphviz.model.MutableGraph;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.tinylog.Logger;
 import soot.jimple.AssignStmt;
+import soot.jimple.IfStmt;
 
 import java.util.*;
 
@@ -39,12 +40,12 @@ public class SCCGraph {
 
     /**
      * the base constructor for the SCC graph
-     * @param class_name the name of the class being analyzed
+     * @param body_name the name of the body being analyzed
      */
-    SCCGraph(String class_name) {
-        this.SCC_graph = mutGraph(class_name + "_scc_final").setDirected(true);
-        this.nodes = new HashSet<>();
-        this.edges = new HashSet<>();
+    SCCGraph(String body_name) {
+        this.SCC_graph = mutGraph(body_name + "_scc_final").setDirected(true);
+        this.nodes = new LinkedHashSet<>();
+        this.edges = new LinkedHashSet<>();
     }
 
     /**
@@ -53,8 +54,8 @@ public class SCCGraph {
      */
     SCCGraph(SCCGraph sccg) {
         this.SCC_graph = sccg.SCC_graph;
-        this.nodes = new HashSet<>(sccg.nodes);
-        this.edges = new HashSet<>(sccg.edges);
+        this.nodes = new LinkedHashSet<>(sccg.nodes);
+        this.edges = new LinkedHashSet<>(sccg.edges);
     }
 
     /**
@@ -66,6 +67,14 @@ public class SCCGraph {
         return edges;
     }
 
+    /**
+     * getter for the SCC nodes
+     * @return the SCC nodes
+     */
+    Set<SCCNode> get_nodes() {
+        return nodes;
+    }
+
     /**
      * add an SCC node to the graph
      * @param node the node to add
@@ -94,6 +103,32 @@ public class SCCGraph {
         return scc_chain;
     }
 
+    /**
+     * get the pairs of linked SCC nodes (a read and a write of the same array) in the order they are processed
+     * @return the (current node, next node) pairs of every chain
+     */
+    private List<ImmutablePair<SCCNode, SCCNode>> get_scc_pairs() {
+        List<ImmutablePair<SCCNode, SCCNode>> pairs = new ArrayList<>();
+        List<List<SCCNode>> completed_chains = new ArrayList<>();
+        for(SCCNode node : nodes) {
+            List<SCCNode> scc_chain = get_scc_chain(node);
+            if(!completed_chains.contains(scc_chain) && scc_chain.size() > 1) {
+                SCCNode cur_node = scc_chain.get(0);
+                for(int i = 1; i < scc_chain.size(); i++) {
+                    List<ReadWrite> rw_check = new ArrayList<>(Arrays.asList(cur_node.get_rw(), scc_chain.get(i).get_rw()));
+                    if (rw_check.contains(ReadWrite.READ) && rw_check.contains(ReadWrite.WRITE)) {
+                        pairs.add(new ImmutablePair<>(cur_node, scc_chain.get(i)));
+                        cur_node = new SCCNode(scc_chain.get(i));
+                    }
+                }
+                completed_chains.add(scc_chain);
+            } else {
+                Logger.debug("Chain already completed.");
+            }
+        }
+        return pairs;
+    }
+
     /**
      * get a solver associated with an SCCNode
      * @param node the SCCNode
@@ -114,10 +149,11 @@ public class SCCGraph {
      * @param def_use_graph The final DefUse Graph
      * @param if_stmts container for if statements (used in def/use graph)
      * @param array_vars the map of array variables and versions
+     * @param solver_cache the cache of solver results
      */
     void make_scc_graph(PhiVariableContainer pvc, Map<String, Integer> constants,
                         ArrayDefUseGraph def_use_graph, IfStatementContainer if_stmts,
-                        ArrayVariables array_vars) {
+                        ArrayVariables array_vars, SolverCache solver_cache) {
 
         List<ImmutablePair<String, String>> seen_deps = new ArrayList<>();
 
@@ -129,262 +165,263 @@ public class SCCGraph {
             }
         }
 
-        List<List<SCCNode>> completed_chains = new ArrayList<>();
-        for(SCCNode node : nodes) {
-            List<SCCNode> scc_chain = get_scc_chain(node);
-            if(!completed_chains.contains(scc_chain) && scc_chain.size() > 1) {
-                SCCNode cur_node = scc_chain.get(0);
-                for(int i = 1; i < scc_chain.size(); i++) {
-                    List<ReadWrite> rw_check = new ArrayList<>(Arrays.asList(cur_node.get_rw(), scc_chain.get(i).get_rw()));
-                    if (rw_check.contains(ReadWrite.READ) && rw_check.contains(ReadWrite.WRITE)) {
-                        ReadWrite c_rw = cur_node.get_rw();
-                        ReadWrite n_rw = scc_chain.get(i).get_rw();
-                        int c_line = cur_node.get_line_num();
-                        int n_line = scc_chain.get(i).get_line_num();
-                        int can_be_cycle = 0;
-                        if(c_line > n_line) {
-                            Logger.debug("Current line is after n_line");
-                            if(c_rw == ReadWrite.READ && n_rw == ReadWrite.WRITE) {
-                                Logger.debug("This Cannot be a cycle. 1");
-                                Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
-                                Logger.debug("\tn_stmt: " + scc_chain.get(i).get_stmt().toString());
-                            } else if(c_rw == ReadWrite.WRITE && n_rw == ReadWrite.READ) {
-                                Logger.debug("This might be a cycle. 1");
-                                Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
-                                Logger.debug("\tn_stmt: " + scc_chain.get(i).get_stmt().toString());
-                                can_be_cycle = 1;
-                            } else {
-                                Logger.warn("We should not get here! 1");
-                            }
-                        } else if( c_line < n_line) {
-                            Logger.debug("Current line is before n_line");
-                            if(c_rw == ReadWrite.READ && n_rw == ReadWrite.WRITE) {
-                                Logger.debug("This might be a cycle. 2");
-                                Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
-                                Logger.debug("\tn_stmt: " + scc_chain.get(i).get_stmt().toString());
-                                can_be_cycle = 2;
-                            } else if(c_rw == ReadWrite.WRITE && n_rw == ReadWrite.READ) {
-                                Logger.debug("This Cannot be a cycle. 2");
-                                Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
-                                Logger.debug("\tn_stmt: " + scc_chain.get(i).get_stmt().toString());
-                            } else {
-                                Logger.warn("We should not get here! 2");
-                            }
-                        } else {
-                            Logger.debug("Current line is the same as n_line");
-                            Logger.debug("This might be a cycle. 2");
-                            Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
-                            Logger.debug("\tn_stmt: " + scc_chain.get(i).get_stmt().toString());
-                            can_be_cycle = 3;
-                            // TODO: need to look at the left hand side and the right hand side to tell
-                            //       if there is a cycle. STILL confused about this????
-                        }
-                        Solver cur_solver = get_solver(cur_node, pvc, constants);
-                        Solver n_solver = get_solver(scc_chain.get(i), pvc, constants);
+        List<ImmutablePair<SCCNode, SCCNode>> pairs = get_scc_pairs();
+        // solve every equation up front so the solver only runs once for the whole graph
+        List<ImmutablePair<Solver, Solver>> solvers = new ArrayList<>();
+        List<Solver> all_solvers = new ArrayList<>();
+        for(ImmutablePair<SCCNode, SCCNode> pair : pairs) {
+            ImmutablePair<Solver, Solver> pair_solvers = new ImmutablePair<>(get_solver(pair.getLeft(), pvc, constants),
+                    get_solver(pair.getRight(), pvc, constants));
+            solvers.add(pair_solvers);
+            all_solvers.add(pair_solvers.getLeft());
+            all_solvers.add(pair_solvers.getRight());
+        }
+        solver_cache.solve_all(all_solvers, SCC_graph.name().value());
 
-                        String cur_eq = cur_solver.get_resolved_eq();
-                        if (cur_eq.contains("=")) {
-                            cur_eq = cur_eq.split(" = ")[1];
-                        }
-                        String n_eq = n_solver.get_resolved_eq();
-                        if (n_eq.contains("=")) {
-                            n_eq = n_eq.split(" = ")[1];
-                        }
+        for(int p = 0; p < pairs.size(); p++) {
+            SCCNode cur_node = pairs.get(p).getLeft();
+            SCCNode next_node = pairs.get(p).getRight();
+            ReadWrite c_rw = cur_node.get_rw();
+            ReadWrite n_rw = next_node.get_rw();
+            int c_line = cur_node.get_line_num();
+            int n_line = next_node.get_line_num();
+            int can_be_cycle = 0;
+            if(c_line > n_line) {
+                Logger.debug("Current line is after n_line");
+                if(c_rw == ReadWrite.READ && n_rw == ReadWrite.WRITE) {
+                    Logger.debug("This Cannot be a cycle. 1");
+                    Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
+                    Logger.debug("\tn_stmt: " + next_node.get_stmt().toString());
+                } else if(c_rw == ReadWrite.WRITE && n_rw == ReadWrite.READ) {
+                    Logger.debug("This might be a cycle. 1");
+                    Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
+                    Logger.debug("\tn_stmt: " + next_node.get_stmt().toString());
+                    can_be_cycle = 1;
+                } else {
+                    Logger.warn("We should not get here! 1");
+                }
+            } else if( c_line < n_line) {
+                Logger.debug("Current line is before n_line");
+                if(c_rw == ReadWrite.READ && n_rw == ReadWrite.WRITE) {
+                    Logger.debug("This might be a cycle. 2");
+                    Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
+                    Logger.debug("\tn_stmt: " + next_node.get_stmt().toString());
+                    can_be_cycle = 2;
+                } else if(c_rw == ReadWrite.WRITE && n_rw == ReadWrite.READ) {
+                    Logger.debug("This Cannot be a cycle. 2");
+                    Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
+                    Logger.debug("\tn_stmt: " + next_node.get_stmt().toString());
+                } else {
+                    Logger.warn("We should not get here! 2");
+                }
+            } else {
+                Logger.debug("Current line is the same as n_line");
+                Logger.debug("This might be a cycle. 2");
+                Logger.debug("\tc_stmt: " + cur_node.get_stmt().toString());
+                Logger.debug("\tn_stmt: " + next_node.get_stmt().toString());
+                can_be_cycle = 3;
+                // TODO: need to look at the left hand side and the right hand side to tell
+                //       if there is a cycle. STILL confused about this????
+            }
+            Solver cur_solver = solvers.get(p).getLeft();
+            Solver n_solver = solvers.get(p).getRight();
 
-                        Map<String, Integer> cur_d_vals = cur_solver.solve();
-                        Map<String, Integer> n_d_vals = n_solver.solve();
-                        Map<String, Integer> d_vals = new HashMap<>();
-                        Map<String, List<Integer>> indexes = new HashMap<>();
-                        for (Map.Entry<String, Integer> c_entry : cur_d_vals.entrySet()) {
-                            for (Map.Entry<String, Integer> n_entry : n_d_vals.entrySet()) {
-                                if (Objects.equals(c_entry.getKey(), n_entry.getKey())) {
-                                    indexes.put(c_entry.getKey(), new ArrayList<>());
-                                    indexes.get(c_entry.getKey()).add(c_entry.getValue());
-                                    indexes.get(c_entry.getKey()).add(n_entry.getValue());
-                                    // TODO: write - read, it is not arbitrary!
-                                    // TODO: this is still weird....
-                                    d_vals.put(c_entry.getKey(), c_entry.getValue() + n_entry.getValue());
-                                }
-                            }
-                        }
-                        StringBuilder c_sb = new StringBuilder();
-                        StringBuilder n_sb = new StringBuilder();
-                        for(Map.Entry<String, List<Integer>> el : indexes.entrySet()) {
-                            c_sb.append(el.getKey()).append(": ").append(el.getValue().get(0)).append("\n");
-                            n_sb.append(el.getKey()).append(": ").append(el.getValue().get(1)).append("\n");
-                        }
+            String cur_eq = cur_solver.get_resolved_eq();
+            if (cur_eq.contains("=")) {
+                cur_eq = cur_eq.split(" = ")[1];
+            }
+            String n_eq = n_solver.get_resolved_eq();
+            if (n_eq.contains("=")) {
+                n_eq = n_eq.split(" = ")[1];
+            }
 
-                        // TODO: ask ana about this: testing the constant rate assumption and the eq assumption.
-                        //       if we have a bunch of statements do we need to FLATTEN the whole thing and THEN
-                        //       pass it into a solver? if so this could be hard to do automatically!!!!
+            Map<String, Integer> cur_d_vals = solver_cache.solve(cur_solver);
+            Map<String, Integer> n_d_vals = solver_cache.solve(n_solver);
+            Map<String, Integer> d_vals = new HashMap<>();
+            Map<String, List<Integer>> indexes = new HashMap<>();
+            for (Map.Entry<String, Integer> c_entry : cur_d_vals.entrySet()) {
+                for (Map.Entry<String, Integer> n_entry : n_d_vals.entrySet()) {
+                    if (Objects.equals(c_entry.getKey(), n_entry.getKey())) {
+                        indexes.put(c_entry.getKey(), new ArrayList<>());
+                        indexes.get(c_entry.getKey()).add(c_entry.getValue());
+                        indexes.get(c_entry.getKey()).add(n_entry.getValue());
+                        // TODO: write - read, it is not arbitrary!
+                        // TODO: this is still weird....
+                        d_vals.put(c_entry.getKey(), c_entry.getValue() + n_entry.getValue());
+                    }
+                }
+            }
+            StringBuilder c_sb = new StringBuilder();
+            StringBuilder n_sb = new StringBuilder();
+            for(Map.Entry<String, List<Integer>> el : indexes.entrySet()) {
+                c_sb.append(el.getKey()).append(": ").append(el.getValue().get(0)).append("\n");
+                n_sb.append(el.getKey()).append(": ").append(el.getValue().get(1)).append("\n");
+            }
+
+            // TODO: ask ana about this: testing the constant rate assumption and the eq assumption.
+            //       if we have a bunch of statements do we need to FLATTEN the whole thing and THEN
+            //       pass it into a solver? if so this could be hard to do automatically!!!!
 //
-//                        Map<String, String> rep_strings = new HashMap<>();
-//                        if(cur_node.get_stmt() instanceof AssignStmt) {
-//                            AssignStmt as = (AssignStmt)cur_node.get_stmt();
-//                            Logger.debug("LOOKING AT: " + as.toString());
-//                            List<ValueBox> defs_uses = as.getUseAndDefBoxes();
-//                            for(ValueBox vb : defs_uses) {
-//                                Value v = vb.getValue();
-//                                if(!(vb.getValue() instanceof ArrayRef) && !array_vars.contains_key(v.toString())) {
-//                                    String v_name = v.toString();
-//                                    ImmutablePair<Variable, List<AssignStmt>> dep_chain = pvc.get_var_dep_chain(constants, v_name);
-//                                    String resolved_chain = Utils.resolve_dep_chain(v_name, dep_chain, constants);
-//                                    Logger.debug("\tRESOLVED DEP CHAIN: " + resolved_chain);
-//                                    String[] tmp_rep = resolved_chain.split(" = ");
-//                                    if(tmp_rep.length == 1) {
-//                                        rep_strings.put(v_name, tmp_rep[0]);
-//                                    } else if(tmp_rep.length == 2) {
-//                                        rep_strings.put(tmp_rep[0], tmp_rep[1]);
-//                                    } else {
-//                                        Logger.error("There is more than one equal sign in the equation, something is VERY wrong.");
-//                                        System.exit(0);
-//                                    }
-//                                }
-//                            }
+//            Map<String, String> rep_strings = new HashMap<>();
+//            if(cur_node.get_stmt() instanceof AssignStmt) {
+//                AssignStmt as = (AssignStmt)cur_node.get_stmt();
+//                Logger.debug("LOOKING AT: " + as.toString());
+//                List<ValueBox> defs_uses = as.getUseAndDefBoxes();
+//                for(ValueBox vb : defs_uses) {
+//                    Value v = vb.getValue();
+//                    if(!(vb.getValue() instanceof ArrayRef) && !array_vars.contains_key(v.toString())) {
+//                        String v_name = v.toString();
+//                        ImmutablePair<Variable, List<AssignStmt>> dep_chain = pvc.get_var_dep_chain(constants, v_name);
+//                        String resolved_chain = Utils.resolve_dep_chain(v_name, dep_chain, constants);
+//                        Logger.debug("\tRESOLVED DEP CHAIN: " + resolved_chain);
+//                        String[] tmp_rep = resolved_chain.split(" = ");
+//                        if(tmp_rep.length == 1) {
+//                            rep_strings.put(v_name, tmp_rep[0]);
+//                        } else if(tmp_rep.length == 2) {
+//                            rep_strings.put(tmp_rep[0], tmp_rep[1]);
+//                        } else {
+//                            Logger.error("There is more than one equal sign in the equation, something is VERY wrong.");
+//                            System.exit(0);
 //                        }
-                        String s1 = Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq);
-                        String s2 = Utils.get_aug_node_stmt(scc_chain.get(i), def_use_graph, n_eq);
+//                    }
+//                }
+//            }
+            String s1 = Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq);
+            String s2 = Utils.get_aug_node_stmt(next_node, def_use_graph, n_eq);
 
 
-                        guru.nidi.graphviz.model.Node c_indexes = node(c_sb.toString()).with(Shape.RECTANGLE);
-                        guru.nidi.graphviz.model.Node n_indexes = node(n_sb.toString()).with(Shape.RECTANGLE);
-                        guru.nidi.graphviz.model.Node c_node = node(cur_node.get_line_num()
-                                + ": " + Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq));
-                        guru.nidi.graphviz.model.Node n_node = node(scc_chain.get(i).get_line_num()
-                                + ": " + Utils.get_aug_node_stmt(scc_chain.get(i), def_use_graph, n_eq));
+            guru.nidi.graphviz.model.Node c_indexes = node(c_sb.toString()).with(Shape.RECTANGLE);
+            guru.nidi.graphviz.model.Node n_indexes = node(n_sb.toString()).with(Shape.RECTANGLE);
+            guru.nidi.graphviz.model.Node c_node = node(cur_node.get_line_num()
+                    + ": " + Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq));
+            guru.nidi.graphviz.model.Node n_node = node(next_node.get_line_num()
+                    + ": " + Utils.get_aug_node_stmt(next_node, def_use_graph, n_eq));
 
-                        // TODO: need to get ALL phi nodes that were declared in that block they ALL reference themselves
-                        //       and all outer phi nodes
-                        for (Map.Entry<String, Node> entry : def_use_graph.get_nodes().entrySet()) {
-                            if(entry.getValue().is_phi()) {
-                                String base_name = entry.getValue().get_basename();
-                                ArrayVersionPhi avp = (ArrayVersionPhi)entry.getValue().get_av();
-                                MUXNode mux_node = avp.get_mux_node();
-                                guru.nidi.graphviz.model.Node cond_node = node(mux_node.get_conditional().toString()).with(Shape.RECTANGLE);
-                                String phi_node_str = Utils.create_phi_stmt(base_name, avp);
-                                guru.nidi.graphviz.model.Node phi_node = node(phi_node_str).with(Shape.RECTANGLE);
-                                SCC_graph.add(phi_node.link(to(cond_node).with(
-                                        Style.BOLD,
-                                        LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                        Color.BLACK)));
-                                List<ArrayVersion> a_versions = avp.get_array_versions();
-                                for(ArrayVersion av : a_versions) {
-                                    String av_str =  base_name + "_" + av.get_version();
-                                    String aug_node_str = Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq);
-                                    if(aug_node_str.contains(av_str)) {
-                                        SCC_graph.add(c_node.link(to(phi_node).with(
-                                            Style.BOLD,
-                                            LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                            Color.BLACK)));
-                                    }
-                                }
-                            }
+            // TODO: need to get ALL phi nodes that were declared in that block they ALL reference themselves
+            //       and all outer phi nodes
+            for (Map.Entry<String, Node> entry : def_use_graph.get_nodes().entrySet()) {
+                if(entry.getValue().is_phi()) {
+                    String base_name = entry.getValue().get_basename();
+                    ArrayVersionPhi avp = (ArrayVersionPhi)entry.getValue().get_av();
+                    MUXNode mux_node = avp.get_mux_node();
+                    guru.nidi.graphviz.model.Node cond_node = node(mux_node.get_conditional().toString()).with(Shape.RECTANGLE);
+                    String phi_node_str = Utils.create_phi_stmt(base_name, avp);
+                    guru.nidi.graphviz.model.Node phi_node = node(phi_node_str).with(Shape.RECTANGLE);
+                    SCC_graph.add(phi_node.link(to(cond_node).with(
+                            Style.BOLD,
+                            LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                            Color.BLACK)));
+                    List<ArrayVersion> a_versions = avp.get_array_versions();
+                    for(ArrayVersion av : a_versions) {
+                        String av_str =  base_name + "_" + av.get_version();
+                        String aug_node_str = Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq);
+                        if(aug_node_str.contains(av_str)) {
+                            SCC_graph.add(c_node.link(to(phi_node).with(
+                                Style.BOLD,
+                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                Color.BLACK)));
                         }
-//                        Logger.info("Started new stuff");
-//                        String cur_eq_cp =  Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq);
+                    }
+                }
+            }
+//            Logger.info("Started new stuff");
+//            String cur_eq_cp =  Utils.get_aug_node_stmt(cur_node, def_use_graph, cur_eq);
 //
-//                        for(Map.Entry<String, String> entry : rep_strings.entrySet()) {
-//                            cur_eq_cp = cur_eq_cp.replace(entry.getKey(), entry.getValue());
-//                        }
-//                        Logger.debug("CUR_EQ_FIXED: " + cur_eq_cp + "(" + cur_solver.get_resolved_eq() + ")");
+//            for(Map.Entry<String, String> entry : rep_strings.entrySet()) {
+//                cur_eq_cp = cur_eq_cp.replace(entry.getKey(), entry.getValue());
+//            }
+//            Logger.debug("CUR_EQ_FIXED: " + cur_eq_cp + "(" + cur_solver.get_resolved_eq() + ")");
 
-                        SCC_graph.add(c_node.link(to(c_indexes).with(
-                                Style.DOTTED,
-                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                Color.GRAY)));
+            SCC_graph.add(c_node.link(to(c_indexes).with(
+                    Style.DOTTED,
+                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                    Color.GRAY)));
 
-                        SCC_graph.add(n_node.link(to(n_indexes).with(
-                                Style.DOTTED,
-                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                Color.GRAY)));
+            SCC_graph.add(n_node.link(to(n_indexes).with(
+                    Style.DOTTED,
+                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                    Color.GRAY)));
 
 
-                        if(can_be_cycle == 0) {
-                            for (Map.Entry<String, Integer> entry : d_vals.entrySet()) {
-                                edges.add(new SCCEdge(cur_node, scc_chain.get(i), entry.getValue()));
+            if(can_be_cycle == 0) {
+                for (Map.Entry<String, Integer> entry : d_vals.entrySet()) {
+                    edges.add(new SCCEdge(cur_node, next_node, entry.getValue()));
 
-                                SCC_graph.add(c_node.link(to(n_node).with(
-                                        Style.DASHED,
-                                        LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                        Label.of("d = " + entry.getValue()),
-                                        Color.ORANGE)));
-                            }
-                            // TODO: these can be dependency edges
-                        } else {
-//                            for(SCCEdge e : edges) {
-//                                ImmutablePair<String, String> im = e.get_id_pair();
-//                                if(Objects.equals(im.getRight(), t.getRight()) &&
-//                                        Objects.equals(im.getLeft(), t.getLeft())) {
-//                                    Logger.error("we are adding again????");
-////                                        System.exit(0);
-//                                }
+                    SCC_graph.add(c_node.link(to(n_node).with(
+                            Style.DASHED,
+                            LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                            Label.of("d = " + entry.getValue()),
+                            Color.ORANGE)));
+                }
+                // TODO: these can be dependency edges
+            } else {
+//                for(SCCEdge e : edges) {
+//                    ImmutablePair<String, String> im = e.get_id_pair();
+//                    if(Objects.equals(im.getRight(), t.getRight()) &&
+//                            Objects.equals(im.getLeft(), t.getLeft())) {
+//                        Logger.error("we are adding again????");
+////                            System.exit(0);
+//                    }
 //
-//                            }
-                            ImmutablePair<String, String> t = new ImmutablePair(cur_node.get_stmt().toString(),
-                                    scc_chain.get(i).get_stmt().toString());
-                            if(!seen_deps.contains(t)) {
-                                for (Map.Entry<String, Integer> entry : d_vals.entrySet()) {
-                                    SCCEdge new_edge = new SCCEdge(scc_chain.get(i), cur_node, entry.getValue());
-                                    edges.add(new_edge);
-                                    seen_deps.add(new_edge.get_id_pair());
-
-                                    if(can_be_cycle == 1) {
-                                        SCC_graph.add(n_node.link(to(c_node).with(
-                                                Style.DASHED,
-                                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                                Label.of("d = " + entry.getValue()),
-                                                Color.BLUE)));
-                                        SCC_graph.add(c_node.link(to(n_node).with(
-                                                Style.SOLID,
-                                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                                Color.GREEN)));
-
-                                    } else if(can_be_cycle == 2) {
-                                        SCC_graph.add(c_node.link(to(n_node).with(
-                                                Style.DASHED,
-                                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                                Label.of("d = " + entry.getValue()),
-                                                Color.BLUE)));
-                                        SCC_graph.add(n_node.link(to(c_node).with(
-                                                Style.SOLID,
-                                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                                Color.GREEN)));
-                                    } else {
-                                        // TODO: ASSUMING READ TO WRITE PROBS WRONG!
-                                        SCC_graph.add(n_node.link(to(c_node).with(
-                                                Style.DASHED,
-                                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                                Label.of("d = " + entry.getValue()),
-                                                Color.BLUE)));
-                                        SCC_graph.add(c_node.link(to(n_node).with(
-                                                Style.SOLID,
-                                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-                                                Color.GREEN)));
-                                    }
-//                                    SCC_graph.add(n_node.link(to(c_node).with(
-//                                            Style.DASHED,
-//                                            LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-//                                            Label.of("d = " + entry.getValue()),
-//                                            Color.BLUE)));
-//                                    SCC_graph.add(c_node.link(to(n_node).with(
-//                                            Style.SOLID,
-//                                            LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
-//                                            Color.GREEN)));
-                                }
-                            } else {
-                                Logger.info("We have done this already");
-                            }
+//                }
+                ImmutablePair<String, String> t = new ImmutablePair(cur_node.get_stmt().toString(),
+                        next_node.get_stmt().toString());
+                if(!seen_deps.contains(t)) {
+                    for (Map.Entry<String, Integer> entry : d_vals.entrySet()) {
+                        SCCEdge new_edge = new SCCEdge(next_node, cur_node, entry.getValue());
+                        edges.add(new_edge);
+                        seen_deps.add(new_edge.get_id_pair());
+
+                        if(can_be_cycle == 1) {
+                            SCC_graph.add(n_node.link(to(c_node).with(
+                                    Style.DASHED,
+                                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                    Label.of("d = " + entry.getValue()),
+                                    Color.BLUE)));
+                            SCC_graph.add(c_node.link(to(n_node).with(
+                                    Style.SOLID,
+                                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                    Color.GREEN)));
+
+                        } else if(can_be_cycle == 2) {
+                            SCC_graph.add(c_node.link(to(n_node).with(
+                                    Style.DASHED,
+                                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                    Label.of("d = " + entry.getValue()),
+                                    Color.BLUE)));
+                            SCC_graph.add(n_node.link(to(c_node).with(
+                                    Style.SOLID,
+                                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                    Color.GREEN)));
+                        } else {
+                            // TODO: ASSUMING READ TO WRITE PROBS WRONG!
+                            SCC_graph.add(n_node.link(to(c_node).with(
+                                    Style.DASHED,
+                                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                    Label.of("d = " + entry.getValue()),
+                                    Color.BLUE)));
+                            SCC_graph.add(c_node.link(to(n_node).with(
+                                    Style.SOLID,
+                                    LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+                                    Color.GREEN)));
                         }
-                        cur_node = new SCCNode(scc_chain.get(i));
+//                        SCC_graph.add(n_node.link(to(c_node).with(
+//                                Style.DASHED,
+//                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+//                                Label.of("d = " + entry.getValue()),
+//                                Color.BLUE)));
+//                        SCC_graph.add(c_node.link(to(n_node).with(
+//                                Style.SOLID,
+//                                LinkAttr.weight(Constants.GRAPHVIZ_EDGE_WEIGHT),
+//                                Color.GREEN)));
                     }
+                } else {
+                    Logger.info("We have done this already");
                 }
-                completed_chains.add(scc_chain);
-            } else {
-                Logger.debug("Chain already completed.");
             }
         }
-        for(Map.Entry<String, IfStatement> el : if_stmts.get_statements().entrySet()) {
-            guru.nidi.graphviz.model.Node if_node = node(el.getKey());
+        for(Map.Entry<IfStmt, IfStatement> el : if_stmts.get_statements().entrySet()) {
+            guru.nidi.graphviz.model.Node if_node = node(el.getKey().toString());
             SCCNode true_b = find_matching_node(el.getValue().get_true_branch().toString());
             SCCNode false_b = find_matching_node(el.getValue().get_false_branch().toString());
             guru.nidi.graphviz.model.Node false_n;
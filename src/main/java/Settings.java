@@ -0,0 +1,139 @@
+import java.io.File;
+
+/**
+ * Runtime settings that are set once from the command line (see Constants for the compile time ones)
+ */
+class Settings {
+    /**
+     * the backend used to solve index equations
+     */
+    private static SolverBackend solver_backend = Constants.DEFAULT_SOLVER_BACKEND;
+    /**
+     * the number of threads used to solve index equations
+     */
+    private static int solver_threads = Constants.DEFAULT_SOLVER_THREADS;
+    /**
+     * how graphs are written out
+     */
+    private static RenderMode render_mode = Constants.DEFAULT_RENDER_MODE;
+    /**
+     * the number of threads used to write graphs
+     */
+    private static int render_threads = Constants.DEFAULT_RENDER_THREADS;
+    /**
+     * the number of threads used to analyze bodies
+     */
+    private static int analysis_threads = Constants.DEFAULT_ANALYSIS_THREADS;
+    /**
+     * the directory the graphs and z3 files of the body being analyzed go to (null for the working directory).
+     * Bodies of different classes can be analyzed at the same time so this is kept per thread.
+     */
+    private static final ThreadLocal<String> output_dir = new ThreadLocal<>();
+
+    /**
+     * getter for the solver backend
+     * @return the backend used to solve index equations
+     */
+    static SolverBackend get_solver_backend() {
+        return solver_backend;
+    }
+
+    /**
+     * setter for the solver backend
+     * @param backend the backend used to solve index equations
+     */
+    static void set_solver_backend(SolverBackend backend) {
+        solver_backend = backend;
+    }
+
+    /**
+     * getter for the number of solver threads
+     * @return the number of threads used to solve index equations
+     */
+    static int get_solver_threads() {
+        return solver_threads;
+    }
+
+    /**
+     * setter for the number of solver threads
+     * @param threads the number of threads used to solve index equations (at least 1)
+     */
+    static void set_solver_threads(int threads) {
+        solver_threads = Math.max(1, threads);
+    }
+
+    /**
+     * getter for the render mode
+     * @return how graphs are written out
+     */
+    static RenderMode get_render_mode() {
+        return render_mode;
+    }
+
+    /**
+     * setter for the render mode
+     * @param mode how graphs are written out
+     */
+    static void set_render_mode(RenderMode mode) {
+        render_mode = mode;
+    }
+
+    /**
+     * getter for the number of render threads
+     * @return the number of threads used to write graphs
+     */
+    static int get_render_threads() {
+        return render_threads;
+    }
+
+    /**
+     * setter for the number of render threads
+     * @param threads the number of threads used to write graphs (at least 1)
+     */
+    static void set_render_threads(int threads) {
+        render_threads = Math.max(1, threads);
+    }
+
+    /**
+     * getter for the number of analysis threads
+     * @return the number of threads used to analyze bodies
+     */
+    static int get_analysis_threads() {
+        return analysis_threads;
+    }
+
+    /**
+     * setter for the number of analysis threads
+     * @param threads the number of threads used to analyze bodies (at least 1)
+     */
+    static void set_analysis_threads(int threads) {
+        analysis_threads = Math.max(1, threads);
+    }
+
+    /**
+     * setter for the output directory of the current thread
+     * @param dir the directory the graphs and z3 files of the body being analyzed go to
+     *            (null for the working directory)
+     */
+    static void set_output_dir(String dir) {
+        output_dir.set(dir);
+    }
+
+    /**
+     * get the directory graphs are written to
+     * @return the graph directory of the class being analyzed
+     */
+    static String get_graph_dir() {
+        String dir = output_dir.get();
+        return Utils.not_null(dir) ? dir + File.separator + Constants.GRAPH_DIR : Constants.GRAPH_DIR;
+    }
+
+    /**
+     * get the directory z3 files are written to
+     * @return the z3 directory of the class being analyzed
+     */
+    static String get_z3_dir() {
+        String dir = output_dir.get();
+        return Utils.not_null(dir) ? dir + File.separator + Constants.Z3_DIR : Constants.Z3_DIR;
+    }
+}
@@ -7,13 +7,11 @@ import soot.jimple.Stmt;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.regex.Matcher;
 
 /**
- * Class that solves constraints via z3
+ * Class that solves index constraints (in process or via z3)
  */
 public class Solver {
 
@@ -41,6 +39,18 @@ public class Solver {
      * original stmt
      */
     private final Stmt stmt;
+    /**
+     * a description of every array reference that was renamed in the resolved equation
+     */
+    private final List<String> renames;
+    /**
+     * the resolved equation with array references renamed to ARR_n
+     */
+    private final String renamed_eq;
+    /**
+     * the renamed equation with no spaces and no '$'
+     */
+    private final String res_eq_flat;
 
     /**
      * constructor for the solver class
@@ -58,118 +68,277 @@ public class Solver {
         this.resolved_eq = Utils.resolve_dep_chain(index_name, dep_chain, constants);
         this.constants = constants;
         this.stmt = stmt;
+        this.renames = new ArrayList<>();
+        this.renamed_eq = rename_array_refs(renames);
+        this.res_eq_flat = flatten(renamed_eq);
     }
 
-
-
     /**
-     * solve the dep chain equation using z3
+     * solve the dep chain equation, either in process or using z3 (see Settings)
      * TODO: needs more explaination
-     * TODO: needs optimization
      * @return the d value between the index and the relevant phi variables
      */
     Map<String, Integer> solve() {
         Map<String, Integer> ret = new HashMap<>();
-        if(dep_chain.getRight().size() > 0) { // if we don't have something simple
-            String resolved_eq = Utils.resolve_dep_chain(index_name, dep_chain, constants);
-            String filename = Constants.Z3_DIR + File.separator + "solver_z3_test_" + index_name + ".py";
-            Path path = Paths.get(filename);
-            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
-                // TODO: this $ is a problem.
-
-                writer.write("from z3 import *\n");
-                writer.write("# " + resolved_eq + "\n");
-                writer.write("# " + stmt.toString() + "\n");
-                writer.write("# " + dep_chain.getLeft().get_root_val_str() + "\n");
-                // TODO: this is temporary to deal with the stupid if statements
-                String[] split = resolved_eq.split(" ");
-                int count = 0;
-                for(int i = 0; i < split.length; i++) {
-                    if(split[i].contains("[") && split[i].contains("]")) {
-                        String new_name = "ARR_" + count;
-                        writer.write("# ARRAY RENAME: " + split[i] + " --> " + new_name + "\n");
-                        split[i] = new_name;
-                        count++;
-                    }
-                }
-                resolved_eq = String.join(" ", split);
-                writer.write("# NEW: " + resolved_eq + "\n");
-                String res_eq_flat = resolved_eq.replace(" ", "");
-                res_eq_flat = res_eq_flat.replace("$", "");
-                // TODO: END OF TMP
-                for (AssignStmt as : dep_chain.getRight()) {
-                    writer.write("#\t" + as.toString() + "\n");
-                }
-                String left = res_eq_flat.split("=")[0];
-                String rem = res_eq_flat.split("=")[1];
-                // TODO: more split options
-                // TODO: BUG shimple has things like A + B + -1, this breaks the split don't use ++ and --!
-                Set<String> vars = new HashSet<>(Arrays.asList(rem.split("\\+|-|/|\\*|\\^|\\||%|&|~|>>|<<|>>>")));
-                List<String> zero_neg_list = new ArrayList<>();
-                writer.write(String.format("%s = Int('%s')\n", left, left));
-                zero_neg_list.add(String.format(Constants.NEQ_ZERO_PY, left));
-                for (String v : vars) {
-                    if (!NumberUtils.isCreatable(v)) {
-                        writer.write(String.format("%s = Int('%s')\n", v, v));
-                        if (constants.containsKey(v)) {
-                            zero_neg_list.add(String.format(Constants.CONSTANTS_PY_STR, v, constants.get(v)));
-                        } else {
-                            zero_neg_list.add(String.format(Constants.NEQ_ZERO_PY, v));
-                        }
-                    }
+        if(needs_solving()) { // if we don't have something simple
+            ret = solve_in_process();
+            if(!Utils.not_null(ret)) {
+                String filename = Settings.get_z3_dir() + File.separator + "solver_z3_test_" + index_name + ".py";
+                SolverBatch batch = new SolverBatch(filename);
+                batch.add(this);
+                ret = batch.solve().get(0);
+            }
+        } else {
+            Logger.debug("we have something simple!");
+            ret.put(dep_chain.getLeft().get_root_val_str(), 0);
+        }
+        return ret;
+    }
+
+    /**
+     * check if the equation needs a solver
+     * @return false iff the dep chain is empty (the index is the root value)
+     */
+    boolean needs_solving() {
+        return !dep_chain.getRight().isEmpty();
+    }
+
+    /**
+     * get the name of the left hand side variable
+     * @return the name of the left hand side variable (no '$')
+     */
+    private String get_left() {
+        return res_eq_flat.split("=")[0];
+    }
+
+    /**
+     * solve the dep chain equation without z3
+     * @return the d value between the index and the relevant phi variables, null if the equation
+     *         has to be solved with z3 (not affine or the backend is z3)
+     */
+    Map<String, Integer> solve_in_process() {
+        if(Settings.get_solver_backend() != SolverBackend.JAVA) {
+            return null;
+        }
+        JfrEvents.Solve event = JfrEvents.start_solve();
+        List<ImmutablePair<String, Integer>> model = solve_java(get_left());
+        Map<String, Integer> d_vals = null;
+        if(!Utils.not_null(model)) {
+            Logger.debug("Equation is not affine, falling back to z3: " + resolved_eq);
+        } else {
+            d_vals = get_d_values(model, get_left());
+        }
+        event.finish(Collections.singletonList(this), SolverBackend.JAVA, d_vals);
+        return d_vals;
+    }
+
+    /**
+     * get the canonical form of the equation, used as a solver cache key. The name of the left hand side
+     * only matters if it is a phi variable or is used on the right hand side, the constants that are bound
+     * and the right hand side variables that are phi variables are part of the key since they change the result.
+     * @return the cache key or null if there is nothing to solve
+     */
+    String get_cache_key() {
+        if(!needs_solving()) {
+            return null;
+        }
+        String[] sides = res_eq_flat.split("=", 2);
+        if(sides.length != 2) {
+            return null;
+        }
+        Set<String> names = new TreeSet<>();
+        Matcher m = Constants.IDENTIFIER_RE.matcher(sides[1]);
+        while(m.find()) {
+            names.add(m.group());
+        }
+        StringBuilder sb = new StringBuilder();
+        if(names.contains(sides[0]) || phi_vars.is_used_in_phi(sides[0]) || phi_vars.is_phi_def(sides[0])) {
+            sb.append(sides[0]);
+        }
+        sb.append("=").append(sides[1]).append("|");
+        for(String name : names) {
+            if(constants.containsKey(name)) {
+                sb.append(name).append("=").append(constants.get(name)).append(";");
+            } else if(phi_vars.is_used_in_phi(name) || phi_vars.is_phi_def(name)) {
+                sb.append(name).append(":phi;");
+            }
+        }
+        sb.append("|").append(Settings.get_solver_backend());
+        return sb.toString();
+    }
+
+    /**
+     * remove spaces and '$' from an equation
+     * @param eq the equation
+     * @return the flattened equation
+     */
+    private static String flatten(String eq) {
+        return eq.replace(" ", "").replace("$", "");
+    }
+
+    /**
+     * rename array references in the resolved equation
+     * TODO: this is temporary to deal with the stupid if statements
+     * @param renames filled with a description of every rename that was made
+     * @return the resolved equation with every array reference replaced by ARR_n
+     */
+    private String rename_array_refs(List<String> renames) {
+        String[] split = resolved_eq.split(" ");
+        int count = 0;
+        for(int i = 0; i < split.length; i++) {
+            if(split[i].contains("[") && split[i].contains("]")) {
+                String new_name = "ARR_" + count;
+                renames.add(split[i] + " --> " + new_name);
+                split[i] = new_name;
+                count++;
+            }
+        }
+        return String.join(" ", split);
+    }
+
+    /**
+     * solve the equation in process. The right hand side must be affine, every variable
+     * that is not a constant is set to 1 (and one of them to 2 if that makes the left hand side 0),
+     * which gives the same constraints as the z3 script (all variables are non zero).
+     * @param left the name of the left hand side variable
+     * @return the model as (variable, value) pairs or null if the equation is not supported
+     */
+    private List<ImmutablePair<String, Integer>> solve_java(String left) {
+        String[] sides = res_eq_flat.split("=");
+        if(sides.length != 2) {
+            return null;
+        }
+        AffineExpression rhs = AffineExpression.parse(sides[1]);
+        if(!Utils.not_null(rhs) || rhs.get_coefficients().containsKey(left)) {
+            return null;
+        }
+        Map<String, Long> values = new LinkedHashMap<>();
+        List<String> free_vars = new ArrayList<>();
+        for(String v : new ArrayList<>(rhs.get_coefficients().keySet())) {
+            if(constants.containsKey(v)) {
+                values.put(v, (long)constants.get(v));
+                rhs.bind(v, constants.get(v));
+            } else {
+                values.put(v, 1L);
+                free_vars.add(v);
+            }
+        }
+        long lhs = rhs.evaluate(values);
+        if(lhs == 0L) {
+            for(String v : free_vars) {
+                if(rhs.get_coefficients().get(v) != 0L) {
+                    values.put(v, 2L);
+                    break;
                 }
-                String zero_neg_str = String.join(", ", zero_neg_list);
-                writer.write("F = [" + zero_neg_str + "]\n");
-                writer.write("s = Solver()\n");
-                writer.write("s.add(F)\n");
-                writer.write(String.format("s.add(%s)\n", resolved_eq.replace("$", "").replace("=", "==")));
-                writer.write("print(s.check())\n");
-                writer.write("if s.check() == z3.sat:\n");
-                writer.write("    m = s.model()\n");
-                writer.write("    for el in m:\n");
-                writer.write("        print(el, m[el])\n");
-                writer.close();
-                // run command
-                List<String> results = Utils.execute_cmd_ret(String.format(Constants.RUN_SOLVER_CMD, filename));
-                List<ImmutablePair<String, Integer>> phi_var_vals = new ArrayList<>();
-                ImmutablePair<String, Integer> lhs = null;
-                boolean set_lhs = false;
-                if (!Objects.equals(results.get(0), Constants.SAT)) {
-                    Logger.error("Z3 did not return sat: " + results.get(0));
-                    System.exit(0);
+            }
+            lhs = rhs.evaluate(values);
+            if(lhs == 0L) {
+                throw new IllegalStateException("Equation has no solution: " + resolved_eq);
+            }
+        }
+        List<ImmutablePair<String, Integer>> model = new ArrayList<>();
+        if(lhs != (int)lhs) {
+            return null;
+        }
+        model.add(new ImmutablePair<>(left, (int)lhs));
+        for(Map.Entry<String, Long> entry : values.entrySet()) {
+            model.add(new ImmutablePair<>(entry.getKey(), entry.getValue().intValue()));
+        }
+        Logger.info("Java solver returned SAT.");
+        return model;
+    }
+
+    /**
+     * write the z3 constraints for this equation (declarations and assertions), the caller
+     * creates the z3 solver 's' and checks it
+     * TODO: needs optimization
+     * @param writer the writer for the z3 script
+     * @throws IOException if the script cannot be written
+     */
+    void write_z3_query(BufferedWriter writer) throws IOException {
+        // TODO: this $ is a problem.
+        writer.write("# " + resolved_eq + "\n");
+        writer.write("# " + stmt.toString() + "\n");
+        writer.write("# " + dep_chain.getLeft().get_root_val_str() + "\n");
+        for(String rename : renames) {
+            writer.write("# ARRAY RENAME: " + rename + "\n");
+        }
+        writer.write("# NEW: " + renamed_eq + "\n");
+        for (AssignStmt as : dep_chain.getRight()) {
+            writer.write("#\t" + as.toString() + "\n");
+        }
+        String left = get_left();
+        String rem = res_eq_flat.split("=")[1];
+        // TODO: more split options
+        // TODO: BUG shimple has things like A + B + -1, this breaks the split don't use ++ and --!
+        Set<String> vars = new HashSet<>(Arrays.asList(rem.split("\\+|-|/|\\*|\\^|\\||%|&|~|>>|<<|>>>")));
+        List<String> zero_neg_list = new ArrayList<>();
+        writer.write(String.format("%s = Int('%s')\n", left, left));
+        zero_neg_list.add(String.format(Constants.NEQ_ZERO_PY, left));
+        for (String v : vars) {
+            if (!NumberUtils.isCreatable(v)) {
+                writer.write(String.format("%s = Int('%s')\n", v, v));
+                if (constants.containsKey(v)) {
+                    zero_neg_list.add(String.format(Constants.CONSTANTS_PY_STR, v, constants.get(v)));
                 } else {
-                    Logger.info("Z3 returned SAT.");
-                    for (int i = 1; i < results.size(); i++) {
-                        String[] split_val = results.get(i).split(" ");
-                        if (phi_vars.is_used_in_phi(split_val[0]) || phi_vars.is_phi_def(split_val[0])) {
-                            phi_var_vals.add(new ImmutablePair<>(split_val[0], Integer.parseInt(split_val[1])));
-                        } else if (!set_lhs && Objects.equals(split_val[0], left)) {
-                            lhs = new ImmutablePair<>(split_val[0], Integer.parseInt(split_val[1]));
-                            set_lhs = true;
-                        }
-                        // TODO: the following DOES NOT trigger in debug but triggers in RUN???
-                    }
-                    if (set_lhs) {
-                        for (ImmutablePair<String, Integer> phi_val : phi_var_vals) {
-                            Logger.info(String.format("d value between %s and %s: %d (%s)", lhs.getLeft(), phi_val.getLeft(),
-                                    lhs.getRight() - phi_val.getRight(), resolved_eq));
-                            int d = lhs.getRight() - phi_val.getRight();
-                            ret.put(phi_val.getLeft(), d);
-                        }
-                    } else {
-                        Logger.error("What? We never set lhs.");
-                        System.exit(0);
-                    }
-                }
-            } catch (IOException e) {
-                Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
-                if(Constants.PRINT_ST) {
-                    e.printStackTrace();
+                    zero_neg_list.add(String.format(Constants.NEQ_ZERO_PY, v));
                 }
             }
+        }
+        String zero_neg_str = String.join(", ", zero_neg_list);
+        writer.write("F = [" + zero_neg_str + "]\n");
+        writer.write("s.add(F)\n");
+        writer.write(String.format("s.add(%s)\n", renamed_eq.replace("$", "").replace("=", "==")));
+    }
+
+    /**
+     * read the d values from the z3 output for this equation
+     * @param results the output lines (the result of the check followed by the model)
+     * @return the d value between the index and the relevant phi variables
+     */
+    Map<String, Integer> read_z3_result(List<String> results) {
+        if (results.isEmpty() || !Objects.equals(results.get(0), Constants.SAT)) {
+            throw new IllegalStateException("Z3 did not return sat: "
+                    + (results.isEmpty() ? Constants.EMPTY_STR : results.get(0)));
+        }
+        Logger.info("Z3 returned SAT.");
+        List<ImmutablePair<String, Integer>> model = new ArrayList<>();
+        for (int i = 1; i < results.size(); i++) {
+            String[] split_val = results.get(i).split(" ");
+            model.add(new ImmutablePair<>(split_val[0], Integer.parseInt(split_val[1])));
+        }
+        return get_d_values(model, get_left());
+    }
+
+    /**
+     * get the d values from a model of the equation
+     * @param model the model as (variable, value) pairs
+     * @param left the name of the left hand side variable
+     * @return the d value between the index and the relevant phi variables
+     */
+    private Map<String, Integer> get_d_values(List<ImmutablePair<String, Integer>> model, String left) {
+        Map<String, Integer> ret = new HashMap<>();
+        List<ImmutablePair<String, Integer>> phi_var_vals = new ArrayList<>();
+        ImmutablePair<String, Integer> lhs = null;
+        boolean set_lhs = false;
+        for (ImmutablePair<String, Integer> val : model) {
+            if (phi_vars.is_used_in_phi(val.getLeft()) || phi_vars.is_phi_def(val.getLeft())) {
+                phi_var_vals.add(val);
+            } else if (!set_lhs && Objects.equals(val.getLeft(), left)) {
+                lhs = val;
+                set_lhs = true;
+            }
+            // TODO: the following DOES NOT trigger in debug but triggers in RUN???
+        }
+        if (set_lhs) {
+            for (ImmutablePair<String, Integer> phi_val : phi_var_vals) {
+                Logger.info(String.format("d value between %s and %s: %d (%s)", lhs.getLeft(), phi_val.getLeft(),
+                        lhs.getRight() - phi_val.getRight(), resolved_eq));
+                int d = lhs.getRight() - phi_val.getRight();
+                ret.put(phi_val.getLeft(), d);
+            }
         } else {
-            Logger.debug("we have something simple!");
-            ret.put(dep_chain.getLeft().get_root_val_str(), 0);
+            throw new IllegalStateException("What? We never set lhs.");
         }
         return ret;
     }
@@ -0,0 +1,20 @@
+/**
+ * Enum representing which backend is used to solve index equations.
+ */
+public enum SolverBackend {
+    JAVA("JAVA"),
+    Z3("Z3");
+
+    private final String text;
+
+    /**
+     * @param text convert to string
+     */
+    SolverBackend(final String text) {
+        this.text = text;
+    }
+    @Override
+    public String toString() {
+        return text;
+    }
+}
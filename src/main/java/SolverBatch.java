@@ -0,0 +1,111 @@
+import org.tinylog.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A set of equations that are solved in a single z3 session. Every equation is solved in
+ * its own push/pop scope and its output is preceded by a "QUERY n" line.
+ */
+class SolverBatch {
+    /**
+     * the name of the z3 script
+     */
+    private final String filename;
+    /**
+     * the solvers for the equations in the batch (in query order)
+     */
+    private final List<Solver> solvers;
+
+    /**
+     * constructor for a solver batch
+     * @param filename the name of the z3 script
+     */
+    SolverBatch(String filename) {
+        this.filename = filename;
+        this.solvers = new ArrayList<>();
+    }
+
+    /**
+     * add an equation to the batch
+     * @param solver the solver for the equation
+     */
+    void add(Solver solver) {
+        solvers.add(solver);
+    }
+
+    /**
+     * check if the batch is empty
+     * @return true iff there are no equations in the batch
+     */
+    boolean is_empty() {
+        return solvers.isEmpty();
+    }
+
+    /**
+     * getter for the number of equations in the batch
+     * @return the number of equations
+     */
+    int size() {
+        return solvers.size();
+    }
+
+    /**
+     * solve every equation with a single z3 process
+     * @return the d values of each equation (in the order they were added)
+     */
+    List<Map<String, Integer>> solve() {
+        JfrEvents.Solve event = JfrEvents.start_solve();
+        List<Map<String, Integer>> ret = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filename))) {
+            writer.write("from z3 import *\n");
+            writer.write("s = Solver()\n");
+            for(int i = 0; i < solvers.size(); i++) {
+                writer.write(String.format(Constants.Z3_QUERY_PY, i) + "\n");
+                writer.write("s.push()\n");
+                solvers.get(i).write_z3_query(writer);
+                writer.write("r = s.check()\n");
+                writer.write("print(r)\n");
+                writer.write("if r == z3.sat:\n");
+                writer.write("    m = s.model()\n");
+                writer.write("    for el in m:\n");
+                writer.write("        print(el, m[el])\n");
+                writer.write("s.pop()\n");
+            }
+        } catch (IOException e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+            throw new IllegalStateException(filename + " could not be written.", e);
+        }
+        Metrics.count(Constants.METRIC_Z3_BYTES, new File(filename).length());
+        Logger.info(String.format("Solving %d equation(s) with z3 (%s)", solvers.size(), filename));
+        List<String> results = Utils.execute_cmd_ret(String.format(Constants.RUN_SOLVER_CMD, filename));
+        // split the output on the QUERY lines
+        int line = 0;
+        for(int i = 0; i < solvers.size(); i++) {
+            if(line >= results.size() || !Objects.equals(results.get(line), String.format(Constants.Z3_QUERY_STR, i))) {
+                throw new IllegalStateException(String.format("Z3 output for query %d of %s not found.", i,
+                        filename));
+            }
+            line++;
+            List<String> query_results = new ArrayList<>();
+            String next = String.format(Constants.Z3_QUERY_STR, i + 1);
+            while(line < results.size() && !Objects.equals(results.get(line), next)) {
+                query_results.add(results.get(line));
+                line++;
+            }
+            ret.add(solvers.get(i).read_z3_result(query_results));
+        }
+        event.finish(solvers, SolverBackend.Z3, ret);
+        return ret;
+    }
+}
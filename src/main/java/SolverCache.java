@@ -0,0 +1,229 @@
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of solver results (d values) keyed by the canonical form of the resolved index equation
+ */
+class SolverCache {
+    /**
+     * the cached d values for each key
+     */
+    private final Map<String, Map<String, Integer>> results;
+    /**
+     * the number of lookups that were answered by the cache
+     */
+    private final AtomicInteger hits;
+    /**
+     * the number of equations that had to be solved
+     */
+    private final AtomicInteger misses;
+    /**
+     * the file new results are appended to (null if the cache is in memory only)
+     */
+    private final SolverCacheFile file;
+    /**
+     * the number of results loaded from the file
+     */
+    private final int loaded;
+
+    /**
+     * constructor for an in memory solver cache
+     */
+    SolverCache() {
+        this(null);
+    }
+
+    /**
+     * constructor for a solver cache that is persisted across runs
+     * @param file the cache file (null for an in memory cache)
+     */
+    SolverCache(SolverCacheFile file) {
+        this.results = new ConcurrentHashMap<>();
+        this.hits = new AtomicInteger(0);
+        this.misses = new AtomicInteger(0);
+        this.file = file;
+        if(Utils.not_null(file)) {
+            this.results.putAll(file.load());
+        }
+        this.loaded = results.size();
+    }
+
+    /**
+     * get the d values for a solver, only solving if the equation has not been seen before
+     * @param solver the solver
+     * @return the d value between the index and the relevant phi variables
+     */
+    Map<String, Integer> solve(Solver solver) {
+        String key = solver.get_cache_key();
+        if(!Utils.not_null(key)) {
+            // nothing to solve
+            return solver.solve();
+        }
+        Map<String, Integer> cached = results.get(key);
+        if(Utils.not_null(cached)) {
+            hits.incrementAndGet();
+            Metrics.count(Constants.METRIC_SOLVER_CACHE_HITS, 1);
+            Logger.debug("Solver cache hit: " + key);
+            return new HashMap<>(cached);
+        }
+        long start = Metrics.start();
+        Map<String, Integer> d_vals = solver.solve();
+        Metrics.stop(Constants.METRIC_SOLVER, start);
+        put(key, d_vals);
+        return d_vals;
+    }
+
+    /**
+     * solve every equation that is not cached yet. Affine equations are solved in process,
+     * the rest are solved together in z3 sessions (see SolverBatch). The equations are independent
+     * so they are spread over Settings.get_solver_threads() threads, the results are added to the
+     * cache in the order the solvers were given so the output does not depend on the thread count.
+     * @param solvers the solvers
+     * @param batch_name the name used for the z3 script
+     */
+    void solve_all(List<Solver> solvers, String batch_name) {
+        long start = Metrics.start();
+        Map<String, Solver> pending = new LinkedHashMap<>();
+        for(Solver solver : solvers) {
+            String key = solver.get_cache_key();
+            if(Utils.not_null(key) && !results.containsKey(key)) {
+                pending.putIfAbsent(key, solver);
+            }
+        }
+        List<String> keys = new ArrayList<>(pending.keySet());
+        List<Callable<Map<String, Integer>>> tasks = new ArrayList<>();
+        for(String key : keys) {
+            Solver solver = pending.get(key);
+            tasks.add(solver::solve_in_process);
+        }
+        List<Map<String, Integer>> d_vals = run_all(tasks);
+        // whatever could not be solved in process goes to z3, one batch (and process) per thread
+        List<Integer> z3_indexes = new ArrayList<>();
+        for(int i = 0; i < keys.size(); i++) {
+            if(!Utils.not_null(d_vals.get(i))) {
+                z3_indexes.add(i);
+            }
+        }
+        if(!z3_indexes.isEmpty()) {
+            int batch_count = Math.min(Settings.get_solver_threads(), z3_indexes.size());
+            List<SolverBatch> batches = new ArrayList<>();
+            for(int b = 0; b < batch_count; b++) {
+                String suffix = batch_count > 1 ? Constants.UNDERSCORE + b : Constants.EMPTY_STR;
+                batches.add(new SolverBatch(Settings.get_z3_dir() + File.separator + "solver_z3_batch_"
+                        + batch_name + suffix + ".py"));
+            }
+            for(int i = 0; i < z3_indexes.size(); i++) {
+                batches.get(i % batch_count).add(pending.get(keys.get(z3_indexes.get(i))));
+            }
+            List<Callable<List<Map<String, Integer>>>> batch_tasks = new ArrayList<>();
+            for(SolverBatch batch : batches) {
+                batch_tasks.add(batch::solve);
+            }
+            List<List<Map<String, Integer>>> batch_results = run_all(batch_tasks);
+            for(int i = 0; i < z3_indexes.size(); i++) {
+                d_vals.set(z3_indexes.get(i), batch_results.get(i % batch_count).get(i / batch_count));
+            }
+        }
+        for(int i = 0; i < keys.size(); i++) {
+            put(keys.get(i), d_vals.get(i));
+        }
+        if(!keys.isEmpty()) {
+            Metrics.stop(Constants.METRIC_SOLVER, start);
+        }
+        Logger.info(String.format("Solved %d equation(s) for %s (%d with z3)", keys.size(), batch_name, z3_indexes.size()));
+    }
+
+    /**
+     * run independent tasks on at most Settings.get_solver_threads() threads
+     * @param tasks the tasks
+     * @param <T> the result type
+     * @return the results in the same order as the tasks
+     */
+    private static <T> List<T> run_all(List<Callable<T>> tasks) {
+        List<T> ret = new ArrayList<>();
+        int threads = Math.min(Settings.get_solver_threads(), tasks.size());
+        try {
+            if(threads <= 1) {
+                for(Callable<T> task : tasks) {
+                    ret.add(task.call());
+                }
+            } else {
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                try {
+                    for(Future<T> f : pool.invokeAll(tasks)) {
+                        ret.add(f.get());
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } catch (Exception e) {
+            Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+            if(Constants.PRINT_ST) {
+                e.printStackTrace();
+            }
+            throw new IllegalStateException("Solving failed.", e);
+        }
+        return ret;
+    }
+
+    /**
+     * add a newly solved result
+     * @param key the cache key
+     * @param d_vals the d values
+     */
+    private void put(String key, Map<String, Integer> d_vals) {
+        misses.incrementAndGet();
+        Metrics.count(Constants.METRIC_SOLVER_CALLS, 1);
+        results.put(key, Collections.unmodifiableMap(new HashMap<>(d_vals)));
+        if(Utils.not_null(file)) {
+            file.append(key, d_vals);
+        }
+    }
+
+    /**
+     * close the cache file (if any)
+     */
+    void close() {
+        if(Utils.not_null(file)) {
+            file.close();
+        }
+    }
+
+    /**
+     * getter for the number of cache hits
+     * @return the number of lookups that were answered by the cache
+     */
+    int get_hits() {
+        return hits.get();
+    }
+
+    /**
+     * getter for the number of cache misses
+     * @return the number of equations that had to be solved
+     */
+    int get_misses() {
+        return misses.get();
+    }
+
+    /**
+     * getter for the number of cached equations
+     * @return the number of cached equations
+     */
+    int size() {
+        return results.size();
+    }
+
+    /**
+     * log the cache statistics
+     * @param class_name the name of the class being analyzed
+     */
+    void log_stats(String class_name) {
+        Logger.info(String.format("Solver cache for %s: %d hits, %d misses, %d equations (%d loaded)",
+                class_name, get_hits(), get_misses(), size(), loaded));
+    }
+}
@@ -0,0 +1,76 @@
+import org.tinylog.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append only file that stores solver results across runs (see RecordFile for the layout), the payload of every
+ * record is the cache key and the d values.
+ */
+class SolverCacheFile {
+    /**
+     * the record file
+     */
+    private final RecordFile file;
+
+    /**
+     * constructor for the solver cache file, this does not touch the file (see load())
+     * @param filename the name of the cache file
+     */
+    SolverCacheFile(String filename) {
+        this.file = new RecordFile(filename, "Solver cache", Constants.SOLVER_CACHE_MAGIC,
+                Constants.SOLVER_CACHE_VERSION, Constants.SOLVER_CACHE_MAX_RECORD,
+                Constants.METRIC_SOLVER_CACHE_BYTES);
+    }
+
+    /**
+     * getter for the file name
+     * @return the name of the cache file
+     */
+    String get_name() {
+        return file.get_name();
+    }
+
+    /**
+     * read every valid record from the file and open it for appending
+     * @return the cached d values for each key
+     */
+    Map<String, Map<String, Integer>> load() {
+        Map<String, Map<String, Integer>> results = new HashMap<>();
+        file.load(in -> {
+            String key = in.readUTF();
+            int n = in.readInt();
+            Map<String, Integer> d_vals = new HashMap<>();
+            for(int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                d_vals.put(name, in.readInt());
+            }
+            results.put(key, d_vals);
+        });
+        Logger.info(String.format("Loaded %d entries from solver cache %s", results.size(), file.get_name()));
+        return results;
+    }
+
+    /**
+     * append a result to the file
+     * @param key the cache key
+     * @param d_vals the d values
+     */
+    void append(String key, Map<String, Integer> d_vals) {
+        file.append(out -> {
+            out.writeUTF(key);
+            out.writeInt(d_vals.size());
+            for(Map.Entry<String, Integer> entry : d_vals.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        });
+    }
+
+    /**
+     * close the file
+     */
+    void close() {
+        file.close();
+    }
+}
@@ -1,6 +1,4 @@
 import guru.nidi.graphviz.attribute.Color;
-import guru.nidi.graphviz.engine.Format;
-import guru.nidi.graphviz.engine.Graphviz;
 import guru.nidi.graphviz.model.MutableGraph;
 import guru.nidi.graphviz.model.MutableNode;
 import org.apache.commons.lang3.SystemUtils;
@@ -13,14 +11,12 @@ import soot.jimple.Stmt;
 import soot.shimple.PhiExpr;
 import soot.toolkits.graph.Block;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -62,17 +58,42 @@ class Utils {
 		if(dir.exists()) {
 			rc = Utils.deleteDirectory(dir);
 			if (!rc) {
-				Logger.error(dir.getName() + " could not be deleted, exiting.");
-				System.exit(0);
+				throw new IllegalStateException(dir.getName() + " could not be deleted.");
 			}
 		}
 		rc = dir.mkdir();
 		if(!rc) {
-			Logger.error(dir.getName() + " could not be created, exiting.");
-			System.exit(0);
+			throw new IllegalStateException(dir.getName() + " could not be created.");
 		}
 	}
 
+	/**
+	 * read the stderr of a process on its own thread, so a process that fills the stderr pipe can not block while
+	 * its stdout is read
+	 * @param p the process
+	 * @param errors_found set once the process writes anything to stderr
+	 * @return the thread reading stderr (done when the process closes stderr)
+	 */
+	private static Thread read_errors(Process p, AtomicBoolean errors_found) {
+		Thread t = new Thread(() -> {
+			try (BufferedReader stdError = new BufferedReader(new InputStreamReader(p.getErrorStream()))) {
+				String s;
+				while((s = stdError.readLine()) != null) {
+					Logger.error(s);
+					errors_found.set(true);
+				}
+			} catch (IOException e) {
+				Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
+				if(Constants.PRINT_ST) {
+					e.printStackTrace();
+				}
+			}
+		});
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+
 	/**
 	 * execute a command on the cl and get the stdout
 	 * @param cmd the command
@@ -80,31 +101,27 @@ class Utils {
 	 */
 	static List<String> execute_cmd_ret(String cmd) {
 		List<String> stdouts = new ArrayList<>();
-		boolean errors_found = false;
+		AtomicBoolean errors_found = new AtomicBoolean(false);
 		try {
 			Process p = Runtime.getRuntime().exec(cmd);
-			p.waitFor();
-			BufferedReader stdError = new BufferedReader(new
-					InputStreamReader(p.getErrorStream()));
+			Thread stderr = read_errors(p, errors_found);
 			BufferedReader stdInput = new BufferedReader(new
 					InputStreamReader(p.getInputStream()));
 			String s;
+			// read before waiting, a large output (batched queries) would fill the pipe and block
 			while ((s = stdInput.readLine()) != null) {
 				stdouts.add(s);
 			}
-			while((s = stdError.readLine()) != null) {
-				Logger.error(s);
-				errors_found = true;
-			}
+			stderr.join();
+			p.waitFor();
 		} catch (IOException | InterruptedException e) {
 			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
 			if(Constants.PRINT_ST) {
 				e.printStackTrace();
 			}
 		}
-		if(errors_found) {
-			Logger.error("Errors found. Exiting.");
-			System.exit(0);
+		if(errors_found.get()) {
+			throw new IllegalStateException("Errors found while running: " + cmd);
 		}
 		return stdouts;
 	}
@@ -114,31 +131,26 @@ class Utils {
 	 * @param cmd the command
 	 */
 	static void execute_cmd(String cmd) {
-		boolean errors_found = false;
+		AtomicBoolean errors_found = new AtomicBoolean(false);
 		try {
 			Process p = Runtime.getRuntime().exec(cmd);
-
-			BufferedReader stdError = new BufferedReader(new
-					InputStreamReader(p.getErrorStream()));
+			Thread stderr = read_errors(p, errors_found);
 			BufferedReader stdInput = new BufferedReader(new
 					InputStreamReader(p.getInputStream()));
 			String s;
 			while ((s = stdInput.readLine()) != null) {
 				Logger.info(s);
 			}
-			while((s = stdError.readLine()) != null) {
-				Logger.error(s);
-				errors_found = true;
-			}
-		} catch (IOException e) {
+			stderr.join();
+			p.waitFor();
+		} catch (IOException | InterruptedException e) {
 			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
 			if(Constants.PRINT_ST) {
 				e.printStackTrace();
 			}
 		}
-		if(errors_found) {
-			Logger.error("Errors found. Exiting.");
-			System.exit(0);
+		if(errors_found.get()) {
+			throw new IllegalStateException("Errors found while running: " + cmd);
 		}
 	}
 
@@ -172,13 +184,7 @@ class Utils {
 	 * @return the name of the block (in the form 'Block 1')
 	 */
 	static String get_block_name(Block b) {
-		Matcher m = Constants.BLOCK_RE.matcher(b.toString());
-		if(m.find()) {
-			return m.group(1);
-		} else {
-			Logger.error("Pattern not found.");
-			return null;
-		}
+		return Constants.BLOCK_NAME_STR + b.getIndexInMethod();
 	}
 
 	/**
@@ -187,13 +193,7 @@ class Utils {
 	 * @return the number of the block
 	 */
 	static int get_block_num(Block b) {
-		Matcher m = Constants.BLOCK_NUM_RE.matcher(b.toString());
-		if(m.find()) {
-			return Integer.parseInt(m.group(1));
-		} else {
-			Logger.error("Pattern not found.");
-			return -1;
-		}
+		return b.getIndexInMethod();
 	}
 
 	/**
@@ -221,16 +221,15 @@ class Utils {
 		ArrayVersionPhi av_phi = (ArrayVersionPhi)av;
 		StringBuilder sb = new StringBuilder();
 		sb.append(Constants.ARR_PHI_STR_START);
-		ArrayVersion[] versions = av_phi.get_array_versions().toArray(new ArrayVersion[0]);
-		Map<Integer, Integer> have_seen = new HashMap<>();
-		for(int i = 0; i < versions.length; i++) {
-			int version = versions[i].get_version();
+		List<Integer> versions = av_phi.get_array_version_numbers();
+		for(int i = 0; i < versions.size(); i++) {
+			int version = versions.get(i);
 			if(version > 0) {
-				sb.append(String.format(Constants.ARR_VER_STR, basename, versions[i].get_version()));
+				sb.append(String.format(Constants.ARR_VER_STR, basename, version));
 			} else {
 				sb.append(basename);
 			}
-			if(i + 1 < versions.length) {
+			if(i + 1 < versions.size()) {
 				sb.append(", ");
 			} else {
 				sb.append(")");
@@ -261,7 +260,17 @@ class Utils {
 	 * @return the name of the graph with the required constants added
 	 */
 	static String make_graph_name(String basename) {
-		return String.format("%s%s%s%s", Constants.GRAPH_DIR, File.separator, basename, Constants.GRAPH_EXT);
+		return make_graph_name(basename, Constants.GRAPH_EXT);
+	}
+
+	/**
+	 * create the name of a graph file
+	 * @param basename the basename for the graph
+	 * @param ext the file extension
+	 * @return the name of the graph with the required constants added
+	 */
+	static String make_graph_name(String basename, String ext) {
+		return String.format("%s%s%s%s", Settings.get_graph_dir(), File.separator, basename, ext);
 	}
 
 	/**
@@ -286,12 +295,18 @@ class Utils {
 	}
 
 	/**
-	 * Write a Mutable GraphViz to disk
+	 * Write a Mutable GraphViz to disk. The graph is snapshotted here and written in the background
+	 * (see GraphRenderer), nothing is done if the render mode is OFF.
 	 * @param graph the graph
 	 * @param default_case the default string that to be shown on an empty map
 	 */
 
 	static void print_graph(MutableGraph graph, String default_case) {
+		if(Settings.get_render_mode() == RenderMode.OFF) {
+			return;
+		}
+		long start = Metrics.start();
+		JfrEvents.Graph event = JfrEvents.start_graph();
 		Map<String, List<MutableNode>> duplicates = clean_graph(graph);
 		String graph_name = graph.name().toString();
 		graph.graphAttrs().add(Color.WHITE.background());
@@ -304,25 +319,12 @@ class Utils {
 					node(default_case).with(guru.nidi.graphviz.attribute.Shape.RECTANGLE, Style.FILLED, Color.GRAY);
 			graph.add(default_node);
 		}*/
-		try {
-			BufferedImage bimg = Graphviz.fromGraph(graph)
-//					.filter(new RoughFilter()
-//							.bowing(2)
-//							.curveStepCount(6)
-//							.roughness(1)
-//							.fillStyle(FillStyle.hachure().width(2).gap(5).angle(0))
-//							.font("*serif", "Comic Sans MS"))
-					.render(Format.PNG).toImage();
-			File f = new File(Utils.make_graph_name(graph.name().toString()));
-			ImageIO.write(bimg, "png", f);
-			Logger.info(graph_name + " has " + graph.nodes().size() + " nodes.");
-			Logger.info(graph_name + " has " + graph.edges().size() + " edges.");
-		} catch (IOException | NoClassDefFoundError e) {
-			Logger.error("Caught " + e.getClass().getSimpleName() + ": " + e.getMessage());
-			if(Constants.PRINT_ST) {
-				e.printStackTrace();
-			}
-		}
+		// the DOT text is the snapshot, the graph can change after this
+		GraphRenderer.submit(graph_name, graph.toString());
+		Logger.info(graph_name + " has " + graph.nodes().size() + " nodes.");
+		Logger.info(graph_name + " has " + graph.edges().size() + " edges.");
+		Metrics.stop(Constants.METRIC_PRINT_GRAPH, start);
+		event.finish_print(graph_name, graph.nodes().size(), graph.edges().size());
 	}
 
 	/**
@@ -395,8 +397,7 @@ class Utils {
 			if(constants.containsKey(var_name)) {
 				return String.format("%s = %d", var_name, constants.get(var_name));
 			} else {
-				Logger.error("Got a null dep chain that was not in constants.");
-				System.exit(0);
+				throw new IllegalStateException("Got a null dep chain that was not in constants.");
 			}
 		}
 		LinkedList<AssignStmt> stmts = new LinkedList<>(dep_chain.getRight());
@@ -470,8 +471,7 @@ class Utils {
 			}
 		}
 		if(count > 1) {
-			Logger.error("Count cannot be over 1!");
-			System.exit(0);
+			throw new IllegalStateException("Count cannot be over 1!");
 		}
 		return node_stmt.replace(node.get_index().to_str(), eq);
 	}
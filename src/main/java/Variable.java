@@ -72,18 +72,19 @@ class Variable {
      * of every variable containing the old alias
      * @param link a pair consisting of the new alias and the old alias
      * @param stmt the assignment stmt
+     * @return true iff the alias was added (the old alias is known to this variable)
      */
-    void add_alias(ImmutablePair<Value, Value> link, AssignStmt stmt) {
+    boolean add_alias(ImmutablePair<Value, Value> link, AssignStmt stmt) {
         String old_val = link.getLeft().toString();
         String new_val = link.getRight().toString();
         // check if it changing an existing value
-        for(Map.Entry<String, Set<Alias>> entry : aliases.entrySet()) {
-            if(Objects.equals(entry.getKey(), old_val)) {
-                entry.getValue().add(new Alias(new_val, stmt));
-                aliases.put(new_val, new HashSet<>());
-                break;
-            }
+        Set<Alias> old_aliases = aliases.get(old_val);
+        if(old_aliases == null) {
+            return false;
         }
+        old_aliases.add(new Alias(new_val, stmt));
+        aliases.put(new_val, new HashSet<>());
+        return true;
     }
 
     /**
@@ -92,17 +93,8 @@ class Variable {
      * @return true iff this variable (or any alias of this variable) has been the given value
      */
     public boolean has_ever_been(String v) {
-        for(Map.Entry<String, Set<Alias>> entry : aliases.entrySet()) {
-            if(Objects.equals(entry.getKey(), v)) {
-                return true;
-            }
-            for(Alias a : entry.getValue()) {
-                if(Objects.equals(a.get_name(), v)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        // every alias is also added as a key
+        return aliases.containsKey(v);
     }
 
     /**
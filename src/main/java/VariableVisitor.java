@@ -11,7 +11,8 @@ import soot.shimple.PhiExpr;
 import java.util.*;
 
 /**
- * A visitor class that looks at possible index values and handles non array phi node MUX transformations
+ * A visitor class that looks at possible index values and handles non array phi node MUX transformations.
+ * One visitor is used for a whole body, it changes the analysis state directly and is reset before every statement.
  */
 public class VariableVisitor extends AbstractStmtSwitch {
     /**
@@ -21,11 +22,11 @@ public class VariableVisitor extends AbstractStmtSwitch {
     /**
      * flag to determine if constants need to be looked for
      */
-    private final boolean is_array;
+    private boolean is_array;
     /**
      * flag to determine if we are in a loop body
      */
-    private final boolean in_loop;
+    private boolean in_loop;
     /**
      * A set of possible constants gathered from non-loop blocks
      */
@@ -37,7 +38,7 @@ public class VariableVisitor extends AbstractStmtSwitch {
     /**
      * flag to indicate a merge node
      */
-    private final boolean is_merge;
+    private boolean is_merge;
     /**
      * set of new array statements
      */
@@ -53,69 +54,37 @@ public class VariableVisitor extends AbstractStmtSwitch {
      * Index values are either:
      *   1. Constants
      *   2. Have a Phi variable somewhere in their def chain
+     * All of the passed state is changed in place.
      * @param phi_vars a container containing all phi_variables that have been seen up to this point
      *                 (along with the aliases of those PhiVariables
      * @param top_phi_var_names This is a convenience set to keep track of the original phi variable names,
      *                          this is used when parsing the second iteration.
      * @param constants a set of constants seen in non-loop blocks
-     * @param is_array used to find constants when we are _outside_ of a loop body
-     * @param in_loop true iff this is called when processing inside of a loop
-     * @param is_merge flag to indicate if node is part of a merge block
      * @param new_array_stmts set of new array stmts
      * @param array_reads_for_if_stmts map to handle array USES being used in IFSTMTS (and therefore MUX stmts)
      */
     VariableVisitor(PhiVariableContainer phi_vars, Set<String> top_phi_var_names, Map<String, Integer> constants,
-                    boolean is_array, boolean in_loop, boolean is_merge, Set<Stmt> new_array_stmts,
-                    Map<String, ValueBox> array_reads_for_if_stmts) {
-        this.phi_vars = new PhiVariableContainer(phi_vars);
-        this.top_phi_var_names = new HashSet<>(top_phi_var_names);
-        this.is_array = is_array;
-        this.in_loop = in_loop;
-        this.constants = new HashMap<>(constants);
-        this.is_merge = is_merge;
-        this.new_array_stmts = new HashSet<>(new_array_stmts);
-        this.array_reads_for_if_stmts = new HashMap<>(array_reads_for_if_stmts);
-    }
-
-    /**
-     * get the (possibly) modified phi variable container  (this is called after everything has finished)
-     * @return the phi variable container
-     */
-    PhiVariableContainer get_phi_vars() {
-        return new PhiVariableContainer(phi_vars);
-    }
-
-    /**
-     * getter for the top level phi variable names used in the second
-     * @return the set of top level phi variable names;
-     */
-    Set<String> get_top_phi_var_names() {
-        return new HashSet<>(top_phi_var_names);
+                    Set<Stmt> new_array_stmts, Map<String, ValueBox> array_reads_for_if_stmts) {
+        this.phi_vars = phi_vars;
+        this.top_phi_var_names = top_phi_var_names;
+        this.is_array = false;
+        this.in_loop = false;
+        this.constants = constants;
+        this.is_merge = false;
+        this.new_array_stmts = new_array_stmts;
+        this.array_reads_for_if_stmts = array_reads_for_if_stmts;
     }
 
     /**
-     * get possible changed constants list (only used when not in a loop)
-     * @return the set of constants
-     */
-    Map<String, Integer> get_constants() {
-//        assert !in_loop : "we only update constants if we are not in a loop";
-        return new HashMap<>(constants);
-    }
-
-    /**
-     * getter for new array stmts
-     * @return new array stmts set
-     */
-    Set<Stmt> get_new_array_stmts() {
-        return new HashSet<>(new_array_stmts);
-    }
-
-    /**
-     * getter for map to handle array USES being used in IFSTMTS
-     * @return the map of array uses
+     * reset the visitor before it is applied to the next statement
+     * @param is_array used to find constants when we are _outside_ of a loop body
+     * @param in_loop true iff this is called when processing inside of a loop
+     * @param is_merge flag to indicate if node is part of a merge block
      */
-    Map<String, ValueBox> get_array_reads_for_if_stmts() {
-        return new HashMap<>(array_reads_for_if_stmts);
+    void reset(boolean is_array, boolean in_loop, boolean is_merge) {
+        this.is_array = is_array;
+        this.in_loop = in_loop;
+        this.is_merge = is_merge;
     }
 
     /**